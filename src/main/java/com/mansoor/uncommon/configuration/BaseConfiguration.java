@@ -18,14 +18,49 @@ package com.mansoor.uncommon.configuration;
 
 import com.mansoor.uncommon.configuration.Convertors.Converter;
 import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.event.ConfigChangeListener;
+import com.mansoor.uncommon.configuration.event.ListenerRegistry;
 import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+import com.mansoor.uncommon.configuration.index.KeyFilter;
+import com.mansoor.uncommon.configuration.index.KeyIndex;
+import com.mansoor.uncommon.configuration.index.KeyTrie;
+import com.mansoor.uncommon.configuration.index.RelaxedKeyIndex;
+import com.mansoor.uncommon.configuration.index.SortedKeyIndex;
+import com.mansoor.uncommon.configuration.index.ValueCache;
+import com.mansoor.uncommon.configuration.snapshot.SnapshotWriter;
+import com.mansoor.uncommon.configuration.store.ConfigStore;
+import com.mansoor.uncommon.configuration.store.HamtStore;
+import com.mansoor.uncommon.configuration.util.ByteBufferInputStream;
+import com.mansoor.uncommon.configuration.util.Compression;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
 import com.mansoor.uncommon.configuration.util.Preconditions;
+import com.mansoor.uncommon.configuration.util.ResourceCache;
+import com.mansoor.uncommon.configuration.util.StringDeduplicator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -60,6 +95,34 @@ public abstract class BaseConfiguration extends Configuration {
      * Last modified time stamp of the configuration file.
      */
     protected Long lastModified;
+    private volatile long lastSize;
+    private volatile long quietPeriod = 1000L;
+    private volatile long initialBackoff = 1000L;
+    private volatile long maxBackoff = 5 * 60 * 1000L;
+    private volatile int reloadFailures;
+    private volatile int consecutiveReloadFailures;
+    private volatile long failedModified;
+    private volatile long failedSize;
+    private volatile long retryAt;
+    /**
+     * Cache of converted values, used when value caching is enabled.
+     */
+    protected final ValueCache valueCache = new ValueCache();
+    private volatile boolean valueCaching;
+    private volatile KeyFilter keyFilter;
+    private volatile StringDeduplicator deduplicator;
+    private volatile KeyDelta lastReloadDelta = KeyDelta.EMPTY;
+    private Object reloadedFrom;
+    private Object reloadedTo;
+    private final List<KeyIndex> keyIndexes = new CopyOnWriteArrayList<KeyIndex>();
+    private final ListenerRegistry listeners = new ListenerRegistry(this);
+    private final ConcurrentMap<String, Object> overrides = new ConcurrentHashMap<String, Object>();
+    private volatile ConfigurationView view;
+    private final Map<String, List<ConfigSlot<?>>> slots = new HashMap<String, List<ConfigSlot<?>>>();
+    private volatile Object[] slotValues = new Object[0];
+    private volatile KeyTrie keyTrie;
+    private volatile SortedKeyIndex sortedKeys;
+    private volatile RelaxedKeyIndex relaxedKeys;
     /**
      * Separator used to split nested keys.
      */
@@ -89,264 +152,1613 @@ public abstract class BaseConfiguration extends Configuration {
     }
 
     /**
-     * Converts the input to String, associate it with the given key and sets it in the configuration.
-     * <pre>
-     *      propertyConfiguration.set("env","production");
-     *      env = production
-     *
-     *      yamlConfiguration.set("env","production");
-     *      env: production
-     *
-     *      jsonConfiguration.set("env","production");
-     *      "env": "production"
-     * </pre>
+     * Sets how long the configuration file must stay unmodified before a change is reloaded by the file poller, so
+     * a file that is written in several steps is reloaded once, after the last write. Defaults to one second.
      *
-     * @param key   the key for the value to set
-     * @param input value to set
-     * @since {@code 0.1}
+     * @param quietPeriod minimum age of the last modification
+     * @param timeUnit    unit of {@code quietPeriod}
      */
-    @SuppressWarnings("unchecked")
-    public <E> void set(final String key, final E input) {
-        Preconditions.checkNull(input, "input is null");
-        final Converter<E> converter = converterRegistry.getConverter((Class<E>) input.getClass());
-        lock.lock();
-        try {
-            setProperty(key, converter.toString(input));
-        } finally {
-            lock.unlock();
-        }
+    public void setReloadQuietPeriod(final long quietPeriod, final TimeUnit timeUnit) {
+        Preconditions.checkArgument(quietPeriod >= 0, "quietPeriod is negative");
+        this.quietPeriod = timeUnit.toMillis(quietPeriod);
     }
 
     /**
-     * Converts the value associated with {@code key} to type {@code E} and returns it.
-     * <p/>
-     * <pre>
-     *      <b>Properties File</b>
-     *      expiration= 02/23/2012
-     *      Date expiration = propertyConfiguration.get(Date.class, "expiration");
-     *
-     *      <b>Yaml</b>
-     *      expiration: 02/23/2012
-     *      Date expiration = yamlConfiguration.get(Date.class, "expiration");
+     * Returns the quiet period set with {@link #setReloadQuietPeriod(long, TimeUnit)}.
      *
-     *      <b>Json</b>
-     *      "expiration": "02/23/2012"
-     *      Date expiration = jsonConfiguration.get(Date.class, "expiration");
+     * @return quiet period in milliseconds
+     */
+    protected long getReloadQuietPeriod() {
+        return quietPeriod;
+    }
+
+    /**
+     * Sets how long the file poller waits before retrying a file that failed to reload. The wait doubles after every
+     * consecutive failure up to {@code maxBackoff}; a new modification of the file is tried as soon as it is quiet.
+     * Defaults to one second and five minutes.
      *
-     *      <b>System variable</b>
-     *      java.io.tmpdir= /tmp
-     *      File tmpDir = systemPropertyConfiguration.get(File.class, "java.io.tmpdir");
-     *  </pre>
+     * @param initialBackoff wait after the first failure
+     * @param maxBackoff     longest wait
+     * @param timeUnit       unit of both waits
+     */
+    public void setReloadBackoff(final long initialBackoff, final long maxBackoff, final TimeUnit timeUnit) {
+        Preconditions.checkArgument(initialBackoff >= 0 && maxBackoff >= initialBackoff, "invalid backoff");
+        this.initialBackoff = timeUnit.toMillis(initialBackoff);
+        this.maxBackoff = timeUnit.toMillis(maxBackoff);
+    }
+
+    /**
+     * Returns the number of reloads that failed since this configuration was created. A failed reload keeps the
+     * previously loaded content.
      *
-     * @param type type the raw value will be converted to
-     * @param key  key to use to retrieve the value
-     * @return converted value
-     * @since {@code 0.1}
+     * @return failed reload count
      */
-    public <E> E get(final Class<E> type, final String key) {
-        final Converter<E> converter = converterRegistry.getConverter(type);
-        try {
-            return converter.convert(getProperty(key));
-        } catch (Exception e) {
-            throw new PropertyConversionException("conversion failed", e);
-        }
+    public int getReloadFailures() {
+        return reloadFailures;
+    }
 
+    /**
+     * Returns the number of reloads that failed since the last successful load or reload.
+     *
+     * @return consecutive failed reload count
+     */
+    public int getConsecutiveReloadFailures() {
+        return consecutiveReloadFailures;
     }
 
     /**
-     * Converts the value associated with this nested key and convert it to type {@code E}.
+     * Enables or disables caching of converted values. Cached values are only evicted for the keys that change, so a
+     * reload that changes a few keys keeps every other value cached. Converters must not be replaced while caching is
+     * enabled.
      * <pre>
-     *      <b>Properties File</b>
-     *      development.password.database= secret_password
-     *      String password = propertyConfiguration.getNested(String.class, "development.password.database");
-     *
-     *      <b>Yaml</b>
-     *      development:
-     *            password:
-     *                database: secret_password
-     *      String password = yamlConfiguration.getNested(String.class, "development.password.database");
-     *
-     *      <b>Json</b>
-     *      "development":{
-     *            "password":{
-     *                "database": "secret_password"
-     *                }
-     *               }
-     *      String password = jsonConfiguration.getNested(String.class, "development.password.database");
-     *
-     *      <b>System variable</b>
-     *      java.io.tmpdir= /tmp
-     *      File tmpDir = systemPropertyConfiguration.getNested(File.class, "java.io.tmpdir");
-     *  </pre>
+     *     configuration.setValueCaching(true);
+     * </pre>
      *
-     * @param type type the raw value will be converted to
-     * @param key  nested key to use to retrieve the value
-     * @return value of type {@code E}
-     * @since {@code 0.1}
+     * @param enabled true to cache converted values
      */
-    public <E> E getNested(final Class<E> type, final String key) {
-        final Object value = getNestedValue(key);
-        E result = null;
-        if (Preconditions.isNotNull(value)) {
-            final Converter<E> converter = converterRegistry.getConverter(type);
-            try {
-                result = converter.convert(String.class.isAssignableFrom(value.getClass()) ? (String) value : value.toString());
-            } catch (Exception e) {
-                throw new PropertyConversionException("conversion failed", e);
+    public void setValueCaching(final boolean enabled) {
+        lock.lock();
+        try {
+            if (enabled && !valueCaching) {
+                valueCache.clear();
+                keyIndexes.add(valueCache);
+            } else if (!enabled && valueCaching) {
+                keyIndexes.remove(valueCache);
+                valueCache.clear();
             }
+            valueCaching = enabled;
+        } finally {
+            lock.unlock();
         }
-        return result;
     }
 
     /**
-     * {@inheritDoc}
+     * Enables or disables a Bloom filter of the keys of this configuration, with a 1% false positive rate. The filter
+     * is kept up to date as keys change and lets layered lookups such as {@link CompositeConfiguration} skip this
+     * configuration for keys it definitely does not contain.
+     *
+     * @param enabled true to keep a key filter
      */
-    public void load(final File propertyFile) {
-        Preconditions.checkNull(propertyFile, "File is null");
-        this.config = propertyFile;
-        lastModified = propertyFile.lastModified();
+    public void setKeyFilter(final boolean enabled) {
+        setKeyFilter(enabled ? 0.01 : 0);
+    }
 
+    /**
+     * Enables a Bloom filter of the keys of this configuration with the given false positive rate, or disables it if
+     * the rate is 0.
+     *
+     * @param falsePositiveRate target false positive rate, 0 to disable the filter
+     */
+    public void setKeyFilter(final double falsePositiveRate) {
+        Preconditions.checkArgument(falsePositiveRate >= 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
         lock.lock();
         try {
-            loadConfig(propertyFile);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to load file " + propertyFile, e);
-
+            keyFilter = falsePositiveRate == 0 ? null : newKeyFilter(falsePositiveRate);
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Enables or disables deduplication of the keys and values of loaded content, with a table of 4096 strings. The
+     * table is kept across reloads, so strings seen in the previous load are reused.
+     * <pre>
+     *     configuration.setStringDeduplication(true);
+     * </pre>
+     *
+     * @param enabled true to deduplicate loaded strings
+     */
+    public void setStringDeduplication(final boolean enabled) {
+        setStringDeduplication(enabled ? 4096 : 0);
+    }
 
     /**
-     * {@inheritDoc}
+     * Enables deduplication of the keys and values of loaded content with a table of the given capacity, or disables
+     * it if the capacity is 0.
+     *
+     * @param capacity number of strings kept in the table, 0 to disable deduplication
      */
-    public void load(final String path) {
-        Preconditions.checkNull(path, "path is null");
-        final File file = new File(path);
-        load(file);
+    public void setStringDeduplication(final int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "capacity is negative");
+        deduplicator = capacity == 0 ? null : new StringDeduplicator(capacity);
     }
 
     /**
-     * {@inheritDoc}
+     * Enables or disables relaxed key binding. When enabled, a key can be read in any style that differs only in case
+     * and in how its segments are separated, by dots, underscores, dashes or camel case, so {@code DB_MAX_POOL} and
+     * {@code db.max-pool} both read {@code db.maxPool}. The
+     * relaxed form of every key is computed once when the key is loaded or set, and keys that share a relaxed form
+     * are logged and returned by {@link RelaxedKeyIndex#getConflicts()}. Keys are written exactly as given.
+     * <pre>
+     *     configuration.setRelaxedKeys(true);
+     *     int pool = configuration.get(Integer.class, "DB_MAX_POOL");
+     * </pre>
+     *
+     * @param enabled true to resolve keys in any style
      */
-    public void reload() {
+    public void setRelaxedKeys(final boolean enabled) {
         lock.lock();
         try {
-            if (config != null) {
-                log.info("Reloading properties file " + config.getAbsolutePath());
-                clearConfig();
-                loadConfig(config);
-                log.info("Reloading done");
+            if (enabled && relaxedKeys == null) {
+                final RelaxedKeyIndex index = new RelaxedKeyIndex();
+                addKeyIndex(index);
+                relaxedKeys = index;
+            } else if (!enabled && relaxedKeys != null) {
+                removeKeyIndex(relaxedKeys);
+                relaxedKeys = null;
+            } else {
+                return;
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("Unable to reload file " + config, e);
+            rekeySlots();
+            rebindSlots(null);
         } finally {
             lock.unlock();
         }
+    }
 
+    /**
+     * Returns the relaxed key index, which reports conflicting keys.
+     *
+     * @return relaxed key index or {@code null} if relaxed key binding is not enabled
+     */
+    public RelaxedKeyIndex getRelaxedKeyIndex() {
+        return relaxedKeys;
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the key a requested name refers to, which is the name itself unless relaxed key binding is enabled.
+     *
+     * @param name requested key
+     * @return key to read
      */
-    public ConverterRegistry getConverterRegistry() {
-        return converterRegistry;
+    protected String resolveKey(final String name) {
+        final RelaxedKeyIndex index = relaxedKeys;
+        return index == null || name == null ? name : index.resolve(name);
     }
 
     /**
-     * Stops file polling
+     * Returns the string deduplicator, which reports how many bytes it saved.
+     *
+     * @return deduplicator or {@code null} if deduplication is not enabled
      */
-    public void stopPolling() {
-        if (!executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+    public StringDeduplicator getStringDeduplicator() {
+        return deduplicator;
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the canonical instance of a loaded string if deduplication is enabled.
+     *
+     * @param value loaded key or value
+     * @return an equal string or {@code value} itself
      */
-    public void clear() {
+    protected String deduplicate(final String value) {
+        final StringDeduplicator current = deduplicator;
+        return current == null ? value : current.deduplicate(value);
+    }
+
+    /**
+     * Returns {@code true} if loaded strings are deduplicated.
+     *
+     * @return true if deduplication is enabled
+     */
+    protected boolean isDeduplicating() {
+        return deduplicator != null;
+    }
+
+    /**
+     * Returns the key filter, which also reports its false positive rate.
+     *
+     * @return key filter or {@code null} if it is not enabled
+     */
+    public KeyFilter getKeyFilter() {
+        return keyFilter;
+    }
+
+    /**
+     * Returns {@code false} if this configuration definitely does not contain the given flat or nested key. Always
+     * returns {@code true} when the key filter is not enabled.
+     *
+     * @param key key to check
+     * @return true if the key might be contained
+     */
+    public boolean mightContainKey(final String key) {
+        final KeyFilter filter = keyFilter;
+        return filter == null || key == null || filter.mightContain(key);
+    }
+
+    private KeyFilter newKeyFilter(final double falsePositiveRate) {
+        final KeyFilter filter = new KeyFilter(falsePositiveRate, isHierarchical());
+        filter.rebuild(visibleEntries().keySet());
+        return filter;
+    }
+
+    /**
+     * Returns an immutable view of the current generation of the configuration. The first call builds the first
+     * generation while holding {@link #lock}; from then on every change publishes a new generation, and this method
+     * returns the published one without copying or locking.
+     * <pre>
+     *     ConfigurationView view = configuration.snapshot();
+     *     log.info("serving request with configuration version " + view.getVersion());
+     * </pre>
+     *
+     * @return read-only view
+     */
+    public ConfigurationView snapshot() {
+        final ConfigurationView current = view;
+        if (current != null) {
+            return current;
+        }
         lock.lock();
         try {
-            clearConfig();
+            if (view == null) {
+                view = new ConfigurationView(converterRegistry, deliminator, 1, loadedStore().apply(overrides));
+            }
+            return view;
         } finally {
             lock.unlock();
         }
-
     }
 
     /**
-     * {@inheritDoc}
+     * Returns a read-only copy of the current content of the configuration, indexed by a minimal perfect hash. Later
+     * changes to this configuration are not reflected in the frozen copy.
+     * <pre>
+     *     FrozenConfiguration frozen = configuration.freeze();
+     *     int port = frozen.getNested(Integer.class, "development.port");
+     * </pre>
+     *
+     * @return frozen configuration
      */
-    public File save(final String path) {
-        Preconditions.checkBlank(path, "path is null or empty");
-        final File file = new File(path);
+    public FrozenConfiguration freeze() {
         lock.lock();
         try {
-            storeConfiguration(file);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to save file", e);
+            final ConfigurationView current = view;
+            return new FrozenConfiguration(converterRegistry, deliminator, current == null ? 0 : current.getVersion(), visibleEntries());
         } finally {
             lock.unlock();
         }
-        return file;
     }
 
-
     /**
-     * Runnable used to poll configuration for changes.
+     * Registers a key that is read often and returns a slot holding its converted value. The slot is rebound every
+     * time the key changes, so reading it is an array access instead of a lookup and conversion. Nested keys are used
+     * for hierarchical configurations. Registering the same key and type again returns the same slot.
+     * <pre>
+     *     ConfigSlot&lt;Integer&gt; pool = configuration.register("db.pool", Integer.class);
+     *     int size = pool.get();
+     * </pre>
+     *
+     * @param key  key to register
+     * @param type type the value is converted to
+     * @param <E>  generic type
+     * @return slot of the key
+     * @throws PropertyConversionException if the current value cannot be converted
      */
-    class FilePoller implements Runnable {
-        public void run() {
-            log.info("Polling File");
-            final File temp = new File(config.getAbsolutePath());
-            if (temp.exists() && temp.lastModified() > lastModified) {
-                lastModified = temp.lastModified();
-                log.info("Reload Required");
-                reload();
-            } else {
-                log.info("Not reloading file as no change has been detected since last load");
+    @SuppressWarnings("unchecked")
+    public <E> ConfigSlot<E> register(final String key, final Class<E> type) {
+        Preconditions.checkNull(key, "key is null");
+        Preconditions.checkNull(type, "type is null");
+        lock.lock();
+        try {
+            final String resolved = resolveKey(key);
+            List<ConfigSlot<?>> bound = slots.get(resolved);
+            if (bound == null) {
+                bound = new ArrayList<ConfigSlot<?>>(1);
+                slots.put(resolved, bound);
+            }
+            for (final ConfigSlot<?> slot : bound) {
+                if (slot.getType() == type) {
+                    return (ConfigSlot<E>) slot;
+                }
             }
+            final Object[] values = new Object[slotValues.length + 1];
+            System.arraycopy(slotValues, 0, values, 0, slotValues.length);
+            final ConfigSlot<E> slot = new ConfigSlot<E>(this, key, type, slotValues.length);
+            values[slot.getIndex()] = isHierarchical() ? getNested(type, key) : get(type, key);
+            bound.add(slot);
+            slotValues = values;
+            return slot;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Store configuration to the given file
+     * Returns a live view of the keys below the given prefix, with the prefix stripped. The view copies nothing and
+     * reads and writes through to this configuration. The first call builds a trie of the keys, which is then kept up
+     * to date so that listing the keys of a view costs time proportional to the size of its subtree.
+     * <pre>
+     *     SubsetConfiguration development = configuration.subset("development.");
+     *     String password = development.get(String.class, "password.database");
+     * </pre>
      *
-     * @param file file where configuration will be saved.
-     * @throws IOException if saving fails.
+     * @param prefix key prefix, with or without a trailing dot
+     * @return subset view
      */
-    protected abstract void storeConfiguration(File file) throws IOException;
+    public SubsetConfiguration subset(final String prefix) {
+        Preconditions.checkNull(prefix, "prefix is null");
+        final String path = prefix.endsWith(".") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        Preconditions.checkBlank(path, "prefix is blank");
+        return new SubsetConfiguration(this, path);
+    }
 
     /**
-     * Sets the key and value in the configuration.
+     * Returns the trie of the keys of this configuration, building it on first use.
      *
-     * @param key   key that will be use to set the property
-     * @param value value to set
+     * @return key trie
      */
-    protected abstract void setProperty(final String key, Object value);
+    KeyTrie keyTrie() {
+        final KeyTrie current = keyTrie;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (keyTrie == null) {
+                final KeyTrie trie = new KeyTrie();
+                addKeyIndex(trie);
+                keyTrie = trie;
+            }
+            return keyTrie;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     /**
-     * Returns the property mapped to the given key
+     * Returns the keys matching a glob, in sorted order. {@code *} matches any characters except a dot, {@code **}
+     * matches any characters and {@code ?} matches a single character except a dot. For YAML and JSON the keys are
+     * the nested paths of the leaf values. The first query builds a sorted index of the keys, which is then kept up to
+     * date, so a query only visits the keys sharing the literal prefix of the glob.
+     * <pre>
+     *     List&lt;String&gt; quotas = configuration.findKeys("tenants.*.quota");
+     * </pre>
      *
-     * @param key key to retrieve the value
-     * @return value mapped to the given key
+     * @param glob key pattern
+     * @return matching keys
      */
-    protected abstract String getProperty(String key);
+    public List<String> findKeys(final String glob) {
+        Preconditions.checkNull(glob, "glob is null");
+        return sortedKeyIndex().find(glob);
+    }
 
     /**
-     * Loads the configuration in the given file.
+     * Returns the keys between {@code from} and {@code to}, both inclusive, as a live read-only view in sorted order.
+     * Like {@link #findKeys(String)} this uses the sorted key index.
+     * <pre>
+     *     SortedSet&lt;String&gt; shards = configuration.keyRange("shard.0100", "shard.0199");
+     * </pre>
      *
-     * @param propertyFile configuration file
-     * @throws IOException if loading fails
+     * @param from lowest key
+     * @param to   highest key
+     * @return keys in the range
+     */
+    public SortedSet<String> keyRange(final String from, final String to) {
+        Preconditions.checkNull(from, "from is null");
+        Preconditions.checkNull(to, "to is null");
+        return sortedKeyIndex().range(from, to);
+    }
+
+    private SortedKeyIndex sortedKeyIndex() {
+        final SortedKeyIndex current = sortedKeys;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (sortedKeys == null) {
+                final SortedKeyIndex index = new SortedKeyIndex();
+                addKeyIndex(index);
+                sortedKeys = index;
+            }
+            return sortedKeys;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value stored in a slot created by {@link #register(String, Class)}.
+     *
+     * @param index slot index
+     * @return converted value or {@link ConfigSlot.Failure}
      */
-    protected abstract void loadConfig(final File propertyFile) throws IOException;
+    Object slotValue(final int index) {
+        return slotValues[index];
+    }
 
     /**
-     * Clears the configuration
+     * Returns the keys that were added, removed or changed by the last reload. For YAML and JSON the keys are the
+     * nested paths of the leaf values.
+     *
+     * @return delta of the last reload, empty if the configuration was never reloaded
      */
-    protected abstract void clearConfig();
+    public KeyDelta getLastReloadDelta() {
+        final KeyDelta delta = lastReloadDelta;
+        if (delta != null) {
+            return delta;
+        }
+        lock.lock();
+        try {
+            settleReloadDelta();
+            return lastReloadDelta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers an index that is updated every time keys of this configuration change. The index is first updated
+     * with every key currently in the configuration.
+     *
+     * @param index index to register
+     */
+    public void addKeyIndex(final KeyIndex index) {
+        Preconditions.checkNull(index, "index is null");
+        lock.lock();
+        try {
+            index.update(KeyDelta.diff(Collections.<String, Object>emptyMap(), visibleEntries()));
+            keyIndexes.add(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unregisters an index added with {@link #addKeyIndex(KeyIndex)}.
+     *
+     * @param index index to remove
+     */
+    public void removeKeyIndex(final KeyIndex index) {
+        lock.lock();
+        try {
+            keyIndexes.remove(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a listener that is notified after the given key, or any key below it, is added, removed or changed
+     * by a load, reload, set or clear. Listeners are called asynchronously, never while the configuration is locked.
+     * <pre>
+     *     yamlConfiguration.addListener("development.database", listener);
+     *     yamlConfiguration.addListener("", listenerForEveryKey);
+     * </pre>
+     *
+     * @param keyOrPrefix key or prefix, the empty string subscribes to every key
+     * @param listener    listener to notify
+     */
+    public void addListener(final String keyOrPrefix, final ConfigChangeListener listener) {
+        lock.lock();
+        try {
+            listeners.add(keyOrPrefix, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addListener(String, ConfigChangeListener)}.
+     *
+     * @param keyOrPrefix key or prefix the listener was registered with
+     * @param listener    listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeListener(final String keyOrPrefix, final ConfigChangeListener listener) {
+        lock.lock();
+        try {
+            return listeners.remove(keyOrPrefix, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the executor that notifies listeners. By default a single daemon thread per configuration is used.
+     *
+     * @param executor executor used to notify listeners
+     */
+    public void setListenerExecutor(final Executor executor) {
+        listeners.setExecutor(executor);
+    }
+
+    /**
+     * Converts the input to String, associate it with the given key and sets it in the configuration.
+     * <pre>
+     *      propertyConfiguration.set("env","production");
+     *      env = production
+     *
+     *      yamlConfiguration.set("env","production");
+     *      env: production
+     *
+     *      jsonConfiguration.set("env","production");
+     *      "env": "production"
+     * </pre>
+     *
+     * @param key   the key for the value to set
+     * @param input value to set
+     * @since {@code 0.1}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void set(final String key, final E input) {
+        Preconditions.checkNull(input, "input is null");
+        final Converter<E> converter = converterRegistry.getConverter((Class<E>) input.getClass());
+        lock.lock();
+        try {
+            putProperty(key, converter.toString(input));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets a runtime override for the key. Overrides sit above the loaded content: {@code get}, {@code getNested} and
+     * the list getters return the override instead of the loaded value, and unlike values written with
+     * {@link #set(String, Object)} overrides are kept when the configuration is reloaded or cleared. The same key
+     * answers both flat and nested lookups.
+     * <pre>
+     *     configuration.override("development.database.url", "jdbc:mysql://localhost/test");
+     * </pre>
+     *
+     * @param key   key or nested key to override
+     * @param input value to set
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void override(final String key, final E input) {
+        Preconditions.checkNull(input, "input is null");
+        final Converter<E> converter = converterRegistry.getConverter((Class<E>) input.getClass());
+        putOverride(key, converter.toString(input));
+    }
+
+    /**
+     * Sets a runtime override holding a list of values, see {@link #override(String, Object)}.
+     *
+     * @param key   key or nested key to override
+     * @param input values to set
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void overrideList(final String key, final List<E> input) {
+        Preconditions.checkArgument(Preconditions.isNotEmpty(input), "input is empty");
+        final Converter<E> converter = converterRegistry.getConverter((Class<E>) input.get(0).getClass());
+        final List<String> values = new ArrayList<String>(input.size());
+        for (final E value : input) {
+            values.add(converter.toString(value));
+        }
+        putOverride(key, Collections.unmodifiableList(values));
+    }
+
+    /**
+     * Removes the runtime override of the key, the loaded value becomes visible again.
+     *
+     * @param key overridden key
+     * @return true if the key was overridden
+     */
+    public boolean removeOverride(final String key) {
+        Preconditions.checkBlank(key, "Key is null or blank");
+        lock.lock();
+        try {
+            final Object before = overrides.remove(key);
+            if (before != null) {
+                overrideChanged(key, before, null);
+            }
+            return before != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every runtime override.
+     */
+    public void clearOverrides() {
+        lock.lock();
+        try {
+            for (final String key : new ArrayList<String>(overrides.keySet())) {
+                overrideChanged(key, overrides.remove(key), null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the runtime overrides mapped to their raw values, a {@code String} or a {@code List} of them.
+     *
+     * @return copy of the overrides
+     */
+    public Map<String, Object> getOverrides() {
+        return Collections.unmodifiableMap(new HashMap<String, Object>(overrides));
+    }
+
+    private void putOverride(final String key, final Object value) {
+        Preconditions.checkBlank(key, "Key is null or blank");
+        lock.lock();
+        try {
+            overrideChanged(key, overrides.put(key, value), value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells indexes and listeners about an override that changed, comparing the values readers see for the key.
+     */
+    private void overrideChanged(final String key, final Object before, final Object after) {
+        if (tracksKeyChanges()) {
+            final Object loaded = before == null || after == null ? loadedValue(key) : null;
+            keyChanged(key, before != null ? before : loaded, after != null ? after : loaded);
+        }
+    }
+
+    /**
+     * Returns the loaded leaf value of the key, ignoring nested nodes which stay readable below an override.
+     */
+    private Object loadedValue(final String key) {
+        final Object value = isHierarchical() ? getNestedValue(key) : getRawValue(key);
+        return value instanceof Map && !((Map<?, ?>) value).isEmpty() ? null : value;
+    }
+
+    /**
+     * Converts the value associated with {@code key} to type {@code E} and returns it.
+     * <p/>
+     * <pre>
+     *      <b>Properties File</b>
+     *      expiration= 02/23/2012
+     *      Date expiration = propertyConfiguration.get(Date.class, "expiration");
+     *
+     *      <b>Yaml</b>
+     *      expiration: 02/23/2012
+     *      Date expiration = yamlConfiguration.get(Date.class, "expiration");
+     *
+     *      <b>Json</b>
+     *      "expiration": "02/23/2012"
+     *      Date expiration = jsonConfiguration.get(Date.class, "expiration");
+     *
+     *      <b>System variable</b>
+     *      java.io.tmpdir= /tmp
+     *      File tmpDir = systemPropertyConfiguration.get(File.class, "java.io.tmpdir");
+     *  </pre>
+     *
+     * @param type type the raw value will be converted to
+     * @param name key to use to retrieve the value
+     * @return converted value
+     * @since {@code 0.1}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E get(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final boolean caching = valueCaching && key != null;
+        final long generation = valueCache.generation();
+        if (caching) {
+            final Object cached = valueCache.get(key, type, false);
+            if (cached != ValueCache.MISS) {
+                return (E) cached;
+            }
+        }
+        final Converter<E> converter = converterRegistry.getConverter(type);
+        final Object override = getOverride(key);
+        final E result;
+        try {
+            result = converter.convert(override != null ? override.toString() : getProperty(key));
+        } catch (Exception e) {
+            throw new PropertyConversionException("conversion failed", e);
+        }
+        if (caching) {
+            valueCache.put(key, type, false, result, generation);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the value associated with this nested key and convert it to type {@code E}.
+     * <pre>
+     *      <b>Properties File</b>
+     *      development.password.database= secret_password
+     *      String password = propertyConfiguration.getNested(String.class, "development.password.database");
+     *
+     *      <b>Yaml</b>
+     *      development:
+     *            password:
+     *                database: secret_password
+     *      String password = yamlConfiguration.getNested(String.class, "development.password.database");
+     *
+     *      <b>Json</b>
+     *      "development":{
+     *            "password":{
+     *                "database": "secret_password"
+     *                }
+     *               }
+     *      String password = jsonConfiguration.getNested(String.class, "development.password.database");
+     *
+     *      <b>System variable</b>
+     *      java.io.tmpdir= /tmp
+     *      File tmpDir = systemPropertyConfiguration.getNested(File.class, "java.io.tmpdir");
+     *  </pre>
+     *
+     * @param type type the raw value will be converted to
+     * @param name nested key to use to retrieve the value
+     * @return value of type {@code E}
+     * @since {@code 0.1}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E getNested(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final boolean caching = valueCaching && key != null;
+        final long generation = valueCache.generation();
+        if (caching) {
+            final Object cached = valueCache.get(key, type, true);
+            if (cached != ValueCache.MISS) {
+                return (E) cached;
+            }
+        }
+        final Object override = getOverride(key);
+        final E result = convert(type, override != null ? override : getNestedValue(key));
+        if (caching) {
+            valueCache.put(key, type, true, result, generation);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void load(final File propertyFile) {
+        Preconditions.checkNull(propertyFile, "File is null");
+        this.config = propertyFile;
+        lastModified = propertyFile.lastModified();
+        lastSize = propertyFile.length();
+
+        lock.lock();
+        try {
+            settleReloadDelta();
+            final Map<String, Object> before = tracksKeyChanges() ? flattenEntries() : null;
+            try {
+                loadConfig(propertyFile);
+                consecutiveReloadFailures = 0;
+                retryAt = 0;
+            } finally {
+                keysLoaded(before);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load file " + propertyFile, e);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Loads the given file on the given executor. The returned future completes with this configuration, or throws
+     * the failure wrapped in an {@code ExecutionException}.
+     * <pre>
+     *      Future&lt;BaseConfiguration&gt; loaded = configuration.loadAsync(file, executor);
+     *      ...
+     *      loaded.get();
+     * </pre>
+     *
+     * @param propertyFile configuration file
+     * @param executor     executor that loads the file
+     * @return future completed when the file is loaded
+     */
+    public Future<BaseConfiguration> loadAsync(final File propertyFile, final Executor executor) {
+        Preconditions.checkNull(propertyFile, "File is null");
+        Preconditions.checkNull(executor, "executor is null");
+        final FutureTask<BaseConfiguration> task = new FutureTask<BaseConfiguration>(new Callable<BaseConfiguration>() {
+            public BaseConfiguration call() {
+                load(propertyFile);
+                return BaseConfiguration.this;
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void load(final String path) {
+        Preconditions.checkNull(path, "path is null");
+        final File file = new File(path);
+        load(file);
+    }
+
+    /**
+     * Loads the configuration from the given stream. The stream is read directly by the parser and is not closed.
+     * Gzip compressed content is decompressed while it is parsed.
+     * Content loaded from a stream is not reloaded or polled for changes.
+     * <pre>
+     *      configuration.load(socket.getInputStream());
+     * </pre>
+     *
+     * @param input stream containing the configuration
+     */
+    public void load(final InputStream input) {
+        Preconditions.checkNull(input, "InputStream is null");
+        lock.lock();
+        try {
+            settleReloadDelta();
+            final Map<String, Object> before = tracksKeyChanges() ? flattenEntries() : null;
+            try {
+                loadConfig(Compression.decompress(input));
+            } finally {
+                keysLoaded(before);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load stream", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the configuration from the remaining bytes of the given buffer. The buffer's position is not changed.
+     *
+     * @param buffer buffer containing the configuration
+     */
+    public void load(final ByteBuffer buffer) {
+        Preconditions.checkNull(buffer, "ByteBuffer is null");
+        load(new ByteBufferInputStream(buffer.duplicate()));
+    }
+
+    /**
+     * Loads the configuration from a classpath resource. Resources are read once per {@code URL} and the content is
+     * shared by every configuration that loads the same resource.
+     * <pre>
+     *      configuration.loadResource("/config/application.yaml");
+     * </pre>
+     *
+     * @param name resource name
+     */
+    public void loadResource(final String name) {
+        Preconditions.checkBlank(name, "resource name is null or empty");
+        final URL url = findResource(name);
+        Preconditions.checkNull(url, "Resource not found " + name);
+        try {
+            load(ResourceCache.read(url));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load resource " + url, e);
+        }
+    }
+
+    /**
+     * Finds a resource using the context class loader, falling back to the class loader of this class.
+     *
+     * @param name resource name, with or without a leading {@code /}
+     * @return resource URL or {@code null} if not found
+     */
+    private URL findResource(final String name) {
+        final String path = name.startsWith("/") ? name.substring(1) : name;
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        URL url = contextLoader != null ? contextLoader.getResource(path) : null;
+        if (url == null) {
+            url = BaseConfiguration.class.getClassLoader().getResource(path);
+        }
+        return url;
+    }
+
+    /**
+     * Reloads the configuration file. If the file can not be loaded the previously loaded content is kept and
+     * {@link #getReloadFailures()} is incremented. Configurations that implement {@link #parseConfig(File)} parse the
+     * file aside and replace their content in one step, so readers never see an empty or partly loaded configuration.
+     * Those that also implement {@link #getContent()} compare the content before and after the reload only when key
+     * changes are tracked or {@link #getLastReloadDelta()} is called.
+     */
+    public void reload() {
+        lock.lock();
+        try {
+            if (config != null) {
+                log.info("Reloading properties file " + config.getAbsolutePath());
+                final long modified = config.lastModified();
+                final long size = config.length();
+                final Object content = getContent();
+                final Object parsed;
+                try {
+                    parsed = parseConfig(config);
+                } catch (Exception e) {
+                    reloadFailed(modified, size);
+                    throw e;
+                }
+                final boolean replaced = parsed != null && content != null;
+                final Map<String, Object> before = replaced ? null : flattenEntries();
+                if (parsed != null) {
+                    replaceConfig(parsed);
+                } else {
+                    settleReloadDelta();
+                    final Object state = saveState();
+                    clearConfig();
+                    try {
+                        loadConfig(config);
+                    } catch (Exception e) {
+                        clearConfig();
+                        restoreState(state);
+                        reloadFailed(modified, size);
+                        throw e;
+                    }
+                }
+                lastModified = modified;
+                lastSize = size;
+                consecutiveReloadFailures = 0;
+                if (replaced) {
+                    contentReloaded(content);
+                } else {
+                    keysReloaded(before);
+                }
+                final KeyDelta delta = lastReloadDelta;
+                log.info(delta == null ? "Reloading done" : "Reloading done, " + delta.size() + " keys changed");
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to reload file " + config, e);
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    /**
+     * Records a failed reload and schedules the earliest retry of the same file.
+     */
+    private void reloadFailed(final long modified, final long size) {
+        reloadFailures++;
+        final int failures = ++consecutiveReloadFailures;
+        long backoff = initialBackoff;
+        for (int i = 1; i < failures && backoff < maxBackoff; i++) {
+            backoff *= 2;
+        }
+        failedModified = modified;
+        failedSize = size;
+        retryAt = System.currentTimeMillis() + Math.min(backoff, maxBackoff);
+        log.warn("Reload failed " + failures + " time(s) in a row, keeping the last loaded configuration");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+    /**
+     * Stops file polling
+     */
+    public void stopPolling() {
+        if (!executorService.isShutdown()) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Stops file polling and the thread that notifies listeners. Listeners are not notified of later changes.
+     */
+    public void shutdown() {
+        stopPolling();
+        listeners.shutdown();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            settleReloadDelta();
+            final Map<String, Object> before = listeners.isEmpty() ? null : flattenEntries();
+            clearConfig();
+            if (view != null) {
+                publish(createStore().apply(overrides));
+            }
+            final KeyDelta remaining = overrides.isEmpty() ? null : KeyDelta.diff(Collections.<String, Object>emptyMap(), overrides);
+            if (keyFilter != null) {
+                keyFilter.clear();
+                if (remaining != null) {
+                    keyFilter.update(remaining);
+                }
+            }
+            for (final KeyIndex index : keyIndexes) {
+                index.clear();
+                if (remaining != null) {
+                    index.update(remaining);
+                }
+            }
+            rebindSlots(null);
+            if (before != null) {
+                listeners.publish(KeyDelta.diff(before, Collections.<String, Object>emptyMap()));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File save(final String path) {
+        Preconditions.checkBlank(path, "path is null or empty");
+        final File file = new File(path);
+        lock.lock();
+        try {
+            storeConfiguration(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to save file", e);
+        } finally {
+            lock.unlock();
+        }
+        return file;
+    }
+
+    /**
+     * Saves a binary snapshot of the configuration to the given path. A snapshot can be used in place by
+     * {@link SnapshotConfiguration} without being parsed.
+     * <pre>
+     *      yamlConfiguration.saveSnapshot("/etc/app/config.snapshot");
+     *      Configuration configuration = new SnapshotConfiguration();
+     *      configuration.load("/etc/app/config.snapshot");
+     * </pre>
+     *
+     * @param path path where the snapshot will be saved
+     * @return file where the snapshot is saved
+     */
+    public File saveSnapshot(final String path) {
+        Preconditions.checkBlank(path, "path is null or empty");
+        final File file = new File(path);
+        lock.lock();
+        try {
+            final OutputStream output = Compression.openOutput(file);
+            try {
+                SnapshotWriter.write(getRawEntries(), isHierarchical(), output);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to save snapshot", e);
+        } finally {
+            lock.unlock();
+        }
+        return file;
+    }
+
+    /**
+     * Returns {@code true} if values of this configuration can be maps that are reached with nested keys, as in YAML
+     * and JSON, and {@code false} if nested keys are plain keys, as in properties files.
+     *
+     * @return true if the configuration is a tree
+     */
+    protected boolean isHierarchical() {
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the key filter, a {@link KeyIndex} or a listener needs to be told about changed keys.
+     *
+     * @return true if key changes are tracked
+     */
+    protected boolean tracksKeyChanges() {
+        return keyFilter != null || !keyIndexes.isEmpty() || !listeners.isEmpty() || view != null || slotValues.length > 0;
+    }
+
+    /**
+     * Updates every registered {@link KeyIndex} with the given delta and queues events for the listeners of the
+     * changed keys. Callers must hold {@link #lock}.
+     *
+     * @param delta changed keys
+     */
+    protected void keysChanged(final KeyDelta delta) {
+        if (!delta.isEmpty()) {
+            publish(delta);
+            final KeyFilter filter = keyFilter;
+            if (filter != null) {
+                filter.update(delta);
+                if (filter.isStale() || filter.isHierarchical() != isHierarchical()) {
+                    keyFilter = newKeyFilter(filter.getTargetFalsePositiveRate());
+                }
+            }
+            for (final KeyIndex index : keyIndexes) {
+                index.update(delta);
+            }
+            rebindSlots(delta);
+            listeners.publish(delta);
+        }
+    }
+
+    /**
+     * Updates every registered {@link KeyIndex} and listener after the value stored under {@code key} was replaced. Callers must
+     * hold {@link #lock}.
+     *
+     * @param key    key or nested path of the value
+     * @param before raw value before the change, {@code null} if there was none
+     * @param after  raw value after the change, {@code null} if it was removed
+     */
+    protected void keyChanged(final String key, final Object before, final Object after) {
+        if (tracksKeyChanges()) {
+            keysChanged(KeyDelta.diff(KeyPaths.flatten(key, before, isHierarchical()), KeyPaths.flatten(key, after, isHierarchical())));
+        }
+    }
+
+    /**
+     * Sets the property and updates every registered {@link KeyIndex}. Callers must hold {@link #lock}.
+     *
+     * @param key   key that will be use to set the property
+     * @param value value to set
+     */
+    protected void putProperty(final String key, final Object value) {
+        settleReloadDelta();
+        if (tracksKeyChanges()) {
+            final Object before = getRawValue(key);
+            setProperty(key, value);
+            keyChanged(key, before, getRawValue(key));
+        } else {
+            setProperty(key, value);
+        }
+    }
+
+    /**
+     * Returns every leaf key of the configuration mapped to its raw value.
+     *
+     * @return flattened entries
+     */
+    protected Map<String, Object> flattenEntries() {
+        return KeyPaths.flatten(getRawEntries(), isHierarchical());
+    }
+
+    /**
+     * Compares the configuration with its content before a reload, records the delta returned by
+     * {@link #getLastReloadDelta()} and updates every registered {@link KeyIndex}. Callers must hold {@link #lock}.
+     *
+     * @param before flattened entries before the reload
+     */
+    protected void keysReloaded(final Map<String, Object> before) {
+        keysReloaded(KeyDelta.diff(before, flattenEntries()));
+    }
+
+    /**
+     * Records the delta of a reload, returned by {@link #getLastReloadDelta()}, and updates every registered
+     * {@link KeyIndex}. Callers must hold {@link #lock}.
+     *
+     * @param delta keys changed by the reload
+     */
+    protected void keysReloaded(final KeyDelta delta) {
+        reloadedFrom = null;
+        reloadedTo = null;
+        lastReloadDelta = delta;
+        keysChanged(delta);
+    }
+
+    /**
+     * Records a reload that replaced the content returned by {@link #getContent()}. The delta is computed right away
+     * if key changes are tracked, otherwise the first time {@link #getLastReloadDelta()} asks for it or before the
+     * new content is changed in place. Callers must hold {@link #lock}.
+     *
+     * @param before content returned by {@link #getContent()} before the reload
+     */
+    protected void contentReloaded(final Object before) {
+        if (tracksKeyChanges()) {
+            keysReloaded(diffContent(before, getContent()));
+        } else {
+            reloadedFrom = before;
+            reloadedTo = getContent();
+            lastReloadDelta = null;
+        }
+    }
+
+    /**
+     * Computes the delta of the last reload if it was deferred by {@link #contentReloaded(Object)}. Callers must hold
+     * {@link #lock} and call it before they change the loaded content in place.
+     */
+    protected final void settleReloadDelta() {
+        if (lastReloadDelta == null) {
+            lastReloadDelta = diffContent(reloadedFrom, reloadedTo);
+            reloadedFrom = null;
+            reloadedTo = null;
+        }
+    }
+
+    /**
+     * Returns the loaded content as an object that {@link #replaceConfig(Object)} replaces rather than changes, so a
+     * reload can compare the content before and after it without copying either. Returns {@code null} by default, in
+     * which case the entries are flattened before every reload.
+     *
+     * @return loaded content or {@code null}
+     */
+    protected Object getContent() {
+        return null;
+    }
+
+    /**
+     * Compares two contents returned by {@link #getContent()}. The default flattens both as top level maps.
+     *
+     * @param before content before the change
+     * @param after  content after the change
+     * @return delta between the contents
+     */
+    @SuppressWarnings("unchecked")
+    protected KeyDelta diffContent(final Object before, final Object after) {
+        return KeyDelta.diff(KeyPaths.flatten((Map<String, ?>) before, isHierarchical()), KeyPaths.flatten((Map<String, ?>) after, isHierarchical()));
+    }
+
+    /**
+     * Converts again the slots of the keys in the delta, or every slot if the delta is {@code null}, and publishes the
+     * new values in one array. Runs after the key indexes so that cached values are already evicted. Slots are kept
+     * under the key their name resolves to (see {@link #resolveKey(String)}); adding or removing keys can change that key,
+     * so the slots are filed again first and the ones that moved are converted again as well.
+     */
+    private void rebindSlots(final KeyDelta delta) {
+        if (slotValues.length == 0) {
+            return;
+        }
+        final Object[] values = slotValues.clone();
+        if (delta != null && !(delta.getAdded().isEmpty() && delta.getRemoved().isEmpty())) {
+            rebind(rekeySlots(), values);
+        }
+        if (delta == null) {
+            for (final List<ConfigSlot<?>> bound : slots.values()) {
+                rebind(bound, values);
+            }
+        } else {
+            final List<String> keys = new ArrayList<String>(delta.getAdded());
+            keys.addAll(delta.getRemoved());
+            keys.addAll(delta.getChanged());
+            for (final String key : keys) {
+                for (String path = key; path != null; path = KeyPaths.parent(path)) {
+                    rebind(slots.get(path), values);
+                }
+            }
+        }
+        slotValues = values;
+    }
+
+    /**
+     * Files every slot under the key its name currently resolves to.
+     *
+     * @return slots whose key changed
+     */
+    private List<ConfigSlot<?>> rekeySlots() {
+        final List<ConfigSlot<?>> moved = new ArrayList<ConfigSlot<?>>();
+        final Map<String, List<ConfigSlot<?>>> rekeyed = new HashMap<String, List<ConfigSlot<?>>>();
+        for (final Map.Entry<String, List<ConfigSlot<?>>> entry : slots.entrySet()) {
+            for (final ConfigSlot<?> slot : entry.getValue()) {
+                final String resolved = resolveKey(slot.getKey());
+                if (!resolved.equals(entry.getKey())) {
+                    moved.add(slot);
+                }
+                List<ConfigSlot<?>> bound = rekeyed.get(resolved);
+                if (bound == null) {
+                    bound = new ArrayList<ConfigSlot<?>>(1);
+                    rekeyed.put(resolved, bound);
+                }
+                bound.add(slot);
+            }
+        }
+        slots.clear();
+        slots.putAll(rekeyed);
+        return moved;
+    }
+
+    private void rebind(final List<ConfigSlot<?>> bound, final Object[] values) {
+        if (bound == null) {
+            return;
+        }
+        for (final ConfigSlot<?> slot : bound) {
+            try {
+                values[slot.getIndex()] = isHierarchical() ? getNested(slot.getType(), slot.getKey()) : get(slot.getType(), slot.getKey());
+            } catch (RuntimeException e) {
+                log.warn("Unable to convert registered key " + slot.getKey() + " to " + slot.getType().getSimpleName(), e);
+                values[slot.getIndex()] = new ConfigSlot.Failure(e);
+            }
+        }
+    }
+
+    private void keysLoaded(final Map<String, Object> before) {
+        if (before != null) {
+            keysChanged(KeyDelta.diff(before, flattenEntries()));
+        }
+    }
+
+    /**
+     * Runnable used to poll configuration for changes.
+     */
+    class FilePoller implements Runnable {
+        private long observedModified;
+        private long observedSize;
+
+        public void run() {
+            if (config == null) {
+                return;
+            }
+            log.info("Polling File");
+            final File temp = new File(config.getAbsolutePath());
+            if (!temp.exists()) {
+                log.info("Not reloading file as it does not exist");
+                return;
+            }
+            final long modified = temp.lastModified();
+            final long size = temp.length();
+            if (lastModified != null && modified == lastModified && size == lastSize) {
+                log.info("Not reloading file as no change has been detected since last load");
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            final boolean writing = now - modified < quietPeriod || (modified == observedModified && size != observedSize);
+            observedModified = modified;
+            observedSize = size;
+            if (writing) {
+                log.info("Not reloading file as it is still being written");
+            } else if (modified == failedModified && size == failedSize && now < retryAt) {
+                log.info("Not reloading file as the last reload failed, retrying in " + (retryAt - now) + " ms");
+            } else {
+                log.info("Reload Required");
+                try {
+                    reload();
+                } catch (IllegalStateException e) {
+                    log.warn("Unable to reload file " + config, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store configuration to the given file. Files named {@code *.gz} or {@code *.deflate} are compressed.
+     *
+     * @param file file where configuration will be saved.
+     * @throws IOException if saving fails.
+     */
+    protected void storeConfiguration(final File file) throws IOException {
+        final OutputStream output = Compression.openOutput(file);
+        try {
+            storeConfiguration(output);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Store configuration to the given stream.
+     *
+     * @param output stream where configuration will be written, closed by the caller.
+     * @throws IOException if saving fails.
+     */
+    protected abstract void storeConfiguration(OutputStream output) throws IOException;
+
+    /**
+     * Sets the key and value in the configuration.
+     *
+     * @param key   key that will be use to set the property
+     * @param value value to set
+     */
+    protected abstract void setProperty(final String key, Object value);
+
+    /**
+     * Returns the property mapped to the given key
+     *
+     * @param key key to retrieve the value
+     * @return value mapped to the given key
+     */
+    protected abstract String getProperty(String key);
+
+    /**
+     * Loads the configuration in the given file. Compressed files are decompressed while they are parsed.
+     *
+     * @param propertyFile configuration file
+     * @throws IOException if loading fails
+     */
+    protected void loadConfig(final File propertyFile) throws IOException {
+        final InputStream input = Compression.openInput(propertyFile);
+        try {
+            loadConfig(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Parses the given file into new content without changing the current content, for {@link #reload()}. Returns
+     * {@code null} if this configuration can only be reloaded in place, by clearing it and loading the file again.
+     *
+     * @param propertyFile configuration file
+     * @return content accepted by {@link #replaceConfig(Object)}, or {@code null}
+     * @throws IOException if parsing fails
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        return null;
+    }
+
+    /**
+     * Replaces the current content with content returned by {@link #parseConfig(File)}. Called with {@link #lock}
+     * held.
+     *
+     * @param content parsed content
+     */
+    protected void replaceConfig(final Object content) {
+        throw new UnsupportedOperationException("parseConfig is not implemented by " + getClass().getName());
+    }
+
+    /**
+     * Loads the configuration from the given stream.
+     *
+     * @param input configuration stream, closed by the caller
+     * @throws IOException if loading fails
+     */
+    protected abstract void loadConfig(final InputStream input) throws IOException;
+
+    /**
+     * Clears the configuration
+     */
+    protected abstract void clearConfig();
+
+    /**
+     * Returns a copy of the top level entries of the configuration. Values are Strings, Lists or, for hierarchical
+     * configurations, nested Maps.
+     *
+     * @return top level keys mapped to their raw values
+     */
+    protected abstract Map<String, Object> getRawEntries();
+
+    /**
+     * Captures the content of the configuration before a reload, so it can be put back if the reload fails. Called
+     * with {@link #lock} held.
+     *
+     * @return state accepted by {@link #restoreState(Object)}
+     */
+    protected Object saveState() {
+        return getRawEntries();
+    }
+
+    /**
+     * Puts back content captured by {@link #saveState()} into the cleared configuration. Called with {@link #lock}
+     * held.
+     *
+     * @param state state returned by {@link #saveState()}
+     */
+    @SuppressWarnings("unchecked")
+    protected void restoreState(final Object state) {
+        for (final Map.Entry<String, Object> entry : ((Map<String, Object>) state).entrySet()) {
+            setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the empty store that generations returned by {@link #snapshot()} are built from. The default
+     * {@link HamtStore} shares unchanged nodes between generations, so publishing a change costs O(log n) per key.
+     *
+     * @return empty store
+     */
+    protected ConfigStore createStore() {
+        return HamtStore.EMPTY;
+    }
+
+    /**
+     * Returns a store holding the loaded leaf values, the base of the first generation returned by
+     * {@link #snapshot()}. The default copies the flattened entries into the store returned by {@link #createStore()}.
+     * Called with {@link #lock} held.
+     *
+     * @return store of the loaded values
+     */
+    protected ConfigStore loadedStore() {
+        return createStore().apply(flattenEntries());
+    }
+
+    /**
+     * Returns the generation that follows {@code current} once the given keys changed. Called with {@link #lock}
+     * held.
+     *
+     * @param current store of the current generation
+     * @param changes changed keys mapped to their new raw values, {@code null} for removed keys
+     * @return store of the next generation
+     */
+    protected ConfigStore nextStore(final ConfigStore current, final Map<String, Object> changes) {
+        return current.apply(changes);
+    }
+
+    /**
+     * Publishes a generation with the values of the changed keys, if views are in use.
+     */
+    private void publish(final KeyDelta delta) {
+        final ConfigurationView current = view;
+        if (current != null) {
+            final Map<String, Object> changes = new HashMap<String, Object>();
+            for (final String key : delta.getKeys()) {
+                final Object override = getOverride(key);
+                changes.put(key, override != null ? override : loadedValue(key));
+            }
+            publish(nextStore(current.getStore(), changes));
+        }
+    }
+
+    private void publish(final ConfigStore store) {
+        view = new ConfigurationView(converterRegistry, deliminator, view.getVersion() + 1, store);
+    }
+
+    /**
+     * Returns the runtime override of the key with a single lookup.
+     *
+     * @param key key or nested key
+     * @return raw override, a {@code String} or a {@code List} of them, or {@code null} if the key is not overridden
+     */
+    protected final Object getOverride(final String key) {
+        return key == null || overrides.isEmpty() ? null : overrides.get(key);
+    }
+
+    /**
+     * Converts a raw value to type {@code E}.
+     *
+     * @param type  type the raw value will be converted to
+     * @param value raw value, may be {@code null}
+     * @return converted value or {@code null}
+     */
+    protected <E> E convert(final Class<E> type, final Object value) {
+        E result = null;
+        if (Preconditions.isNotNull(value)) {
+            final Converter<E> converter = converterRegistry.getConverter(type);
+            try {
+                result = converter.convert(String.class.isAssignableFrom(value.getClass()) ? (String) value : value.toString());
+            } catch (Exception e) {
+                throw new PropertyConversionException("conversion failed", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a raw override to a List of type {@code E}. A {@code String} override is split using the deliminator.
+     *
+     * @param type     type the values will be converted to
+     * @param override raw override returned by {@link #getOverride(String)}
+     * @return List of E
+     */
+    @SuppressWarnings("unchecked")
+    protected <E> List<E> convertOverrideList(final Class<E> type, final Object override) {
+        final List<String> values = override instanceof List ? (List<String>) override
+                : Arrays.asList(override.toString().split(new String(new char[]{deliminator})));
+        final List<E> result = new ArrayList<E>(values.size());
+        for (final String value : values) {
+            result.add(convert(type, value));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the flattened loaded entries with the overrides on top.
+     */
+    private Map<String, Object> visibleEntries() {
+        if (overrides.isEmpty()) {
+            return flattenEntries();
+        }
+        final Map<String, Object> entries = new HashMap<String, Object>(flattenEntries());
+        entries.putAll(overrides);
+        return entries;
+    }
+
+    /**
+     * Returns the raw value stored under the given top level key. Subclasses should override this method with a
+     * direct lookup. The key is used exactly as given, callers resolve relaxed names with {@link #resolveKey(String)}.
+     *
+     * @param key top level key
+     * @return raw value or {@code null}
+     */
+    protected Object getRawValue(final String key) {
+        return getRawEntries().get(key);
+    }
 
     /**
      * Returns the value using the nested key
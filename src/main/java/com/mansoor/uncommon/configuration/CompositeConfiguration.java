@@ -0,0 +1,410 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.index.KeyFilter;
+import com.mansoor.uncommon.configuration.index.KeyIndex;
+import com.mansoor.uncommon.configuration.store.CopyOnWriteStore;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Configuration that resolves keys through a list of layers, the first layer that contains a key wins.
+ * <pre>
+ *      Configuration configuration = new CompositeConfiguration(systemProperties, localOverrides, sharedDefaults);
+ *      String url = configuration.getNested(String.class, "development.url");
+ * </pre>
+ * <p>
+ * The composite keeps an index of the layer that owns each key, so a lookup is a single probe of the index
+ * followed by a read from the owning layer, however many layers there are. The index is updated incrementally when
+ * a layer is loaded, reloaded, set or cleared: only the changed keys, and for YAML and JSON the nested nodes above
+ * them, are resolved again. Layers with a key filter ({@link BaseConfiguration#setKeyFilter(boolean)}) are skipped
+ * without being read for keys they definitely do not contain.
+ * </p>
+ * <p>
+ * The index holds the exact keys of the layers. A name that no layer holds exactly, such as a relaxed name
+ * ({@link BaseConfiguration#setRelaxedKeys(boolean)}) or the dotted key of an environment variable, is resolved by
+ * each layer in priority order, so an exact key in any layer wins over a name another layer resolves.
+ * </p>
+ * <p>
+ * Values are set in the first layer. Layers are loaded and saved individually, so {@code load} and {@code save}
+ * are not supported.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class CompositeConfiguration extends Configuration {
+    private final List<BaseConfiguration> layers;
+    private final List<LayerIndex> indexes = new ArrayList<LayerIndex>();
+    private final ConcurrentMap<String, BaseConfiguration> owners = new ConcurrentHashMap<String, BaseConfiguration>();
+    private final ConcurrentMap<String, BaseConfiguration> nestedOwners = new ConcurrentHashMap<String, BaseConfiguration>();
+
+    /**
+     * Creates a composite of the given layers, in priority order.
+     *
+     * @param layers layers, the first layer has the highest priority
+     */
+    public CompositeConfiguration(final BaseConfiguration... layers) {
+        this(Arrays.asList(layers));
+    }
+
+    /**
+     * Creates a composite of the given layers, in priority order.
+     *
+     * @param layers layers, the first layer has the highest priority
+     */
+    public CompositeConfiguration(final List<? extends BaseConfiguration> layers) {
+        Preconditions.checkArgument(Preconditions.isNotEmpty(layers), "layers is null or empty");
+        this.layers = Collections.unmodifiableList(new ArrayList<BaseConfiguration>(layers));
+        for (final BaseConfiguration layer : this.layers) {
+            Preconditions.checkNull(layer, "layer is null");
+            final LayerIndex index = new LayerIndex(layer);
+            indexes.add(index);
+            layer.addKeyIndex(index);
+        }
+    }
+
+    /**
+     * Returns the layers in priority order.
+     *
+     * @return layers
+     */
+    public List<BaseConfiguration> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Returns the layer that resolves the given key.
+     *
+     * @param key key as passed to {@code get}
+     * @return owning layer or {@code null} if no layer contains the key
+     */
+    public BaseConfiguration getLayer(final String key) {
+        return owner(key, false);
+    }
+
+    /**
+     * Returns the layer that resolves the given nested key.
+     *
+     * @param key key as passed to {@code getNested}
+     * @return owning layer or {@code null} if no layer contains the key
+     */
+    public BaseConfiguration getNestedLayer(final String key) {
+        return owner(key, true);
+    }
+
+    /**
+     * Stops tracking changes of the layers. The composite must not be used afterwards.
+     */
+    public void detach() {
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).removeKeyIndex(indexes.get(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E get(final Class<E> type, final String key) {
+        final BaseConfiguration owner = getLayer(key);
+        return owner == null ? null : owner.get(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getList(final Class<E> type, final String key) {
+        final BaseConfiguration owner = getLayer(key);
+        return owner == null ? null : owner.getList(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E getNested(final Class<E> type, final String key) {
+        final BaseConfiguration owner = getNestedLayer(key);
+        return owner == null ? null : owner.getNested(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+        final BaseConfiguration owner = getNestedLayer(key);
+        return owner == null ? null : owner.getNestedList(type, key);
+    }
+
+    /**
+     * Sets the value in the first layer.
+     */
+    public <E> void set(final String key, final E input) {
+        layers.get(0).set(key, input);
+    }
+
+    /**
+     * Sets the values in the first layer.
+     */
+    public <E> void setList(final String key, final List<E> input) {
+        layers.get(0).setList(key, input);
+    }
+
+    /**
+     * Sets the values in the first layer.
+     */
+    public <E> void setList(final String key, final E... input) {
+        layers.get(0).setList(key, input);
+    }
+
+    /**
+     * Sets the value in the first layer.
+     */
+    public <E> void setNested(final String key, final E input) {
+        layers.get(0).setNested(key, input);
+    }
+
+    /**
+     * Sets the values in the first layer.
+     */
+    public <E> void setNestedList(final String key, final List<E> input) {
+        layers.get(0).setNestedList(key, input);
+    }
+
+    /**
+     * Sets the values in the first layer.
+     */
+    public <E> void setNestedList(final String key, final E... input) {
+        layers.get(0).setNestedList(key, input);
+    }
+
+    /**
+     * Operation not supported, layers are loaded individually.
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final File file) {
+        throw new UnsupportedOperationException("Layers of a CompositeConfiguration are loaded individually");
+    }
+
+    /**
+     * Operation not supported, layers are loaded individually.
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final String path) {
+        throw new UnsupportedOperationException("Layers of a CompositeConfiguration are loaded individually");
+    }
+
+    /**
+     * Returns the converter registry of the first layer.
+     *
+     * @return underlying configuration registry
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return layers.get(0).getConverterRegistry();
+    }
+
+    /**
+     * Returns a view that resolves keys through a view of each layer, in priority order. Each layer is read from a
+     * single generation; the version of the view is the sum of the versions of the layer views, so it increases
+     * whenever any layer changes.
+     *
+     * @return read-only view
+     */
+    public ConfigurationView snapshot() {
+        final ConfigurationView[] views = new ConfigurationView[layers.size()];
+        long version = 0;
+        for (int i = 0; i < views.length; i++) {
+            views[i] = layers.get(i).snapshot();
+            version += views[i].getVersion();
+        }
+        return new LayeredView(getConverterRegistry(), layers.get(0).deliminator, version, views);
+    }
+
+    /**
+     * Reloads every layer.
+     */
+    public void reload() {
+        for (final BaseConfiguration layer : layers) {
+            layer.reload();
+        }
+    }
+
+    /**
+     * Operation not supported, layers are saved individually.
+     *
+     * @throws UnsupportedOperationException
+     */
+    public File save(final String path) {
+        throw new UnsupportedOperationException("Layers of a CompositeConfiguration are saved individually");
+    }
+
+    /**
+     * Clears every layer.
+     */
+    public void clear() {
+        for (final BaseConfiguration layer : layers) {
+            layer.clear();
+        }
+    }
+
+    /**
+     * Resolves the owners of the given keys again.
+     */
+    private synchronized void resolve(final Collection<String> keys) {
+        for (final String key : keys) {
+            resolve(key, false);
+            resolve(key, true);
+        }
+    }
+
+    private void resolve(final String key, final boolean nested) {
+        final ConcurrentMap<String, BaseConfiguration> target = nested ? nestedOwners : owners;
+        for (final BaseConfiguration layer : layers) {
+            if (contains(layer, key, nested)) {
+                target.put(key, layer);
+                return;
+            }
+        }
+        target.remove(key);
+    }
+
+    /**
+     * Returns the layer that owns the exact key, or else the first layer that resolves the name to a key it contains.
+     */
+    private BaseConfiguration owner(final String key, final boolean nested) {
+        if (key == null) {
+            return null;
+        }
+        final BaseConfiguration owner = (nested ? nestedOwners : owners).get(key);
+        if (owner != null) {
+            return owner;
+        }
+        for (final BaseConfiguration layer : layers) {
+            final String resolved = layer.resolveKey(key);
+            if (!key.equals(resolved) && contains(layer, resolved, nested)) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the layer contains the key, without reading the layer when its key filter rules the
+     * key out.
+     */
+    private static boolean contains(final BaseConfiguration layer, final String key, final boolean nested) {
+        if (layer.getOverride(key) != null) {
+            return true;
+        }
+        final KeyFilter filter = layer.getKeyFilter();
+        if (filter != null && !filter.mightContain(key)) {
+            return false;
+        }
+        final boolean found = nested ? key.length() > 0 && layer.getNestedValue(key) != null : layer.getRawValue(key) != null;
+        if (!found && filter != null && (nested || !isNestedKey(layer, filter, key))) {
+            filter.recordFalsePositive();
+        }
+        return found;
+    }
+
+    /**
+     * Returns {@code true} if a hierarchical filter holds the key because it is a nested key of the layer, which is
+     * not a false positive of a flat lookup.
+     */
+    private static boolean isNestedKey(final BaseConfiguration layer, final KeyFilter filter, final String key) {
+        return filter.isHierarchical() && key.length() > 0 && layer.getNestedValue(key) != null;
+    }
+
+    /**
+     * View that returns the value of the first layer view that contains the key.
+     */
+    private static final class LayeredView extends ConfigurationView {
+        private final ConfigurationView[] views;
+
+        private LayeredView(final ConverterRegistry converterRegistry, final char deliminator, final long version, final ConfigurationView[] views) {
+            super(converterRegistry, deliminator, version, CopyOnWriteStore.EMPTY);
+            this.views = views;
+        }
+
+        protected Object getValue(final String key) {
+            for (final ConfigurationView view : views) {
+                final Object value = view.getValue(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Updates the owners of the keys that changed in one layer.
+     */
+    private final class LayerIndex implements KeyIndex {
+        private final BaseConfiguration layer;
+
+        private LayerIndex(final BaseConfiguration layer) {
+            this.layer = layer;
+        }
+
+        /**
+         * Resolves the changed keys and, for hierarchical layers, the nested nodes above them, which may appear,
+         * disappear or change owner.
+         */
+        public void update(final KeyDelta delta) {
+            final Set<String> keys = new HashSet<String>();
+            final boolean hierarchical = layer.isHierarchical();
+            for (final String key : delta.getKeys()) {
+                keys.add(key);
+                String parent = hierarchical ? KeyPaths.parent(key) : null;
+                while (parent != null && keys.add(parent)) {
+                    parent = KeyPaths.parent(parent);
+                }
+            }
+            resolve(keys);
+        }
+
+        public void clear() {
+            final Set<String> keys = new HashSet<String>();
+            collectOwned(owners, keys);
+            collectOwned(nestedOwners, keys);
+            resolve(keys);
+        }
+
+        private void collectOwned(final Map<String, BaseConfiguration> index, final Set<String> keys) {
+            for (final Map.Entry<String, BaseConfiguration> entry : index.entrySet()) {
+                if (entry.getValue() == layer) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+
+/**
+ * Handle to a key registered with {@link BaseConfiguration#register(String, Class)}. The configuration converts the
+ * value once and stores it in an array at the slot's index; {@link #get()} is a plain array read with no hashing, key
+ * comparison or conversion. The configuration rebinds the slot whenever the key is loaded, set, reloaded or cleared.
+ * <pre>
+ *     private static final ConfigSlot&lt;Integer&gt; POOL = configuration.register("db.pool", Integer.class);
+ *     ...
+ *     int pool = POOL.get();
+ * </pre>
+ *
+ * @param <E> type of the value
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class ConfigSlot<E> {
+    private final BaseConfiguration configuration;
+    private final String key;
+    private final Class<E> type;
+    private final int index;
+
+    ConfigSlot(final BaseConfiguration configuration, final String key, final Class<E> type, final int index) {
+        this.configuration = configuration;
+        this.key = key;
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * Returns the current converted value of the key.
+     *
+     * @return value or {@code null} if the key is not set
+     * @throws PropertyConversionException if the current raw value could not be converted
+     */
+    @SuppressWarnings("unchecked")
+    public E get() {
+        final Object value = configuration.slotValue(index);
+        if (value instanceof Failure) {
+            throw new PropertyConversionException("conversion failed for " + key, ((Failure) value).cause);
+        }
+        return (E) value;
+    }
+
+    /**
+     * Returns the registered key.
+     *
+     * @return key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the type the value is converted to.
+     *
+     * @return type
+     */
+    public Class<E> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the index of the slot, which stays the same for the life of the configuration.
+     *
+     * @return slot index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        return "ConfigSlot{" + key + ", " + type.getSimpleName() + ", " + index + "}";
+    }
+
+    /**
+     * Stored in a slot whose value could not be converted, so that the error is reported by {@link #get()}.
+     */
+    static final class Failure {
+        private final RuntimeException cause;
+
+        Failure(final RuntimeException cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+import com.mansoor.uncommon.configuration.functional.FunctionalCollection;
+import com.mansoor.uncommon.configuration.store.ConfigStore;
+import com.mansoor.uncommon.configuration.transformers.PropertyTransformer;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Immutable, read-only view of one generation of a configuration, returned by {@link BaseConfiguration#snapshot()}.
+ * Every read made through the same view sees the same values, whatever reloads or writes happen to the
+ * configuration in the meantime.
+ * <p>
+ * A view holds the leaf values of the configuration: for YAML and JSON, nested keys resolve to leaves and keys of
+ * nested nodes resolve to {@code null}. Flat and nested lookups of a key return the same value.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class ConfigurationView extends Configuration {
+    private final ConverterRegistry converterRegistry;
+    private final char deliminator;
+    private final long version;
+    private final ConfigStore store;
+
+    /**
+     * Creates a view of the given store.
+     *
+     * @param converterRegistry registry used to convert values
+     * @param deliminator       character used to split String values into lists
+     * @param version           generation of the configuration
+     * @param store             values of the generation
+     */
+    protected ConfigurationView(final ConverterRegistry converterRegistry, final char deliminator, final long version, final ConfigStore store) {
+        this.converterRegistry = converterRegistry;
+        this.deliminator = deliminator;
+        this.version = version;
+        this.store = store;
+    }
+
+    /**
+     * Returns the generation of the configuration this view reads from. Generations increase every time the content of
+     * the configuration changes.
+     *
+     * @return version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E get(final Class<E> type, final String key) {
+        final Object value = getValue(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return converterRegistry.getConverter(type).convert(value.toString());
+        } catch (Exception e) {
+            throw new PropertyConversionException("conversion failed", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> List<E> getList(final Class<E> type, final String key) {
+        final Object value = getValue(key);
+        if (value == null) {
+            return null;
+        }
+        final FunctionalCollection<String> values = value instanceof List
+                ? new FunctionalCollection<String>((List<String>) value)
+                : new FunctionalCollection<String>(value.toString().split(new String(new char[]{deliminator})));
+        return values.map(new PropertyTransformer<E>(type, converterRegistry)).asList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E getNested(final Class<E> type, final String key) {
+        return get(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+        return getList(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+    /**
+     * Returns this view, which is already immutable.
+     *
+     * @return this view
+     */
+    public ConfigurationView snapshot() {
+        return this;
+    }
+
+    /**
+     * Returns the values of this generation.
+     *
+     * @return store
+     */
+    protected ConfigStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the raw value of the key in this generation.
+     *
+     * @param key key or nested key
+     * @return raw value or {@code null}
+     */
+    protected Object getValue(final String key) {
+        return key == null ? null : store.get(key);
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void set(final String key, final E input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setList(final String key, final List<E> input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setList(final String key, final E... input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNested(final String key, final E input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNestedList(final String key, final List<E> input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNestedList(final String key, final E... input) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final File file) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final String path) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void reload() {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public File save(final String path) {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void clear() {
+        throw new UnsupportedOperationException("ConfigurationView is read only");
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.exceptions.ConfigurationLoadException;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Factory methods for configurations.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class Configurations {
+    private static final String COMPRESSION_EXTENSION = ".*\\.(gz|gzip|deflate|zz|zlib)$";
+
+    private Configurations() {
+    }
+
+    /**
+     * Creates an empty configuration able to parse the given file. The configuration type is chosen by extension:
+     * {@code .properties}, {@code .json}, {@code .yaml} or {@code .yml}, optionally followed by a compression
+     * extension such as {@code .gz}.
+     * <pre>
+     *      BaseConfiguration configuration = Configurations.forFile(file);
+     *      configuration.load(file);
+     * </pre>
+     *
+     * @param file configuration file
+     * @return configuration matching the file extension
+     * @throws IllegalArgumentException if the extension is unknown
+     */
+    public static BaseConfiguration forFile(final File file) {
+        Preconditions.checkNull(file, "file is null");
+        final String name = baseName(file);
+        if (name.endsWith(".properties")) {
+            return new PropertyConfiguration();
+        } else if (name.endsWith(".json")) {
+            return new JsonConfiguration();
+        } else if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+            return new YamlConfiguration();
+        }
+        throw new IllegalArgumentException("Unknown configuration type " + file);
+    }
+
+    /**
+     * Loads every file in parallel on the given executor, creating the configuration of each file with
+     * {@link #forFile(File)}. Returns once every file is loaded, so start-up takes as long as the slowest file.
+     * <pre>
+     *      Map&lt;File, BaseConfiguration&gt; loaded = Configurations.loadAll(files, executor);
+     * </pre>
+     *
+     * @param files    configuration files
+     * @param executor executor that loads the files
+     * @return loaded configurations in the order of {@code files}
+     * @throws ConfigurationLoadException listing every file that failed to load
+     */
+    public static Map<File, BaseConfiguration> loadAll(final Collection<File> files, final Executor executor) {
+        Preconditions.checkNull(files, "files is null");
+        final Map<File, BaseConfiguration> configurations = new LinkedHashMap<File, BaseConfiguration>();
+        for (final File file : files) {
+            configurations.put(file, forFile(file));
+        }
+        loadAll(configurations, executor);
+        return configurations;
+    }
+
+    /**
+     * Loads every file into its configuration in parallel on the given executor and waits until all of them are
+     * loaded.
+     *
+     * @param configurations configuration files mapped to the configurations that load them
+     * @param executor       executor that loads the files
+     * @throws ConfigurationLoadException listing every file that failed to load
+     */
+    public static void loadAll(final Map<File, ? extends BaseConfiguration> configurations, final Executor executor) {
+        Preconditions.checkNull(configurations, "configurations is null");
+        Preconditions.checkNull(executor, "executor is null");
+        final Map<File, Future<BaseConfiguration>> futures = new LinkedHashMap<File, Future<BaseConfiguration>>();
+        for (final Map.Entry<File, ? extends BaseConfiguration> entry : configurations.entrySet()) {
+            futures.put(entry.getKey(), entry.getValue().loadAsync(entry.getKey(), executor));
+        }
+        final Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+        for (final Map.Entry<File, Future<BaseConfiguration>> future : futures.entrySet()) {
+            try {
+                future.getValue().get();
+            } catch (ExecutionException e) {
+                failures.put(future.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (final Future<BaseConfiguration> pending : futures.values()) {
+                    pending.cancel(true);
+                }
+                failures.put(future.getKey(), e);
+                break;
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new ConfigurationLoadException(failures);
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link #forFile(File)} can create a configuration for the given file.
+     *
+     * @param file configuration file
+     * @return true if the extension is known
+     */
+    public static boolean isSupported(final File file) {
+        final String name = baseName(file);
+        return name.endsWith(".properties") || name.endsWith(".json") || name.endsWith(".yaml") || name.endsWith(".yml");
+    }
+
+    private static String baseName(final File file) {
+        final String name = file.getName().toLowerCase();
+        return name.matches(COMPRESSION_EXTENSION) ? name.substring(0, name.lastIndexOf('.')) : name;
+    }
+}
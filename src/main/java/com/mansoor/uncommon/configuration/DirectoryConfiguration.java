@@ -0,0 +1,432 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+import org.json.simple.JSONValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration merged from every {@code .properties}, {@code .json}, {@code .yaml} and {@code .yml} fragment of a
+ * directory, such as a {@code conf.d} directory.
+ * <p>
+ * Fragments are merged in file name order, so {@code 20-database.yaml} overrides {@code 10-defaults.yaml}. Nested
+ * maps are merged key by key, any other value of a later fragment replaces the earlier one. Keys of properties
+ * fragments are merged as they are written, e.g. {@code database.url} is a single top level key.
+ * </p>
+ * <p>
+ * A polling instance watches the whole directory with a single task. Only fragments that were added, changed or
+ * removed are parsed again, and only the top level keys they define are merged again. Values changed with the
+ * {@code set} methods are replaced when a fragment defining the same top level key changes. The merged configuration
+ * is saved as JSON.
+ * </p>
+ * <pre>
+ *      DirectoryConfiguration configuration = new DirectoryConfiguration(30, TimeUnit.SECONDS);
+ *      configuration.load("/etc/app/conf.d");
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class DirectoryConfiguration extends MapBasedConfiguration {
+    private static final Logger log = LoggerFactory.getLogger(DirectoryConfiguration.class);
+    private final SortedMap<String, Fragment> fragments = new TreeMap<String, Fragment>();
+    private final AtomicInteger fragmentLoads = new AtomicInteger();
+    private volatile File directory;
+
+    /**
+     * Creates an instance that is configured to use given {@code ConverterRegistry}
+     *
+     * @param converterRegistry converterRegistry
+     */
+    public DirectoryConfiguration(final ConverterRegistry converterRegistry) {
+        super(converterRegistry, new HashMap<String, Object>());
+    }
+
+    /**
+     * Creates an instance that is configured to use  {@link DefaultConverterRegistry}
+     */
+    public DirectoryConfiguration() {
+        this(new DefaultConverterRegistry());
+    }
+
+    /**
+     * Creates an instance that polls the directory for added, changed and removed fragments
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     * @param pollingRate       polling rate
+     * @param timeUnit          time unit (eg: seconds, minute etc)
+     */
+    public DirectoryConfiguration(final ConverterRegistry converterRegistry, final long pollingRate, final TimeUnit timeUnit) {
+        super(converterRegistry, new HashMap<String, Object>());
+        Preconditions.checkArgument(pollingRate > 0, "Polling rate must be greater than 0");
+        Preconditions.checkNull(timeUnit, "No Time Unit Specified");
+        executorService.scheduleAtFixedRate(new DirectoryPoller(), pollingRate, pollingRate, timeUnit);
+    }
+
+    /**
+     * Creates an instance that polls the directory for added, changed and removed fragments
+     *
+     * @param pollingRate polling rate
+     * @param timeUnit    time unit (eg: seconds, minute etc)
+     */
+    public DirectoryConfiguration(final long pollingRate, final TimeUnit timeUnit) {
+        this(new DefaultConverterRegistry(), pollingRate, timeUnit);
+    }
+
+    /**
+     * Returns the file names of the loaded fragments in merge order.
+     *
+     * @return fragment names
+     */
+    public List<String> getFragmentNames() {
+        lock.lock();
+        try {
+            return new ArrayList<String>(fragments.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how many times a fragment was parsed since this configuration was created.
+     *
+     * @return fragment parse count
+     */
+    public int getFragmentLoads() {
+        return fragmentLoads.get();
+    }
+
+    /**
+     * Loads and merges every fragment of the given directory.
+     *
+     * @param propertyFile directory containing the fragments
+     * @throws IOException if a fragment can not be loaded
+     */
+    protected void loadConfig(final File propertyFile) throws IOException {
+        Preconditions.checkArgument(propertyFile.isDirectory(), propertyFile + " is not a directory");
+        directory = propertyFile;
+        for (final File file : listFragments(propertyFile).values()) {
+            fragments.put(file.getName(), parse(file));
+        }
+        final Set<String> keys = new HashSet<String>();
+        for (final Fragment fragment : fragments.values()) {
+            keys.addAll(fragment.entries.keySet());
+        }
+        for (final String key : keys) {
+            properties.put(key, merged(fragments, key));
+        }
+    }
+
+    /**
+     * Parses every fragment of the directory and merges them into a new map, without changing the current content.
+     *
+     * @param propertyFile directory containing the fragments
+     * @return parsed content
+     * @throws IOException if a fragment can not be loaded
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        Preconditions.checkArgument(propertyFile.isDirectory(), propertyFile + " is not a directory");
+        final SortedMap<String, Fragment> parsed = new TreeMap<String, Fragment>();
+        for (final File file : listFragments(propertyFile).values()) {
+            parsed.put(file.getName(), parse(file));
+        }
+        final Set<String> keys = new HashSet<String>();
+        for (final Fragment fragment : parsed.values()) {
+            keys.addAll(fragment.entries.keySet());
+        }
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        for (final String key : keys) {
+            entries.put(key, merged(parsed, key));
+        }
+        return new Object[]{propertyFile, parsed, entries};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    protected void replaceConfig(final Object content) {
+        final Object[] parsed = (Object[]) content;
+        directory = (File) parsed[0];
+        fragments.clear();
+        fragments.putAll((Map<String, Fragment>) parsed[1]);
+        super.replaceConfig(parsed[2]);
+    }
+
+    /**
+     * Operation not supported, a directory configuration is loaded from a directory.
+     *
+     * @throws UnsupportedOperationException
+     */
+    protected void loadConfig(final InputStream input) throws IOException {
+        throw new UnsupportedOperationException("DirectoryConfiguration can only be loaded from a directory");
+    }
+
+    /**
+     * Saves the merged configuration as JSON.
+     *
+     * @param output stream where configuration will be written, closed by the caller.
+     * @throws IOException if saving fails.
+     */
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        final Writer out = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+        JSONValue.writeJSONString(properties, out);
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        super.clearConfig();
+        fragments.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object saveState() {
+        return new Object[]{super.saveState(), new TreeMap<String, Fragment>(fragments)};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    protected void restoreState(final Object state) {
+        final Object[] saved = (Object[]) state;
+        super.restoreState(saved[0]);
+        fragments.putAll((Map<String, Fragment>) saved[1]);
+    }
+
+    /**
+     * Replaces the given fragments, removes the given names and merges again the top level keys they define.
+     * Callers must hold {@link #lock}.
+     */
+    private void apply(final Map<String, Fragment> changed, final Set<String> removed) {
+        final Set<String> keys = new HashSet<String>();
+        for (final String name : removed) {
+            final Fragment fragment = fragments.remove(name);
+            if (fragment != null) {
+                keys.addAll(fragment.entries.keySet());
+            }
+        }
+        for (final Map.Entry<String, Fragment> entry : changed.entrySet()) {
+            final Fragment previous = fragments.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                keys.addAll(previous.entries.keySet());
+            }
+            keys.addAll(entry.getValue().entries.keySet());
+        }
+        final Map<String, Object> before = new HashMap<String, Object>();
+        final Map<String, Object> after = new HashMap<String, Object>();
+        for (final String key : keys) {
+            before.putAll(KeyPaths.flatten(key, properties.get(key), true));
+            final Object value = merged(fragments, key);
+            if (value == null) {
+                properties.remove(key);
+            } else {
+                properties.put(key, value);
+            }
+            after.putAll(KeyPaths.flatten(key, value, true));
+        }
+        keysReloaded(KeyDelta.diff(before, after));
+        log.info("Merged " + keys.size() + " keys of " + (changed.size() + removed.size()) + " changed fragments");
+    }
+
+    /**
+     * Merges the values of the given top level key in fragment order.
+     */
+    private Object merged(final Map<String, Fragment> parsed, final String key) {
+        Object result = null;
+        for (final Fragment fragment : parsed.values()) {
+            if (fragment.entries.containsKey(key)) {
+                result = merge(result, fragment.entries.get(key));
+            }
+        }
+        return compact(result);
+    }
+
+    /**
+     * Merges {@code source} into {@code target}, a map created by a previous merge that can be modified.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object merge(final Object target, final Object source) {
+        if (!(source instanceof Map)) {
+            return source;
+        }
+        final Map<String, Object> result = target instanceof Map ? (Map<String, Object>) target : new HashMap<String, Object>();
+        for (final Map.Entry<String, Object> entry : ((Map<String, Object>) source).entrySet()) {
+            result.put(entry.getKey(), merge(result.get(entry.getKey()), entry.getValue()));
+        }
+        return result;
+    }
+
+    private Fragment parse(final File file) {
+        final long modified = file.lastModified();
+        final long size = file.length();
+        final BaseConfiguration configuration = Configurations.forFile(file);
+        try {
+            configuration.load(file);
+        } finally {
+            configuration.stopPolling();
+        }
+        fragmentLoads.incrementAndGet();
+        return new Fragment(modified, size, configuration.getRawEntries());
+    }
+
+    private static SortedMap<String, File> listFragments(final File directory) {
+        final SortedMap<String, File> result = new TreeMap<String, File>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isFile() && !file.isHidden() && Configurations.isSupported(file)) {
+                    result.put(file.getName(), file);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parsed content of a fragment and the state of its file when it was parsed.
+     */
+    private static final class Fragment {
+        private final long modified;
+        private final long size;
+        private final Map<String, Object> entries;
+
+        private Fragment(final long modified, final long size, final Map<String, Object> entries) {
+            this.modified = modified;
+            this.size = size;
+            this.entries = entries;
+        }
+
+        private boolean isCurrent(final long modified, final long size) {
+            return this.modified == modified && this.size == size;
+        }
+    }
+
+    /**
+     * Modification time and length of a fragment file as seen by one poll.
+     */
+    private static final class FileStamp {
+        private final long modified;
+        private final long size;
+
+        private FileStamp(final long modified, final long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        private boolean matches(final long modified, final long size) {
+            return this.modified == modified && this.size == size;
+        }
+    }
+
+    /**
+     * Runnable used to poll every fragment of the directory with a single task. Changed fragments are parsed before
+     * the lock is taken, so readers are only blocked while keys are merged. A changed fragment is only parsed once
+     * two consecutive polls saw the same modification time and length, and a fragment that failed to parse is not
+     * parsed again until either of them changes.
+     */
+    class DirectoryPoller implements Runnable {
+        private final Map<String, FileStamp> observed = new HashMap<String, FileStamp>();
+        private final Map<String, FileStamp> failed = new HashMap<String, FileStamp>();
+
+        public void run() {
+            final File current = directory;
+            if (current == null) {
+                return;
+            }
+            final Map<String, Fragment> known;
+            lock.lock();
+            try {
+                known = new HashMap<String, Fragment>(fragments);
+            } finally {
+                lock.unlock();
+            }
+            final long now = System.currentTimeMillis();
+            final Map<String, Fragment> changed = new HashMap<String, Fragment>();
+            final SortedMap<String, File> files = listFragments(current);
+            observed.keySet().retainAll(files.keySet());
+            failed.keySet().retainAll(files.keySet());
+            for (final File file : files.values()) {
+                final String name = file.getName();
+                final Fragment fragment = known.get(name);
+                final long modified = file.lastModified();
+                final long size = file.length();
+                if (fragment != null && fragment.isCurrent(modified, size)) {
+                    observed.remove(name);
+                    continue;
+                }
+                final FileStamp previous = observed.put(name, new FileStamp(modified, size));
+                final FileStamp failedStamp = failed.get(name);
+                if (previous == null || !previous.matches(modified, size) || now - modified < getReloadQuietPeriod()) {
+                    log.debug("Not loading fragment {} as it is still being written", file);
+                    continue;
+                }
+                if (failedStamp != null && failedStamp.matches(modified, size)) {
+                    continue;
+                }
+                try {
+                    changed.put(name, parse(file));
+                    failed.remove(name);
+                } catch (RuntimeException e) {
+                    failed.put(name, new FileStamp(modified, size));
+                    log.warn("Unable to load fragment " + file + ", keeping its last loaded content", e);
+                }
+            }
+            final Set<String> removed = new HashSet<String>(known.keySet());
+            removed.removeAll(files.keySet());
+            if (changed.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (directory == current) {
+                    apply(changed, removed);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
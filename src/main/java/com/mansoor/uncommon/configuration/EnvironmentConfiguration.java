@@ -0,0 +1,279 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Snapshot of the environment variables of the process, taken when the configuration is created. Values that are
+ * set change the snapshot only, not the environment.
+ * <p>
+ * Every variable can be read by its name or by its dotted key: {@code DATABASE_URL} is also {@code database.url}.
+ * The dotted keys are indexed when the snapshot is taken, so {@code get} and {@code getNested} resolve either form
+ * with a lookup instead of rewriting the key on every call. A variable whose name is already a dotted key wins over
+ * the dotted key of another variable. Entries, views and key changes report each variable once, under its name.
+ * </p>
+ * <p>
+ * A reload indexes the new snapshot aside and replaces the current one in a single step, readers never see a
+ * partially indexed environment.
+ * </p>
+ * <pre>
+ *      Configuration environment = new EnvironmentConfiguration();
+ *      URI url = environment.getNested(URI.class, "database.url");
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class EnvironmentConfiguration extends PropertyConfiguration {
+    private volatile Variables variables = new Variables();
+
+    /**
+     * Creates a snapshot of the environment that uses {@link DefaultConverterRegistry}
+     */
+    public EnvironmentConfiguration() {
+        this(new DefaultConverterRegistry());
+    }
+
+    /**
+     * Creates a snapshot of the environment that uses the given converter registry
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     */
+    public EnvironmentConfiguration(final ConverterRegistry converterRegistry) {
+        this(converterRegistry, System.getenv());
+    }
+
+    /**
+     * Creates a configuration of the given variables.
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     * @param environment       variable names mapped to their values
+     */
+    protected EnvironmentConfiguration(final ConverterRegistry converterRegistry, final Map<String, String> environment) {
+        super(converterRegistry);
+        Preconditions.checkNull(environment, "environment is null");
+        putAll(environment, properties, variables);
+    }
+
+    /**
+     * Converts a variable name to its dotted key, {@code DATABASE_URL} to {@code database.url}.
+     *
+     * @param name variable name
+     * @return dotted key
+     */
+    public String toKey(final String name) {
+        final String key = variables.nameToKey.get(name);
+        return key != null ? key : name.toLowerCase().replace('_', '.');
+    }
+
+    /**
+     * Converts a dotted key to its variable name, {@code database.url} to {@code DATABASE_URL}.
+     *
+     * @param key dotted key
+     * @return variable name
+     */
+    public String toEnvironmentName(final String key) {
+        final String name = variables.keyToName.get(key);
+        return name != null ? name : key.toUpperCase().replace('.', '_').replace('-', '_');
+    }
+
+    /**
+     * Takes a new snapshot of the environment.
+     */
+    public void reload() {
+        final Properties loaded = createProperties();
+        final Variables indexed = new Variables();
+        putAll(System.getenv(), loaded, indexed);
+        lock.lock();
+        try {
+            final Object before = getContent();
+            replaceConfig(loaded);
+            variables = indexed;
+            contentReloaded(before);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param propertyFile property file
+     * @throws UnsupportedOperationException
+     */
+    public void load(final File propertyFile) {
+        throw new UnsupportedOperationException("Operation not supported on EnvironmentConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param path path of the property file
+     * @throws UnsupportedOperationException
+     */
+    public void load(final String path) {
+        throw new UnsupportedOperationException("Operation not supported on EnvironmentConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param input property stream
+     * @throws UnsupportedOperationException
+     */
+    public void load(final InputStream input) {
+        throw new UnsupportedOperationException("Operation not supported on EnvironmentConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param buffer property buffer
+     * @throws UnsupportedOperationException
+     */
+    public void load(final ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Operation not supported on EnvironmentConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param name resource name
+     * @throws UnsupportedOperationException
+     */
+    public void loadResource(final String name) {
+        throw new UnsupportedOperationException("Operation not supported on EnvironmentConfiguration");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getProperty(final String key) {
+        return key == null ? null : variables.values.get(key);
+    }
+
+    /**
+     * Resolves a dotted key to the name of its variable.
+     *
+     * @param name variable name or dotted key
+     * @return variable name, or the given key if it is not the dotted key of a variable
+     */
+    protected String resolveKey(final String name) {
+        final String key = super.resolveKey(name);
+        final String resolved = key == null ? null : variables.keyToName.get(key);
+        return resolved != null ? resolved : key;
+    }
+
+    /**
+     * Sets the variable in this snapshot, the environment of the process is not changed. The key can be given in
+     * either form.
+     *
+     * @param key   variable name or dotted key
+     * @param value value to set
+     */
+    protected void setProperty(final String key, final Object value) {
+        final Variables current = variables;
+        final String name;
+        if (current.keyToName.containsKey(key)) {
+            name = current.keyToName.get(key);
+        } else if (properties.containsKey(key)) {
+            name = key;
+        } else {
+            name = toEnvironmentName(key);
+        }
+        properties.setProperty(name, value.toString());
+        current.values.put(name, value.toString());
+        index(name, properties, current);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getRawValue(final String key) {
+        return getProperty(resolveKey(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getNestedValue(final String key) {
+        return getProperty(resolveKey(key));
+    }
+
+    /**
+     * Returns every variable under its name.
+     *
+     * @return variable names mapped to their values
+     */
+    protected Map<String, Object> getRawEntries() {
+        return new HashMap<String, Object>(variables.values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        super.clearConfig();
+        variables = new Variables();
+    }
+
+    private static void putAll(final Map<String, String> environment, final Properties target, final Variables index) {
+        final Map<String, String> sorted = new TreeMap<String, String>(environment);
+        for (final Map.Entry<String, String> entry : sorted.entrySet()) {
+            index.values.put(entry.getKey(), entry.getValue());
+            target.setProperty(entry.getKey(), entry.getValue());
+        }
+        for (final String name : sorted.keySet()) {
+            index(name, target, index);
+        }
+    }
+
+    /**
+     * Indexes the dotted key of the variable, unless the key is taken by a variable of that name.
+     */
+    private static void index(final String name, final Properties target, final Variables index) {
+        final String key = name.toLowerCase().replace('_', '.');
+        final String owner = index.keyToName.get(key);
+        if (!key.equals(name) && !target.containsKey(key) && (owner == null || owner.equals(name))) {
+            index.keyToName.put(key, name);
+            index.nameToKey.put(name, key);
+        }
+    }
+
+    /**
+     * Variables of one snapshot and the index between their names and dotted keys. A reload builds a new instance
+     * and publishes it through a volatile field; values set afterwards go to the concurrent maps of the current one.
+     */
+    private static final class Variables {
+        private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+        private final ConcurrentMap<String, String> keyToName = new ConcurrentHashMap<String, String>();
+        private final ConcurrentMap<String, String> nameToKey = new ConcurrentHashMap<String, String>();
+    }
+}
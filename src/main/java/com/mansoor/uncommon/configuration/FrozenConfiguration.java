@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.Converter;
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.Convertors.DoubleConverter;
+import com.mansoor.uncommon.configuration.Convertors.IntegerConverter;
+import com.mansoor.uncommon.configuration.Convertors.LongConverter;
+import com.mansoor.uncommon.configuration.index.MinimalPerfectHash;
+import com.mansoor.uncommon.configuration.store.CopyOnWriteStore;
+
+import java.util.Map;
+
+/**
+ * Read-only configuration returned by {@link BaseConfiguration#freeze()}, for configurations that do not change
+ * after startup.
+ * <p>
+ * Keys are indexed by a {@link MinimalPerfectHash}, so a lookup is one hash of the key, one read of the displacement
+ * table and one read of the dense key and value arrays, without collision chains. Values that are integral or
+ * decimal numbers are stored already converted and are returned without parsing when the default {@code Integer},
+ * {@code Long} or {@code Double} converter is in use.
+ * </p>
+ * <p>
+ * Like other views, a frozen configuration holds the leaf values of the configuration, and writes, loads and
+ * reloads throw {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class FrozenConfiguration extends ConfigurationView {
+    private final MinimalPerfectHash hash;
+    private final String[] keys;
+    private final Object[] values;
+
+    /**
+     * Creates a frozen configuration holding the given leaf entries.
+     *
+     * @param converterRegistry registry used to convert values
+     * @param deliminator       character used to split String values into lists
+     * @param version           generation of the configuration
+     * @param entries           leaf keys mapped to their raw values
+     */
+    protected FrozenConfiguration(final ConverterRegistry converterRegistry, final char deliminator, final long version, final Map<String, Object> entries) {
+        super(converterRegistry, deliminator, version, CopyOnWriteStore.EMPTY);
+        final String[] names = entries.keySet().toArray(new String[entries.size()]);
+        hash = new MinimalPerfectHash(names);
+        keys = new String[names.length];
+        values = new Object[names.length];
+        for (final String name : names) {
+            final int index = hash.index(name);
+            keys[index] = name;
+            values[index] = compact(entries.get(name));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E get(final Class<E> type, final String key) {
+        final Object value = getValue(key);
+        if (value instanceof Number) {
+            final Converter<E> converter = getConverterRegistry().getConverter(type);
+            final Class<?> converterType = converter.getClass();
+            if (value instanceof Long) {
+                final long number = (Long) value;
+                if (converterType == IntegerConverter.class && number == (int) number) {
+                    return (E) Integer.valueOf((int) number);
+                }
+                if (converterType == LongConverter.class) {
+                    return (E) value;
+                }
+            } else if (value instanceof Double && converterType == DoubleConverter.class) {
+                return (E) value;
+            }
+        }
+        return super.get(type, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E getNested(final Class<E> type, final String key) {
+        return get(type, key);
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return key count
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns this configuration, which is already immutable.
+     *
+     * @return this configuration
+     */
+    public ConfigurationView snapshot() {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getValue(final String key) {
+        if (key == null || keys.length == 0) {
+            return null;
+        }
+        final int index = hash.index(key);
+        return key.equals(keys[index]) ? values[index] : null;
+    }
+
+    /**
+     * Replaces number strings whose text is reproduced by {@code toString()} with the converted number.
+     */
+    private static Object compact(final Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        final String text = (String) value;
+        if (text.length() == 0 || text.length() > 24) {
+            return text;
+        }
+        final char first = text.charAt(0);
+        if (first != '-' && (first < '0' || first > '9')) {
+            return text;
+        }
+        try {
+            final Long number = Long.valueOf(text);
+            return number.toString().equals(text) ? number : text;
+        } catch (NumberFormatException e) {
+            try {
+                final Double number = Double.valueOf(text);
+                return number.toString().equals(text) ? number : text;
+            } catch (NumberFormatException ignored) {
+                return text;
+            }
+        }
+    }
+}
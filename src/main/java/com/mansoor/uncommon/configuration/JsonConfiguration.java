@@ -18,7 +18,10 @@ package com.mansoor.uncommon.configuration;
 
 import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
 import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import com.mansoor.uncommon.configuration.util.CompactMap;
+import com.mansoor.uncommon.configuration.util.Compression;
 import com.mansoor.uncommon.configuration.util.Preconditions;
+import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 
 import java.io.*;
@@ -81,39 +84,63 @@ public class JsonConfiguration extends MapBasedConfiguration {
     /**
      * {@inheritDoc}
      */
-    @SuppressWarnings("unchecked")
-    protected void storeConfiguration(final File file) throws IOException {
-        final String value = JSONValue.toJSONString(properties);
-        saveFile(file, value);
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        final Writer out = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+        JSONValue.writeJSONString(properties, out);
+        out.flush();
     }
 
 
+    /**
+     * Creates a compact node whose {@code toString()} is its JSON text, like the {@code JSONObject} it replaces.
+     *
+     * @param capacity expected number of entries
+     * @return node
+     */
+    protected Map<String, Object> createNode(final int capacity) {
+        return new JsonNode(capacity);
+    }
+
     /**
      * {@inheritDoc}
      */
-    @SuppressWarnings("unchecked")
-    protected void loadConfig(final File propertyFile) throws IOException {
-        final Map<String, Object> map = (Map<String, Object>) JSONValue.parse(new FileReader(propertyFile));
-        Preconditions.checkNull(map, "Unable to load Json");
-        properties.putAll(map);
+    protected void loadConfig(final InputStream input) throws IOException {
+        properties.putAll(parse(input));
     }
 
     /**
-     * Save the json configuration to the given file.
+     * Parses the file into a new map of top level entries.
      *
-     * @param file file where the config will be sasved
-     * @param json json String.
+     * @param propertyFile configuration file
+     * @return parsed entries
+     * @throws IOException if parsing fails
      */
-    private void saveFile(final File file, final String json) {
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        final InputStream input = Compression.openInput(propertyFile);
         try {
-            final BufferedWriter out = new BufferedWriter(new FileWriter(file));
-            out.write(json);
-            out.close();
-        } catch (Exception e) {
-            throw new IllegalStateException("unable to save file", e);
+            return new HashMap<String, Object>(parse(input));
+        } finally {
+            input.close();
         }
     }
 
-}
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parse(final InputStream input) throws IOException {
+        final Map<String, Object> map = (Map<String, Object>) JSONValue.parse(new InputStreamReader(input, "UTF-8"));
+        Preconditions.checkNull(map, "Unable to load Json");
+        return compactNodes(map);
+    }
 
+    /**
+     * Compact node printed as JSON.
+     */
+    private static final class JsonNode extends CompactMap {
+        private JsonNode(final int capacity) {
+            super(capacity);
+        }
 
+        public String toString() {
+            return JSONObject.toJSONString(this);
+        }
+    }
+}
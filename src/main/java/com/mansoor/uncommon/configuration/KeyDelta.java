@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The keys that were added, removed or changed between two versions of a configuration. For YAML and JSON the keys
+ * are the nested paths of the leaf values, e.g. {@code development.password.database}.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class KeyDelta {
+    /**
+     * Delta without any changes.
+     */
+    public static final KeyDelta EMPTY = new KeyDelta(Collections.<String>emptySet(), Collections.<String>emptySet(), Collections.<String>emptySet());
+
+    private final Set<String> added;
+    private final Set<String> removed;
+    private final Set<String> changed;
+
+    private KeyDelta(final Set<String> added, final Set<String> removed, final Set<String> changed) {
+        this.added = Collections.unmodifiableSet(added);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.changed = Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Creates a delta from the given keys.
+     *
+     * @param added   keys that did not exist before
+     * @param removed keys that no longer exist
+     * @param changed keys whose value changed
+     * @return delta
+     */
+    public static KeyDelta of(final Set<String> added, final Set<String> removed, final Set<String> changed) {
+        Preconditions.checkNull(added, "added is null");
+        Preconditions.checkNull(removed, "removed is null");
+        Preconditions.checkNull(changed, "changed is null");
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty() ? EMPTY
+                : new KeyDelta(new HashSet<String>(added), new HashSet<String>(removed), new HashSet<String>(changed));
+    }
+
+    /**
+     * Compares two flattened versions of a configuration.
+     *
+     * @param before keys and values before the change
+     * @param after  keys and values after the change
+     * @return delta between the versions
+     */
+    public static KeyDelta diff(final Map<String, ?> before, final Map<String, ?> after) {
+        Preconditions.checkNull(before, "before is null");
+        Preconditions.checkNull(after, "after is null");
+        final Set<String> added = new HashSet<String>();
+        final Set<String> changed = new HashSet<String>();
+        for (final Map.Entry<String, ?> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey())) {
+                added.add(entry.getKey());
+            } else if (!equal(before.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        final Set<String> removed = new HashSet<String>();
+        for (final String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty() ? EMPTY : new KeyDelta(added, removed, changed);
+    }
+
+    /**
+     * Combines this delta with a delta that happened after it.
+     *
+     * @param next later delta
+     * @return delta from the state before this delta to the state after {@code next}
+     */
+    public KeyDelta merge(final KeyDelta next) {
+        Preconditions.checkNull(next, "next is null");
+        if (next.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return next;
+        }
+        final Set<String> mergedAdded = new HashSet<String>(added);
+        final Set<String> mergedRemoved = new HashSet<String>(removed);
+        final Set<String> mergedChanged = new HashSet<String>(changed);
+        for (final String key : next.added) {
+            if (mergedRemoved.remove(key)) {
+                mergedChanged.add(key);
+            } else {
+                mergedAdded.add(key);
+            }
+        }
+        for (final String key : next.removed) {
+            mergedChanged.remove(key);
+            if (!mergedAdded.remove(key)) {
+                mergedRemoved.add(key);
+            }
+        }
+        for (final String key : next.changed) {
+            if (!mergedAdded.contains(key)) {
+                mergedChanged.add(key);
+            }
+        }
+        return new KeyDelta(mergedAdded, mergedRemoved, mergedChanged);
+    }
+
+    /**
+     * Returns the keys that did not exist before.
+     *
+     * @return added keys
+     */
+    public Set<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the keys that no longer exist.
+     *
+     * @return removed keys
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns the keys whose value changed.
+     *
+     * @return changed keys
+     */
+    public Set<String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Returns all added, removed and changed keys.
+     *
+     * @return affected keys
+     */
+    public Set<String> getKeys() {
+        final Set<String> keys = new HashSet<String>(added.size() + removed.size() + changed.size());
+        keys.addAll(added);
+        keys.addAll(removed);
+        keys.addAll(changed);
+        return keys;
+    }
+
+    /**
+     * Returns {@code true} if the given key was added, removed or changed.
+     *
+     * @param key key to check
+     * @return true if the key is affected by this delta
+     */
+    public boolean contains(final String key) {
+        return added.contains(key) || removed.contains(key) || changed.contains(key);
+    }
+
+    /**
+     * Returns {@code true} if nothing changed.
+     *
+     * @return true if the delta is empty
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Returns the number of affected keys.
+     *
+     * @return affected key count
+     */
+    public int size() {
+        return added.size() + removed.size() + changed.size();
+    }
+
+    private static boolean equal(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public String toString() {
+        return "KeyDelta{added=" + added + ", removed=" + removed + ", changed=" + changed + '}';
+    }
+}
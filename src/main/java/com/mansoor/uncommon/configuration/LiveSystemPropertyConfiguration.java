@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link SystemPropertyConfiguration} that reads the live system properties instead of a copy, so a value set with
+ * {@code System.setProperty} is seen by the next read and nothing is copied on creation or reload.
+ * <p>
+ * Values set through this configuration are kept in a local overlay that is read before the system properties and
+ * does not change them. Converted values are cached together with the raw string they were converted from; a cached
+ * value is used only while the live system property is still that string, which costs a single lookup and no copy.
+ * </p>
+ * <p>
+ * Because nothing is copied, changes made with {@code System.setProperty} are not reported to key indexes or
+ * listeners.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class LiveSystemPropertyConfiguration extends SystemPropertyConfiguration {
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, Converted>> converted = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, Converted>>();
+    private long generation;
+
+    /**
+     * Returns an instance that is configured to use
+     * {@link com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry}
+     */
+    public LiveSystemPropertyConfiguration() {
+        super();
+    }
+
+    /**
+     * Returns an instance configured with given Converter Registry
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     */
+    public LiveSystemPropertyConfiguration(final ConverterRegistry converterRegistry) {
+        super(converterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E get(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        final String raw = override != null ? override.toString() : getProperty(key);
+        ConcurrentMap<Class<?>, Converted> byType = raw == null ? null : converted.get(key);
+        final Converted cached = byType == null ? null : byType.get(type);
+        if (cached != null && (cached.raw == raw || cached.raw.equals(raw))) {
+            return (E) cached.value;
+        }
+        final E value;
+        try {
+            value = converterRegistry.getConverter(type).convert(raw);
+        } catch (Exception e) {
+            throw new PropertyConversionException("conversion failed", e);
+        }
+        if (raw == null) {
+            return value;
+        }
+        if (byType == null) {
+            final ConcurrentMap<Class<?>, Converted> created = new ConcurrentHashMap<Class<?>, Converted>(4);
+            byType = converted.putIfAbsent(key, created);
+            if (byType == null) {
+                byType = created;
+            }
+        }
+        byType.put(type, new Converted(raw, value));
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E getNested(final Class<E> type, final String key) {
+        return get(type, key);
+    }
+
+    /**
+     * Nothing is copied, the cached values are dropped.
+     */
+    public void reload() {
+        converted.clear();
+    }
+
+    /**
+     * Copies the live system properties and the local overlay into a new view. Changes made with
+     * {@code System.setProperty} are not tracked, so every call copies again and returns the next version.
+     *
+     * @return read-only view
+     */
+    public ConfigurationView snapshot() {
+        lock.lock();
+        try {
+            return new ConfigurationView(converterRegistry, deliminator, ++generation, loadedStore().apply(getOverrides()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the live system properties with the local overlay applied.
+     *
+     * @return properties
+     */
+    public Properties toProperties() {
+        lock.lock();
+        try {
+            final Properties p = new Properties();
+            p.putAll(System.getProperties());
+            p.putAll(properties);
+            return p;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Properties createProperties() {
+        return new Properties();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getProperty(final String key) {
+        final String value = properties.getProperty(key);
+        return value != null ? value : System.getProperty(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getRawValue(final String key) {
+        return getProperty(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getNestedValue(final String key) {
+        return getProperty(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Map<String, Object> getRawEntries() {
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        for (final Map.Entry<Object, Object> entry : toProperties().entrySet()) {
+            entries.put(entry.getKey().toString(), entry.getValue());
+        }
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        super.clearConfig();
+        converted.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        toProperties().store(output, "");
+    }
+
+    /**
+     * Converted value and the raw string it was converted from.
+     */
+    private static final class Converted {
+        private final String raw;
+        private final Object value;
+
+        private Converted(final String raw, final Object value) {
+            this.raw = raw;
+            this.value = value;
+        }
+    }
+}
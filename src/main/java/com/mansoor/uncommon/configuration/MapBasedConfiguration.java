@@ -21,13 +21,16 @@ import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
 import com.mansoor.uncommon.configuration.functional.FunctionalCollection;
 import com.mansoor.uncommon.configuration.functional.functions.BinaryFunction;
 import com.mansoor.uncommon.configuration.functional.functions.UnaryFunction;
+import com.mansoor.uncommon.configuration.util.CompactMap;
 import com.mansoor.uncommon.configuration.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 /**
@@ -39,7 +42,7 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
     /**
      * Properties map.
      */
-    protected final Map<String, Object> properties;
+    protected volatile Map<String, Object> properties;
     private final static Logger log = LoggerFactory.getLogger(MapBasedConfiguration.class);
 
     /**
@@ -71,6 +74,32 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
         properties.clear();
     }
 
+    /**{@inheritDoc}*/
+    @SuppressWarnings("unchecked")
+    protected void replaceConfig(final Object content) {
+        properties = (Map<String, Object>) content;
+    }
+
+    /**{@inheritDoc}*/
+    protected Object getContent() {
+        return properties;
+    }
+
+    /**{@inheritDoc}*/
+    protected Map<String, Object> getRawEntries() {
+        return new HashMap<String, Object>(properties);
+    }
+
+    /**{@inheritDoc}*/
+    protected Object getRawValue(final String key) {
+        return properties.get(key);
+    }
+
+    /**{@inheritDoc}*/
+    protected boolean isHierarchical() {
+        return true;
+    }
+
     /**{@inheritDoc}*/
     protected Object getNestedValue(final String key) {
         Preconditions.checkBlank(key, "Key is null or blank");
@@ -78,9 +107,9 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
 
         return new FunctionalCollection<String>(keys).foldLeft(properties, new BinaryFunction<String, Object>() {
             public Object apply(final Object seed, final String input) {
-                Object result = seed;
-                if (Preconditions.isNotNull(seed) && seed instanceof HashMap) {
-                    result = ((HashMap) seed).get(input);
+                Object result = null;
+                if (Preconditions.isNotNull(seed) && seed instanceof Map) {
+                    result = ((Map) seed).get(input);
                 }
                 return result;
             }
@@ -108,11 +137,16 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
      *  </pre>
      *
      * @param type type the raw value will be converted to
-     * @param key  key to use to retrieve the value
+     * @param name key to use to retrieve the value
      * @return List of type {@code E}
      * @since {@code 0.1}
      */
-    public <E> List<E> getList(final Class<E> type, final String key) {
+    public <E> List<E> getList(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convertOverrideList(type, override);
+        }
         final Object value = properties.get(key);
         return transformList(type, value);
     }
@@ -141,11 +175,16 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
      *  </pre>
      *
      * @param type type the raw value will be converted to
-     * @param key  nested key to use to retrieve the value
+     * @param name nested key to use to retrieve the value
      * @return List of type {@code E}
      * @since {@code 0.1}
      */
-    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+    public <E> List<E> getNestedList(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convertOverrideList(type, override);
+        }
         final Object nestedValue = getNestedValue(key);
         return transformList(type, nestedValue);
     }
@@ -181,7 +220,7 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
         final List<String> result = transformList(input);
         lock.lock();
         try {
-            setProperty(key, result);
+            putProperty(key, result);
         } finally {
             lock.unlock();
         }
@@ -297,19 +336,7 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
         Preconditions.checkArgument(Preconditions.isNotEmpty(input), "List is null or empty");
         final List<String> keys = Arrays.asList(key.split(NESTED_SEPARATOR));
         final List<String> value = transformList(input);
-        if (keys.size() == 1) {
-            setProperty(keys.get(0), value);
-        } else {
-            final Map<String, Object> innerMap = getInnerMap(properties, keys);
-            lock.lock();
-            try {
-                innerMap.put(keys.get(keys.size() - 1), value);
-            } finally {
-                lock.unlock();
-            }
-        }
-
-
+        putNested(key, keys, value);
     }
 
     /**{@inheritDoc}*/
@@ -327,21 +354,28 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
     private void setNestedStringValue(final String key, final String value) {
         Preconditions.checkBlank(key, "Key is null or blank");
         final List<String> keys = Arrays.asList(key.split(NESTED_SEPARATOR));
-        if (keys.size() == 1) {
-            lock.lock();
-            try {
-                setProperty(key, value);
-            } finally {
-                lock.unlock();
-            }
-        } else {
-            final Map<String, Object> map = getInnerMap(properties, keys);
-            lock.lock();
-            try {
-                map.put(keys.get(keys.size() - 1), value);
-            } finally {
-                lock.unlock();
+        putNested(key, keys, value);
+    }
+
+    /**
+     * Sets the given value using the nested key and updates key indexes.
+     * @param key nested key
+     * @param keys nested key split into its parts
+     * @param value value to be set
+     */
+    private void putNested(final String key, final List<String> keys, final Object value) {
+        lock.lock();
+        try {
+            if (keys.size() == 1) {
+                putProperty(keys.get(0), value);
+            } else {
+                settleReloadDelta();
+                final Object before = tracksKeyChanges() ? getNestedValue(key) : null;
+                getInnerMap(properties, keys).put(keys.get(keys.size() - 1), value);
+                keyChanged(key, before, value);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -362,6 +396,84 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
         return result;
     }
 
+    /**
+     * Replaces the nested maps of loaded entries by compact nodes created with {@link #createNode(int)}, and loaded
+     * keys and values by their canonical instances if string deduplication is enabled. Maps with more than
+     * {@link CompactMap#THRESHOLD} entries are kept and only their values are compacted, unless their keys are
+     * deduplicated.
+     *
+     * @param entries top level entries of a loaded tree
+     * @return compacted entries, the given map itself unless strings are deduplicated
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> compactNodes(final Map<String, Object> entries) {
+        if (!isDeduplicating()) {
+            for (final Map.Entry<String, Object> entry : entries.entrySet()) {
+                entry.setValue(compact(entry.getValue()));
+            }
+            return entries;
+        }
+        final Map<Object, Object> result = new LinkedHashMap<Object, Object>(entries.size() * 2);
+        for (final Map.Entry<?, Object> entry : entries.entrySet()) {
+            final Object key = entry.getKey();
+            result.put(key instanceof String ? deduplicate((String) key) : key, compact(entry.getValue()));
+        }
+        return (Map<String, Object>) (Map<?, ?>) result;
+    }
+
+    /**
+     * Replaces the nested maps of a loaded value by compact nodes, see {@link #compactNodes(Map)}.
+     *
+     * @param value loaded value
+     * @return compacted value
+     */
+    @SuppressWarnings("unchecked")
+    protected Object compact(final Object value) {
+        if (value instanceof String) {
+            return deduplicate((String) value);
+        }
+        if (value instanceof Map) {
+            final Map<Object, Object> node = (Map<Object, Object>) value;
+            if (!hasStringKeys(node) || node.size() > CompactMap.THRESHOLD && !isDeduplicating()) {
+                for (final Map.Entry<Object, Object> entry : node.entrySet()) {
+                    entry.setValue(compact(entry.getValue()));
+                }
+                return node;
+            }
+            final Map<String, Object> compact = createNode(node.size());
+            for (final Map.Entry<Object, Object> entry : node.entrySet()) {
+                compact.put(deduplicate((String) entry.getKey()), compact(entry.getValue()));
+            }
+            return compact;
+        }
+        if (value instanceof List) {
+            final ListIterator<Object> elements = ((List<Object>) value).listIterator();
+            while (elements.hasNext()) {
+                elements.set(compact(elements.next()));
+            }
+        }
+        return value;
+    }
+
+    private static boolean hasStringKeys(final Map<?, ?> node) {
+        for (final Object key : node.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an empty nested node.
+     *
+     * @param capacity expected number of entries
+     * @return node
+     */
+    protected Map<String, Object> createNode(final int capacity) {
+        return new CompactMap(capacity);
+    }
+
     /**
      * Returns the inner most map associated with the given nested key.
      * @param map properties map.
@@ -376,7 +488,7 @@ public abstract class MapBasedConfiguration extends BaseConfiguration {
                 if (seed.containsKey(input)) {
                     result = (Map<String, Object>) seed.get(input);
                 } else {
-                    result = new HashMap<String, Object>();
+                    result = createNode(1);
                     lock.lock();
                     try {
                         seed.put(input, result);
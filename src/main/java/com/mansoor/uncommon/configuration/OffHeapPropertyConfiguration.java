@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.store.OffHeapProperties;
+import com.mansoor.uncommon.configuration.store.OffHeapTable;
+
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PropertyConfiguration} that keeps its keys and values outside the Java heap in an {@link OffHeapTable}.
+ * Strings are stored as UTF-8 and decoded on each read, so very large configurations do not add to garbage collector
+ * marking work. Reads are slower than with a plain {@link Properties} because every value is decoded;
+ * {@link #freeze()} gives an on-heap copy for keys read in tight loops.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class OffHeapPropertyConfiguration extends PropertyConfiguration {
+
+    /**
+     * Returns an instance that is configured to use
+     * {@link com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry}
+     */
+    public OffHeapPropertyConfiguration() {
+        super();
+    }
+
+    /**
+     * Returns an instance configured with given Converter Registry
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     */
+    public OffHeapPropertyConfiguration(final ConverterRegistry converterRegistry) {
+        super(converterRegistry);
+    }
+
+    /**
+     * Returns an instance that is configured to poll configuration file for change
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     * @param pollingRate       polling rate
+     * @param timeUnit          time unit (eg: seconds, minute etc)
+     */
+    public OffHeapPropertyConfiguration(final ConverterRegistry converterRegistry, final long pollingRate, final TimeUnit timeUnit) {
+        super(converterRegistry, pollingRate, timeUnit);
+    }
+
+    /**
+     * Returns an instance that is configured to poll configuration file for change
+     *
+     * @param pollingRate polling rate
+     * @param timeUnit    time unit (eg: seconds, minute etc)
+     */
+    public OffHeapPropertyConfiguration(final long pollingRate, final TimeUnit timeUnit) {
+        super(pollingRate, timeUnit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Properties createProperties() {
+        return new OffHeapProperties();
+    }
+
+    /**
+     * Compares the two off-heap tables in place instead of copying both into heap maps.
+     *
+     * @param before properties before the change
+     * @param after  properties after the change
+     * @return delta between the properties
+     */
+    protected KeyDelta diffContent(final Object before, final Object after) {
+        final Set<String> added = new HashSet<String>();
+        final Set<String> removed = new HashSet<String>();
+        final Set<String> changed = new HashSet<String>();
+        OffHeapTable.diff(((OffHeapProperties) before).getTable(), ((OffHeapProperties) after).getTable(), added, removed, changed);
+        return KeyDelta.of(added, removed, changed);
+    }
+
+    /**
+     * Returns the number of bytes reserved outside the heap for this configuration.
+     *
+     * @return reserved bytes
+     */
+    public long getReservedBytes() {
+        return ((OffHeapProperties) properties).getTable().getReservedBytes();
+    }
+}
@@ -22,14 +22,17 @@ import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
 import com.mansoor.uncommon.configuration.functional.FunctionalCollection;
 import com.mansoor.uncommon.configuration.functional.functions.IndexedBinaryFunction;
 import com.mansoor.uncommon.configuration.transformers.PropertyTransformer;
+import com.mansoor.uncommon.configuration.util.Compression;
 import com.mansoor.uncommon.configuration.util.Preconditions;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -41,7 +44,7 @@ import java.util.concurrent.TimeUnit;
  * @since 2/9/12
  */
 public class PropertyConfiguration extends BaseConfiguration {
-    protected final Properties properties;
+    protected volatile Properties properties;
 
     /**
      * Returns an instance of {@code PropertyConfiguration} that is configured to use
@@ -103,7 +106,12 @@ public class PropertyConfiguration extends BaseConfiguration {
     /**
      * {@inheritDoc}
      */
-    public <E> List<E> getList(final Class<E> type, final String key) {
+    public <E> List<E> getList(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convertOverrideList(type, override);
+        }
         final String property = getProperty(key);
         return splitAndConvert(type, property);
     }
@@ -137,7 +145,12 @@ public class PropertyConfiguration extends BaseConfiguration {
         if (Preconditions.isNotEmpty(values)) {
             final Converter<E> converter = converterRegistry.getConverter((Class<E>) values.get(0).getClass());
             final StringBuilder stringBuilder = convertListToStringBuilder(values, converter);
-            setProperty(key, stringBuilder.toString());
+            lock.lock();
+            try {
+                putProperty(key, stringBuilder.toString());
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -161,7 +174,12 @@ public class PropertyConfiguration extends BaseConfiguration {
     /**
      * {@inheritDoc}
      */
-    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+    public <E> List<E> getNestedList(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convertOverrideList(type, override);
+        }
         final Object nestedValue = getNestedValue(key);
         return splitAndConvert(type, nestedValue != null ? nestedValue.toString() : null);
 
@@ -197,8 +215,52 @@ public class PropertyConfiguration extends BaseConfiguration {
     /**
      * {@inheritDoc}
      */
-    protected void loadConfig(final File propertyFile) throws IOException {
-        properties.load(new FileInputStream(propertyFile));
+    protected void loadConfig(final InputStream input) throws IOException {
+        loadProperties(properties, input);
+    }
+
+    /**
+     * Loads the file into a new {@link Properties} created by {@link #createProperties()}.
+     *
+     * @param propertyFile configuration file
+     * @return loaded properties
+     * @throws IOException if loading fails
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        final Properties loaded = createProperties();
+        final InputStream input = Compression.openInput(propertyFile);
+        try {
+            loadProperties(loaded, input);
+        } finally {
+            input.close();
+        }
+        return loaded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void replaceConfig(final Object content) {
+        properties = (Properties) content;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getContent() {
+        return properties;
+    }
+
+    private void loadProperties(final Properties target, final InputStream input) throws IOException {
+        if (!isDeduplicating()) {
+            target.load(input);
+            return;
+        }
+        final Properties loaded = new Properties();
+        loaded.load(input);
+        for (final Map.Entry<Object, Object> entry : loaded.entrySet()) {
+            target.put(deduplicate((String) entry.getKey()), deduplicate((String) entry.getValue()));
+        }
     }
 
     /**
@@ -208,6 +270,24 @@ public class PropertyConfiguration extends BaseConfiguration {
         properties.clear();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected Map<String, Object> getRawEntries() {
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        for (final Map.Entry<Object, Object> entry : properties.entrySet()) {
+            entries.put(entry.getKey().toString(), entry.getValue());
+        }
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getRawValue(final String key) {
+        return properties.get(key);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -218,8 +298,8 @@ public class PropertyConfiguration extends BaseConfiguration {
     /**
      * {@inheritDoc}
      */
-    protected void storeConfiguration(final File file) throws IOException {
-        properties.store(new FileOutputStream(file), "");
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        properties.store(output, "");
     }
 
     /**
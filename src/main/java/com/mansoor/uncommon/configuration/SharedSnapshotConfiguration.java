@@ -0,0 +1,251 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import com.mansoor.uncommon.configuration.snapshot.SharedHeader;
+import com.mansoor.uncommon.configuration.snapshot.Snapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link SnapshotConfiguration} that reads a snapshot shared by every process on the host. The snapshot data is memory
+ * mapped, so its pages live in the operating system page cache once rather than in the heap of every JVM.
+ * <p>
+ * The configuration is loaded from the header file maintained by a {@link SharedSnapshotPublisher}. Every read first
+ * checks the sequence in the header; when another process has published a new version the reader maps it and
+ * switches to it atomically, reads that are already running complete against the version they started with.
+ * </p>
+ * <pre>
+ *      // writer process
+ *      new SharedSnapshotPublisher(new File("/dev/shm/app.config")).publish(yamlConfiguration);
+ *
+ *      // every reader process
+ *      SharedSnapshotConfiguration configuration = new SharedSnapshotConfiguration();
+ *      configuration.load("/dev/shm/app.config");
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class SharedSnapshotConfiguration extends SnapshotConfiguration {
+    private static final Logger log = LoggerFactory.getLogger(SharedSnapshotConfiguration.class);
+    private volatile SharedHeader header;
+    private volatile File directory;
+    private volatile long sequence = -1;
+    private volatile long version;
+
+    /**
+     * Returns an instance of {@code SharedSnapshotConfiguration} that is configured to use
+     * {@link DefaultConverterRegistry}
+     */
+    public SharedSnapshotConfiguration() {
+        super();
+    }
+
+    /**
+     * Returns an instance of {@code SharedSnapshotConfiguration} configured with given Converter Registry
+     *
+     * @param converterRegistry registry that will be used by this configuration
+     */
+    public SharedSnapshotConfiguration(final ConverterRegistry converterRegistry) {
+        super(converterRegistry);
+    }
+
+    /**
+     * Returns the version of the snapshot reads are currently served from.
+     *
+     * @return published version, {@code 0} if nothing has been published
+     */
+    public long getVersion() {
+        currentSnapshot();
+        return version;
+    }
+
+    /**
+     * Switches to the latest published version before returning the view.
+     *
+     * @return read-only view
+     */
+    public ConfigurationView snapshot() {
+        currentSnapshot();
+        return super.snapshot();
+    }
+
+    /**
+     * Switches to the latest published version before returning the snapshot. The check costs one load of the
+     * sequence, ordered by the volatile read of the header; the fenced read is only made once the sequence moved.
+     *
+     * @return current snapshot
+     */
+    protected Snapshot currentSnapshot() {
+        final SharedHeader current = header;
+        if (current != null && current.peekSequence() != sequence) {
+            refresh(current);
+        }
+        return super.currentSnapshot();
+    }
+
+    /**
+     * Loads the header of a shared snapshot.
+     *
+     * @param propertyFile header file
+     * @throws IOException if the header or the published snapshot can not be mapped
+     */
+    protected void loadConfig(final File propertyFile) throws IOException {
+        final SharedHeader loaded = SharedHeader.open(propertyFile);
+        directory = propertyFile.getAbsoluteFile().getParentFile();
+        sequence = -1;
+        header = loaded;
+        long published = loaded.sequence();
+        while ((published & 1) != 0 || !switchTo(loaded, published)) {
+            Thread.yield();
+            published = loaded.sequence();
+        }
+    }
+
+    /**
+     * Opens the header file and maps the published version without switching to it.
+     *
+     * @param propertyFile header file
+     * @return parsed content
+     * @throws IOException if the header or the published snapshot can not be mapped
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        final SharedHeader loaded = SharedHeader.open(propertyFile);
+        final File parent = propertyFile.getAbsoluteFile().getParentFile();
+        while (true) {
+            final long published = loaded.sequence();
+            if ((published & 1) == 0) {
+                final long publishedVersion = loaded.version();
+                final String name = loaded.dataFileName();
+                if (loaded.sequence() == published) {
+                    try {
+                        final Snapshot mapped = name == null ? Snapshot.empty(super.currentSnapshot().isHierarchical()) : Snapshot.map(new File(parent, name));
+                        return new Object[]{loaded, parent, published, publishedVersion, mapped};
+                    } catch (IOException e) {
+                        if (loaded.sequence() == published) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void replaceConfig(final Object content) {
+        final Object[] parsed = (Object[]) content;
+        super.replaceConfig(parsed[4]);
+        directory = (File) parsed[1];
+        sequence = (Long) parsed[2];
+        version = (Long) parsed[3];
+        header = (SharedHeader) parsed[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        header = null;
+        sequence = -1;
+        version = 0;
+        super.clearConfig();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object saveState() {
+        return new Object[]{super.saveState(), header, directory, sequence, version};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void restoreState(final Object state) {
+        final Object[] saved = (Object[]) state;
+        super.restoreState(saved[0]);
+        header = (SharedHeader) saved[1];
+        directory = (File) saved[2];
+        sequence = (Long) saved[3];
+        version = (Long) saved[4];
+    }
+
+    /**
+     * Maps the latest published version, unless the writer is updating the header or another thread is already
+     * switching versions, in which case reads keep using the current snapshot.
+     */
+    private void refresh(final SharedHeader current) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        long published = -1;
+        try {
+            published = current.sequence();
+            if ((published & 1) == 0 && sequence != published && header == current) {
+                final Snapshot previous = super.currentSnapshot();
+                if (switchTo(current, published) && tracksKeyChanges()) {
+                    keysChanged(diff(previous, super.currentSnapshot()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to map shared snapshot version " + current.version() + ", waiting for the next version", e);
+            sequence = published;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Maps the version published under the given sequence. The publisher deletes old data files, so a data file that
+     * can not be mapped after a newer version was published is treated like a header change and the caller retries
+     * with the newer version.
+     *
+     * @return {@code false} if the header changed while it was being read or mapped
+     */
+    private boolean switchTo(final SharedHeader current, final long published) throws IOException {
+        final long publishedVersion = current.version();
+        final String name = current.dataFileName();
+        if (current.sequence() != published) {
+            return false;
+        }
+        if (name != null) {
+            final Snapshot mapped;
+            try {
+                mapped = Snapshot.map(new File(directory, name));
+            } catch (IOException e) {
+                if (current.sequence() != published) {
+                    return false;
+                }
+                throw e;
+            }
+            setSnapshot(mapped);
+            log.info("Switched to shared snapshot version " + publishedVersion);
+        }
+        version = publishedVersion;
+        sequence = published;
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.snapshot.SharedHeader;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+/**
+ * Publishes configuration snapshots read by {@link SharedSnapshotConfiguration}s in any process on the host.
+ * <p>
+ * Each version is written to its own data file next to the header, {@code <header>.<version>}, before the header is
+ * switched to it, so readers never see a partially written snapshot. Publishing holds an exclusive lock on the header
+ * file, which makes it safe to publish from several processes. Data files two versions old are deleted; processes
+ * that still map them keep a valid mapping, and a reader that finds the data file of the version it is switching to
+ * already deleted reads the header again and switches to the newer version instead.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class SharedSnapshotPublisher {
+    private static final Logger log = LoggerFactory.getLogger(SharedSnapshotPublisher.class);
+    private final File headerFile;
+
+    /**
+     * Creates a publisher for the given header file. The header is created on first publish.
+     *
+     * @param headerFile header file shared with the readers
+     */
+    public SharedSnapshotPublisher(final File headerFile) {
+        Preconditions.checkNull(headerFile, "header file is null");
+        this.headerFile = headerFile.getAbsoluteFile();
+    }
+
+    /**
+     * Publishes the current content of the given configuration as a new version.
+     *
+     * @param configuration configuration to publish
+     * @return published version
+     */
+    public long publish(final BaseConfiguration configuration) {
+        Preconditions.checkNull(configuration, "configuration is null");
+        final RandomAccessFile file;
+        try {
+            file = new RandomAccessFile(headerFile, "rw");
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open " + headerFile, e);
+        }
+        try {
+            final FileLock writerLock = file.getChannel().lock();
+            try {
+                final SharedHeader header = SharedHeader.create(file.getChannel());
+                final long version = header.version() + 1;
+                final String name = headerFile.getName() + "." + version;
+                configuration.saveSnapshot(new File(headerFile.getParentFile(), name).getPath());
+                header.publish(version, name);
+                log.info("Published shared snapshot version " + version);
+                final File expired = new File(headerFile.getParentFile(), headerFile.getName() + "." + (version - 2));
+                if (expired.exists() && !expired.delete()) {
+                    log.warn("Unable to delete expired snapshot " + expired);
+                }
+                return version;
+            } finally {
+                writerLock.release();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to publish snapshot to " + headerFile, e);
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Unable to close " + headerFile, e);
+            }
+        }
+    }
+}
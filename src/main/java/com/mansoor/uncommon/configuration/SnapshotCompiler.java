@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+
+/**
+ * Build step that converts a text configuration to a binary snapshot that {@link SnapshotConfiguration} can use
+ * without parsing.
+ * <pre>
+ *      java com.mansoor.uncommon.configuration.SnapshotCompiler config.yaml config.snapshot
+ * </pre>
+ * The configuration type is chosen by extension: {@code .properties}, {@code .json}, {@code .yaml} or {@code .yml},
+ * optionally followed by a compression extension such as {@code .gz}.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class SnapshotCompiler {
+    private SnapshotCompiler() {
+    }
+
+    public static void main(final String[] args) {
+        if (args.length != 2) {
+            System.err.println("usage: SnapshotCompiler <configuration file> <snapshot file>");
+            System.exit(1);
+        }
+        final File snapshot = compile(new File(args[0]), new File(args[1]));
+        System.out.println("Snapshot written to " + snapshot.getAbsolutePath());
+    }
+
+    /**
+     * Loads the given configuration file and saves it as a snapshot.
+     *
+     * @param source configuration file
+     * @param target snapshot file
+     * @return snapshot file
+     */
+    public static File compile(final File source, final File target) {
+        Preconditions.checkNull(source, "source is null");
+        Preconditions.checkNull(target, "target is null");
+        final BaseConfiguration configuration = Configurations.forFile(source);
+        configuration.load(source);
+        return configuration.saveSnapshot(target.getPath());
+    }
+}
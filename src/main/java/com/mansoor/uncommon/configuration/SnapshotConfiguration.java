@@ -0,0 +1,510 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.*;
+import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+import com.mansoor.uncommon.configuration.functional.FunctionalCollection;
+import com.mansoor.uncommon.configuration.snapshot.Snapshot;
+import com.mansoor.uncommon.configuration.store.ConfigStore;
+import com.mansoor.uncommon.configuration.store.SnapshotStore;
+import com.mansoor.uncommon.configuration.transformers.PropertyTransformer;
+import com.mansoor.uncommon.configuration.util.Compression;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read only configuration backed by a binary {@link Snapshot}. Uncompressed snapshot files are memory mapped and read
+ * in place, so loading one takes the time needed to map the file rather than to parse it. Snapshots are created with
+ * {@link BaseConfiguration#saveSnapshot(String)} or {@link SnapshotCompiler} and behave like the configuration they
+ * were taken from.
+ * <pre>
+ *      Configuration configuration = new SnapshotConfiguration();
+ *      configuration.load("/etc/app/config.snapshot");
+ *      Integer maxConnection = configuration.getNested(Integer.class, "development.maxConnection");
+ * </pre>
+ * Loading a snapshot replaces the previous content. All {@code set} methods throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class SnapshotConfiguration extends BaseConfiguration {
+    private volatile Snapshot snapshot = Snapshot.empty(false);
+
+    /**
+     * Returns an instance of {@code SnapshotConfiguration} that is configured to use
+     * {@link DefaultConverterRegistry}
+     */
+    public SnapshotConfiguration() {
+        super(new DefaultConverterRegistry());
+    }
+
+    /**
+     * Returns an instance of {@code SnapshotConfiguration} configured with given Converter Registry
+     *
+     * @param converterRegistry registry that will be used by this SnapshotConfiguration
+     */
+    public SnapshotConfiguration(final ConverterRegistry converterRegistry) {
+        super(converterRegistry);
+    }
+
+    /**
+     * Returns an instance of {@code SnapshotConfiguration} that is configured to poll the snapshot file for change
+     *
+     * @param converterRegistry registry that will be used by this SnapshotConfiguration
+     * @param pollingRate       polling rate
+     * @param timeUnit          time unit (eg: seconds, minute etc)
+     */
+    public SnapshotConfiguration(final ConverterRegistry converterRegistry, final long pollingRate, final TimeUnit timeUnit) {
+        super(converterRegistry);
+        Preconditions.checkArgument(pollingRate > 0, "Polling rate must be greater than 0");
+        Preconditions.checkNull(timeUnit, "No Time Unit Specified");
+        executorService.scheduleAtFixedRate(new FilePoller(), pollingRate, pollingRate, timeUnit);
+    }
+
+    /**
+     * Returns an instance of {@code SnapshotConfiguration} that is configured to poll the snapshot file for change
+     *
+     * @param pollingRate polling rate
+     * @param timeUnit    time unit (eg: seconds, minute etc)
+     */
+    public SnapshotConfiguration(final long pollingRate, final TimeUnit timeUnit) {
+        this(new DefaultConverterRegistry(), pollingRate, timeUnit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E get(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convert(type, override);
+        }
+        final Converter<E> converter = converterRegistry.getConverter(type);
+        final Snapshot current = currentSnapshot();
+        final int entry = find(current, key, Snapshot.FLAT);
+        final Object primitive = entry < 0 ? null : primitiveValue(converter, current, entry);
+        if (primitive != null) {
+            return (E) primitive;
+        }
+        try {
+            return converter.convert(entry < 0 ? null : current.text(entry));
+        } catch (Exception e) {
+            throw new PropertyConversionException("conversion failed", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E getNested(final Class<E> type, final String name) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convert(type, override);
+        }
+        final Snapshot current = currentSnapshot();
+        if (current.isHierarchical()) {
+            Preconditions.checkBlank(key, "Key is null or blank");
+        }
+        final int entry = find(current, key, Snapshot.NESTED);
+        if (entry < 0) {
+            return null;
+        }
+        final Converter<E> converter = converterRegistry.getConverter(type);
+        final Object primitive = primitiveValue(converter, current, entry);
+        if (primitive != null) {
+            return (E) primitive;
+        }
+        try {
+            return converter.convert(current.text(entry));
+        } catch (Exception e) {
+            throw new PropertyConversionException("conversion failed", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getList(final Class<E> type, final String key) {
+        return getList(type, key, Snapshot.FLAT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+        return getList(type, key, Snapshot.NESTED);
+    }
+
+    /**
+     * Returns the number of entries in the loaded snapshot.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return currentSnapshot().size();
+    }
+
+    /**
+     * Returns the snapshot that reads are served from.
+     *
+     * @return current snapshot
+     */
+    protected Snapshot currentSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot that reads are served from.
+     *
+     * @param snapshot new snapshot
+     */
+    protected void setSnapshot(final Snapshot snapshot) {
+        Preconditions.checkNull(snapshot, "snapshot is null");
+        this.snapshot = snapshot;
+    }
+
+    private <E> List<E> getList(final Class<E> type, final String name, final int flag) {
+        final String key = resolveKey(name);
+        final Object override = getOverride(key);
+        if (override != null) {
+            return convertOverrideList(type, override);
+        }
+        final Snapshot current = currentSnapshot();
+        final int entry = find(current, key, flag);
+        if (entry < 0) {
+            return null;
+        }
+        if (!current.isHierarchical()) {
+            return new FunctionalCollection<String>(current.text(entry).split(new String(new char[]{deliminator})))
+                    .map(new PropertyTransformer<E>(type, converterRegistry)).asList();
+        }
+        final List<String> values = current.list(entry);
+        Preconditions.checkArgument(values != null, "Expecting a List but found " + current.text(entry));
+        return new FunctionalCollection<String>(values).map(new PropertyTransformer<E>(type, converterRegistry)).asList();
+    }
+
+    /**
+     * Finds the entry of the key, a {@code null} key has no entry.
+     */
+    private static int find(final Snapshot current, final String key, final int flag) {
+        return key == null ? -1 : current.find(key, flag);
+    }
+
+    /**
+     * Returns the value of a binary encoded entry without going through its String form, if the default converter
+     * for the requested type is in use.
+     */
+    private Object primitiveValue(final Converter<?> converter, final Snapshot current, final int entry) {
+        final byte tag = current.tag(entry);
+        final Class<?> converterType = converter.getClass();
+        if (tag == Snapshot.LONG) {
+            final long value = current.longValue(entry);
+            if (converterType == IntegerConverter.class && value == (int) value) {
+                return (int) value;
+            }
+            if (converterType == LongConverter.class) {
+                return value;
+            }
+        } else if (tag == Snapshot.DOUBLE && converterType == DoubleConverter.class) {
+            return current.doubleValue(entry);
+        }
+        return null;
+    }
+
+    /**
+     * Maps uncompressed snapshot files instead of reading them.
+     *
+     * @param propertyFile snapshot file
+     * @throws IOException if mapping fails
+     */
+    protected void loadConfig(final File propertyFile) throws IOException {
+        if (Compression.isGzip(propertyFile) || Compression.isDeflate(propertyFile)) {
+            super.loadConfig(propertyFile);
+            return;
+        }
+        snapshot = Snapshot.map(propertyFile);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void loadConfig(final InputStream input) throws IOException {
+        snapshot = read(input);
+    }
+
+    /**
+     * Maps or reads the snapshot file without replacing the current snapshot.
+     *
+     * @param propertyFile snapshot file
+     * @return the new {@link Snapshot}
+     * @throws IOException if mapping or reading fails
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        if (Compression.isGzip(propertyFile) || Compression.isDeflate(propertyFile)) {
+            final InputStream input = Compression.openInput(propertyFile);
+            try {
+                return read(input);
+            } finally {
+                input.close();
+            }
+        }
+        return Snapshot.map(propertyFile);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void replaceConfig(final Object content) {
+        setSnapshot((Snapshot) content);
+    }
+
+    private static Snapshot read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[8192];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return Snapshot.open(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        currentSnapshot().writeTo(output);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getProperty(final String key) {
+        final Snapshot current = currentSnapshot();
+        final int entry = find(current, key, Snapshot.FLAT);
+        return entry < 0 ? null : current.text(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getNestedValue(final String key) {
+        final Snapshot current = currentSnapshot();
+        final int entry = find(current, key, Snapshot.NESTED);
+        return entry < 0 ? null : current.value(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        snapshot = Snapshot.empty(snapshot.isHierarchical());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object saveState() {
+        return snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void restoreState(final Object state) {
+        snapshot = (Snapshot) state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Map<String, Object> getRawEntries() {
+        return currentSnapshot().toMap();
+    }
+
+    /**
+     * Enumerates the leaf entries straight from the snapshot instead of flattening a rebuilt map.
+     *
+     * @return flattened entries
+     */
+    protected Map<String, Object> flattenEntries() {
+        return currentSnapshot().flatten();
+    }
+
+    /**
+     * Reads the first generation in place from the snapshot instead of copying it into a store.
+     *
+     * @return store of the loaded values
+     */
+    protected ConfigStore loadedStore() {
+        return SnapshotStore.of(snapshot);
+    }
+
+    /**
+     * Moves the generation onto the loaded snapshot, so a view never keeps a replaced snapshot alive.
+     *
+     * @param current store of the current generation
+     * @param changes changed keys mapped to their new raw values, {@code null} for removed keys
+     * @return store of the next generation
+     */
+    protected ConfigStore nextStore(final ConfigStore current, final Map<String, Object> changes) {
+        if (current instanceof SnapshotStore && ((SnapshotStore) current).getSnapshot() != snapshot) {
+            return ((SnapshotStore) current).rebase(snapshot, changes);
+        }
+        return super.nextStore(current, changes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object getContent() {
+        return snapshot;
+    }
+
+    /**
+     * Compares the two snapshots in place.
+     *
+     * @param before snapshot before the change
+     * @param after  snapshot after the change
+     * @return delta between the snapshots
+     */
+    protected KeyDelta diffContent(final Object before, final Object after) {
+        return diff((Snapshot) before, (Snapshot) after);
+    }
+
+    /**
+     * Compares the leaves of two snapshots in place, decoding only the keys that were added, removed or changed.
+     *
+     * @param before snapshot before the change
+     * @param after  snapshot after the change
+     * @return delta between the snapshots
+     */
+    protected static KeyDelta diff(final Snapshot before, final Snapshot after) {
+        final Set<String> added = new HashSet<String>();
+        final Set<String> changed = new HashSet<String>();
+        for (int entry = after.first(); entry >= 0; entry = after.next(entry)) {
+            if (after.isLeaf(entry)) {
+                final int previous = before.findLeaf(after, entry);
+                if (previous < 0) {
+                    added.add(after.key(entry));
+                } else if (!before.valueEquals(previous, after, entry)) {
+                    changed.add(after.key(entry));
+                }
+            }
+        }
+        final Set<String> removed = new HashSet<String>();
+        for (int entry = before.first(); entry >= 0; entry = before.next(entry)) {
+            if (before.isLeaf(entry) && after.findLeaf(before, entry) < 0) {
+                removed.add(before.key(entry));
+            }
+        }
+        return KeyDelta.of(added, removed, changed);
+    }
+
+    /**
+     * Returns the value of a single entry without converting the whole snapshot to a map. Only a tree node is rebuilt
+     * from the entries it references.
+     *
+     * @param key flat key
+     * @return raw value or {@code null}
+     */
+    protected Object getRawValue(final String key) {
+        final Snapshot current = currentSnapshot();
+        final int entry = find(current, key, Snapshot.FLAT);
+        if (entry < 0) {
+            return null;
+        }
+        return current.tag(entry) == Snapshot.NODE ? current.node(entry) : current.value(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean isHierarchical() {
+        return currentSnapshot().isHierarchical();
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    protected void setProperty(final String key, final Object value) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setList(final String key, final List<E> input) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setList(final String key, final E... input) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNested(final String key, final E input) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNestedList(final String key, final List<E> input) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public <E> void setNestedList(final String key, final E... input) {
+        throw new UnsupportedOperationException("SnapshotConfiguration is read only");
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
+import com.mansoor.uncommon.configuration.store.HamtStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live view of the keys of a {@link BaseConfiguration} below a prefix, with the prefix stripped, returned by
+ * {@link BaseConfiguration#subset(String)}. Nothing is copied: reads and writes go straight to the parent
+ * configuration, so changes made to either are seen by both. For YAML and JSON the stripped keys are nested paths.
+ * <pre>
+ *     Configuration development = configuration.subset("development");
+ *     String password = development.get(String.class, "password.database");
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class SubsetConfiguration extends Configuration {
+    private final BaseConfiguration parent;
+    private final String prefix;
+
+    /**
+     * Creates a view of the keys below the prefix.
+     *
+     * @param parent configuration the view reads from
+     * @param prefix key prefix, without a trailing dot
+     */
+    protected SubsetConfiguration(final BaseConfiguration parent, final String prefix) {
+        this.parent = parent;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Returns the prefix stripped from the keys of this view.
+     *
+     * @return prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the keys below the prefix, with the prefix stripped. Only the subtree of the prefix is visited.
+     *
+     * @return stripped keys in no particular order
+     */
+    public List<String> getKeys() {
+        final List<String> keys = parent.keyTrie().keys(prefix);
+        final List<String> result = new ArrayList<String>(keys.size());
+        for (final String key : keys) {
+            if (key.length() > prefix.length()) {
+                result.add(key.substring(prefix.length() + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of the keys below the given prefix of this view.
+     *
+     * @param prefix key prefix relative to this view
+     * @return subset view
+     */
+    public SubsetConfiguration subset(final String prefix) {
+        return parent.subset(path(prefix));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E get(final Class<E> type, final String key) {
+        return parent.isHierarchical() ? parent.getNested(type, path(key)) : parent.get(type, path(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getList(final Class<E> type, final String key) {
+        return parent.isHierarchical() ? parent.getNestedList(type, path(key)) : parent.getList(type, path(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> E getNested(final Class<E> type, final String key) {
+        return parent.getNested(type, path(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> List<E> getNestedList(final Class<E> type, final String key) {
+        return parent.getNestedList(type, path(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void set(final String key, final E input) {
+        if (parent.isHierarchical()) {
+            parent.setNested(path(key), input);
+        } else {
+            parent.set(path(key), input);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void setList(final String key, final List<E> input) {
+        if (parent.isHierarchical()) {
+            parent.setNestedList(path(key), input);
+        } else {
+            parent.setList(path(key), input);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void setList(final String key, final E... input) {
+        if (parent.isHierarchical()) {
+            parent.setNestedList(path(key), input);
+        } else {
+            parent.setList(path(key), input);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void setNested(final String key, final E input) {
+        parent.setNested(path(key), input);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void setNestedList(final String key, final List<E> input) {
+        parent.setNestedList(path(key), input);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <E> void setNestedList(final String key, final E... input) {
+        parent.setNestedList(path(key), input);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return parent.getConverterRegistry();
+    }
+
+    /**
+     * Returns an immutable view of the keys below the prefix in the current generation of the parent configuration.
+     *
+     * @return read-only view
+     */
+    public ConfigurationView snapshot() {
+        final ConfigurationView view = parent.snapshot();
+        final String start = prefix + '.';
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        for (final Map.Entry<String, Object> entry : view.getStore().toMap().entrySet()) {
+            if (entry.getKey().startsWith(start)) {
+                entries.put(entry.getKey().substring(start.length()), entry.getValue());
+            }
+        }
+        return new ConfigurationView(parent.getConverterRegistry(), parent.deliminator, view.getVersion(), HamtStore.EMPTY.apply(entries));
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final File file) {
+        throw new UnsupportedOperationException("SubsetConfiguration is a view of its parent");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void load(final String path) {
+        throw new UnsupportedOperationException("SubsetConfiguration is a view of its parent");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void reload() {
+        throw new UnsupportedOperationException("SubsetConfiguration is a view of its parent");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public File save(final String path) {
+        throw new UnsupportedOperationException("SubsetConfiguration is a view of its parent");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void clear() {
+        throw new UnsupportedOperationException("SubsetConfiguration is a view of its parent");
+    }
+
+    private String path(final String key) {
+        return key == null || key.length() == 0 ? prefix : prefix + "." + key;
+    }
+}
@@ -19,6 +19,8 @@ package com.mansoor.uncommon.configuration;
 import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 /**
@@ -65,13 +67,43 @@ public class SystemPropertyConfiguration extends PropertyConfiguration {
         throw new UnsupportedOperationException("Operation not supported on SystemPropertyConfiguration");
     }
 
+    /**
+     * Operation not supported
+     *
+     * @param input input stream
+     * @throws UnsupportedOperationException
+     */
+    public void load(final InputStream input) {
+        throw new UnsupportedOperationException("Operation not supported on SystemPropertyConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param buffer byte buffer
+     * @throws UnsupportedOperationException
+     */
+    public void load(final ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Operation not supported on SystemPropertyConfiguration");
+    }
+
+    /**
+     * Operation not supported
+     *
+     * @param name resource name
+     * @throws UnsupportedOperationException
+     */
+    public void loadResource(final String name) {
+        throw new UnsupportedOperationException("Operation not supported on SystemPropertyConfiguration");
+    }
+
     /**{@inheritDoc}*/
     public void reload() {
         lock.lock();
         try {
-            properties.clear();
-            final Properties p = System.getProperties();
-            properties.putAll(p);
+            final Object before = getContent();
+            replaceConfig(createProperties());
+            contentReloaded(before);
         } finally {
             lock.unlock();
         }
@@ -18,27 +18,61 @@ package com.mansoor.uncommon.configuration;
 
 import com.mansoor.uncommon.configuration.Convertors.ConverterRegistry;
 import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import com.mansoor.uncommon.configuration.util.Compression;
 import com.mansoor.uncommon.configuration.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
  * This class is responsible for accessing and manipulating {@code YAML} configuration.
+ * <p>
+ * A stream containing several {@code ---} separated documents is supported. The first document is streamed into
+ * this configuration and every document is also exposed as a named view through {@link #getDocument(String)}; the
+ * view of the first document is this configuration itself.
+ * A document is named after the comment on its separator line, or after its position in the stream when the
+ * separator has no comment:
+ * <pre>
+ *      --- # development
+ *      database: dev_db
+ *      --- # production
+ *      database: prod_db
  *
+ *      Configuration production = yamlConfiguration.getDocument("production");
+ * </pre>
+ * Only the text of the other documents is kept, their views are parsed the first time they are requested.
+ * </p>
  * @author Muhammad Ashraf
  * @since 3/4/12
  */
 public class YamlConfiguration extends MapBasedConfiguration {
     private static final Logger log = LoggerFactory.getLogger(YamlConfiguration.class);
+    /**
+     * Unparsed text of each document in a multi document stream, keyed by document name. The first document is
+     * loaded into this configuration and has no text.
+     */
+    private final Map<String, String> documentSources = new LinkedHashMap<String, String>();
+    /**
+     * Document views that have been materialized so far.
+     */
+    private final Map<String, YamlConfiguration> documents = new HashMap<String, YamlConfiguration>();
 
     /**
      * Returns an instance of {@code YamlConfiguration} configured with given Converter Registry
@@ -89,19 +123,307 @@ public class YamlConfiguration extends MapBasedConfiguration {
      * {@inheritDoc}
      */
     @SuppressWarnings("unchecked")
-    protected void loadConfig(final File propertyFile) throws IOException {
-        log.debug("loading file '()'" + propertyFile.getPath());
-        final Yaml yaml = new Yaml();
-        final Object data = yaml.load(new FileInputStream(propertyFile));
-        properties.putAll((Map<String, Object>) data);
-        log.debug("File loaded");
+    protected void loadConfig(final InputStream input) throws IOException {
+        final Object[] parsed = parse(input);
+        properties.putAll((Map<String, Object>) parsed[0]);
+        documentSources.putAll((Map<String, String>) parsed[1]);
+    }
+
+    /**
+     * Parses the file into a new map of the first document and the sources of the other documents.
+     *
+     * @param propertyFile configuration file
+     * @return parsed content
+     * @throws IOException if parsing fails
+     */
+    protected Object parseConfig(final File propertyFile) throws IOException {
+        final InputStream input = Compression.openInput(propertyFile);
+        try {
+            return parse(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    protected void replaceConfig(final Object content) {
+        final Object[] parsed = (Object[]) content;
+        super.replaceConfig(parsed[0]);
+        documentSources.clear();
+        documentSources.putAll((Map<String, String>) parsed[1]);
+        documents.clear();
+    }
+
+    /**
+     * Reads a YAML stream into the top level entries of its first document and, for a multi document stream, the
+     * text of every other document keyed by name. The first document is streamed into the YAML loader.
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] parse(final InputStream input) throws IOException {
+        log.debug("loading yaml");
+        final BufferedReader in = new BufferedReader(new UnicodeReader(input));
+        final FirstDocumentReader first = new FirstDocumentReader(in);
+        final Object data = new Yaml().load(first);
+        first.finish();
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        if (data != null) {
+            entries.putAll(compactNodes((Map<String, Object>) data));
+        }
+        final Map<String, String> sources = new LinkedHashMap<String, String>();
+        if (first.hasDocument()) {
+            addDocument(sources, first.label, null);
+        }
+        if (first.separator != null) {
+            splitDocuments(in, first.separator, sources);
+        }
+        log.debug("yaml loaded");
+        return new Object[]{entries, sources.size() > 1 ? sources : Collections.<String, String>emptyMap()};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void clearConfig() {
+        super.clearConfig();
+        documentSources.clear();
+        documents.clear();
     }
 
     /**
      * {@inheritDoc}
      */
-    protected void storeConfiguration(final File file) throws IOException {
-        final Yaml yaml = new Yaml();
-        yaml.dump(properties, new FileWriter(file));
+    protected Object saveState() {
+        return new Object[]{super.saveState(), new LinkedHashMap<String, String>(documentSources)};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    protected void restoreState(final Object state) {
+        final Object[] saved = (Object[]) state;
+        super.restoreState(saved[0]);
+        documentSources.putAll((Map<String, String>) saved[1]);
+    }
+
+    /**
+     * Returns the names of all the documents in the loaded stream, in the order they appear. A stream
+     * containing a single document has no named documents.
+     *
+     * @return document names
+     */
+    public List<String> getDocumentNames() {
+        lock.lock();
+        try {
+            return new ArrayList<String>(documentSources.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a view of the named document. The document is parsed the first time it is requested and the
+     * resulting view is reused until the configuration is reloaded or cleared. The first document is this
+     * configuration.
+     * <pre>
+     *      Configuration staging = yamlConfiguration.getDocument("staging");
+     *      String url = staging.getNested(String.class, "database.url");
+     * </pre>
+     *
+     * @param name document name
+     * @return document view or {@code null} if no document exists with the given name
+     */
+    public Configuration getDocument(final String name) {
+        Preconditions.checkNull(name, "name is null");
+        lock.lock();
+        try {
+            YamlConfiguration document = documents.get(name);
+            if (document == null) {
+                final String source = documentSources.get(name);
+                if (source == null) {
+                    return documentSources.containsKey(name) ? this : null;
+                }
+                log.debug("materializing document '{}'", name);
+                document = new YamlConfiguration(converterRegistry);
+                document.setDeliminator(deliminator);
+                document.properties.putAll(document.compactNodes(parseDocument(source)));
+                documents.put(name, document);
+            }
+            return document;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Parses a single YAML document.
+     *
+     * @param source document text
+     * @return top level map of the document, empty if the document has no content
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseDocument(final String source) {
+        final Object data = new Yaml().load(source);
+        return data == null ? Collections.<String, Object>emptyMap() : (Map<String, Object>) data;
+    }
+
+    /**
+     * Splits the rest of a YAML stream into its documents without parsing them. A document is named after the comment
+     * on its separator line ({@code --- # name}), otherwise after its position in the stream.
+     *
+     * @param in        stream to split
+     * @param separator separator line that starts the first of the remaining documents
+     * @param sources   document text keyed by document name, in stream order
+     * @throws IOException if reading fails
+     */
+    private void splitDocuments(final BufferedReader in, final String separator, final Map<String, String> sources) throws IOException {
+        StringBuilder current = new StringBuilder();
+        String name = null;
+        boolean hasContent = false;
+        String line = separator;
+        do {
+            if (isDocumentStart(line)) {
+                if (hasContent || name != null) {
+                    addDocument(sources, name, current.toString());
+                }
+                final String rest = line.substring(3).trim();
+                name = documentLabel(rest);
+                current = new StringBuilder();
+                hasContent = name == null && rest.length() > 0;
+                if (hasContent) {
+                    current.append(rest).append('\n');
+                }
+            } else if (!line.equals("...")) {
+                current.append(line).append('\n');
+                hasContent |= isContent(line);
+            }
+        } while ((line = in.readLine()) != null);
+        if (hasContent || name != null) {
+            addDocument(sources, name, current.toString());
+        }
+    }
+
+    private void addDocument(final Map<String, String> sources, final String label, final String source) {
+        final String index = String.valueOf(sources.size());
+        String name = label != null ? label : index;
+        if (sources.containsKey(name)) {
+            log.warn("Duplicate YAML document name '" + name + "', using '" + index + "' instead");
+            name = index;
+        }
+        sources.put(name, source);
+    }
+
+    private static boolean isContent(final String line) {
+        final String trimmed = line.trim();
+        return trimmed.length() > 0 && !trimmed.startsWith("#") && !trimmed.startsWith("%");
+    }
+
+    private static boolean isDocumentStart(final String line) {
+        return line.startsWith("---") && (line.length() == 3 || Character.isWhitespace(line.charAt(3)));
+    }
+
+    private static String documentLabel(final String rest) {
+        if (rest.startsWith("#")) {
+            final String label = rest.substring(1).trim();
+            return label.length() > 0 ? label : null;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void storeConfiguration(final OutputStream output) throws IOException {
+        final Writer writer = new OutputStreamWriter(output, "UTF-8");
+        new Yaml().dump(properties, writer);
+        writer.flush();
+    }
+
+    /**
+     * Feeds the first document of a stream to the YAML loader line by line and stops at the separator of the next
+     * document. Blank lines, comments and directives ahead of the first separator are not counted as a document.
+     */
+    private static final class FirstDocumentReader extends Reader {
+        private final BufferedReader in;
+        private final List<String> leading = new ArrayList<String>();
+        private String pending = "";
+        private int position;
+        private boolean hasContent;
+        private boolean done;
+        private String label;
+        private String separator;
+
+        private FirstDocumentReader(final BufferedReader in) {
+            this.in = in;
+        }
+
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            while (position == pending.length()) {
+                final String line = nextLine();
+                if (line == null) {
+                    return -1;
+                }
+                pending = line;
+                position = 0;
+            }
+            final int count = Math.min(length, pending.length() - position);
+            pending.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        public void close() {
+            // the underlying stream is still needed for the remaining documents
+        }
+
+        private boolean hasDocument() {
+            return hasContent || label != null;
+        }
+
+        private void finish() throws IOException {
+            while (nextLine() != null) {
+                // skip what the loader did not consume
+            }
+        }
+
+        private String nextLine() throws IOException {
+            while (!done) {
+                final String line = in.readLine();
+                if (line == null) {
+                    done = true;
+                } else if (isDocumentStart(line)) {
+                    if (hasDocument()) {
+                        separator = line;
+                        done = true;
+                    } else {
+                        final String rest = line.substring(3).trim();
+                        leading.clear();
+                        label = documentLabel(rest);
+                        hasContent = label == null && rest.length() > 0;
+                        if (hasContent) {
+                            return rest + '\n';
+                        }
+                    }
+                } else if (!line.equals("...")) {
+                    if (hasContent) {
+                        return line + '\n';
+                    }
+                    leading.add(line);
+                    if (isContent(line)) {
+                        hasContent = true;
+                        final StringBuilder lines = new StringBuilder();
+                        for (final String held : leading) {
+                            lines.append(held).append('\n');
+                        }
+                        leading.clear();
+                        return lines.toString();
+                    }
+                }
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.event;
+
+import com.mansoor.uncommon.configuration.Configuration;
+import com.mansoor.uncommon.configuration.KeyDelta;
+
+import java.util.EventObject;
+
+/**
+ * Keys of a configuration that changed under the key or prefix of a {@link ConfigChangeListener}.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class ConfigChangeEvent extends EventObject {
+    private static final long serialVersionUID = 1L;
+    private final String prefix;
+    private final transient KeyDelta delta;
+
+    /**
+     * Creates an event.
+     *
+     * @param source configuration that changed
+     * @param prefix key or prefix the listener was registered with
+     * @param delta  changed keys under the prefix
+     */
+    public ConfigChangeEvent(final Configuration source, final String prefix, final KeyDelta delta) {
+        super(source);
+        this.prefix = prefix;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns the configuration that changed.
+     *
+     * @return configuration
+     */
+    public Configuration getConfiguration() {
+        return (Configuration) getSource();
+    }
+
+    /**
+     * Returns the key or prefix the listener was registered with.
+     *
+     * @return key or prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the keys that were added, removed or changed under the prefix.
+     *
+     * @return changed keys
+     */
+    public KeyDelta getDelta() {
+        return delta;
+    }
+
+    public String toString() {
+        return "ConfigChangeEvent{prefix='" + prefix + "', delta=" + delta + '}';
+    }
+}
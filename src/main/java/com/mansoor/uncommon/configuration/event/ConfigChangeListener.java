@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.event;
+
+/**
+ * Receives the keys that changed under the key or prefix it was registered with.
+ * <pre>
+ *     configuration.addListener("database", new ConfigChangeListener() {
+ *         public void configChanged(final ConfigChangeEvent event) {
+ *             pool.reconnect();
+ *         }
+ *     });
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public interface ConfigChangeListener {
+
+    /**
+     * Called on the listener executor, never while the configuration is locked. Changes made while a previous event
+     * was still being handled are combined into a single event.
+     *
+     * @param event changed keys
+     */
+    void configChanged(ConfigChangeEvent event);
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.event;
+
+import com.mansoor.uncommon.configuration.Configuration;
+import com.mansoor.uncommon.configuration.KeyDelta;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Subscriptions of {@link ConfigChangeListener}s to the keys of a configuration.
+ * <p>
+ * Subscriptions are stored in a trie of key segments, so finding the listeners of a changed key costs one step per
+ * segment of the key no matter how many listeners are registered. A listener registered with {@code database} receives
+ * changes to {@code database} and to every key below it, such as {@code database.url}; the empty prefix receives every
+ * change.
+ * </p>
+ * <p>
+ * Events are delivered on an executor with a fixed number of threads and a bounded queue. A listener has at most one
+ * event queued or running: changes that arrive while it is busy are merged into its next event, so a slow listener
+ * neither blocks {@code reload()} nor builds up a backlog. If the executor rejects an event, its changes are kept and
+ * scheduled again with the next published change.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class ListenerRegistry {
+    private static final Logger log = LoggerFactory.getLogger(ListenerRegistry.class);
+    private static final int QUEUE_CAPACITY = 1024;
+    private final Configuration source;
+    private final Node root = new Node();
+    private volatile int count;
+    private final Set<Subscription> rejected = new LinkedHashSet<Subscription>();
+    private Executor executor;
+    private DaemonExecutor ownExecutor;
+    private boolean shutdown;
+
+    /**
+     * Creates a registry for the given configuration.
+     *
+     * @param source configuration the events are reported for
+     */
+    public ListenerRegistry(final Configuration source) {
+        this.source = source;
+    }
+
+    /**
+     * Replaces the executor that delivers events. By default events are delivered one at a time on a daemon thread,
+     * which stops when idle.
+     *
+     * @param executor executor used for delivering events
+     */
+    public synchronized void setExecutor(final Executor executor) {
+        Preconditions.checkNull(executor, "executor is null");
+        this.executor = executor;
+    }
+
+    /**
+     * Stops delivering events and shuts down the default executor. An executor set with
+     * {@link #setExecutor(Executor)} is left running.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        rejected.clear();
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+        }
+    }
+
+    /**
+     * Registers a listener for a key and every key below it.
+     *
+     * @param prefix   key or prefix, the empty string subscribes to every key
+     * @param listener listener to notify
+     */
+    public synchronized void add(final String prefix, final ConfigChangeListener listener) {
+        Preconditions.checkNull(prefix, "prefix is null");
+        Preconditions.checkNull(listener, "listener is null");
+        Node node = root;
+        for (final String segment : segments(prefix)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.subscriptions.add(new Subscription(prefix, listener));
+        count++;
+    }
+
+    /**
+     * Unregisters a listener added with {@link #add(String, ConfigChangeListener)}.
+     *
+     * @param prefix   key or prefix the listener was registered with
+     * @param listener listener to remove
+     * @return true if the listener was registered
+     */
+    public synchronized boolean remove(final String prefix, final ConfigChangeListener listener) {
+        Preconditions.checkNull(prefix, "prefix is null");
+        final List<Node> path = new ArrayList<Node>();
+        Node node = root;
+        final List<String> segments = segments(prefix);
+        for (final String segment : segments) {
+            path.add(node);
+            node = node.children.get(segment);
+            if (node == null) {
+                return false;
+            }
+        }
+        boolean removed = false;
+        for (final Iterator<Subscription> iterator = node.subscriptions.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().listener == listener) {
+                iterator.remove();
+                removed = true;
+                count--;
+                break;
+            }
+        }
+        for (int i = segments.size() - 1; i >= 0 && node.isEmpty(); i--) {
+            path.get(i).children.remove(segments.get(i));
+            node = path.get(i);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns {@code true} if no listener is registered.
+     *
+     * @return true if there are no listeners
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Queues an event for every listener registered for one of the changed keys.
+     *
+     * @param delta changed keys
+     */
+    public synchronized void publish(final KeyDelta delta) {
+        if (count == 0 || delta.isEmpty() || shutdown) {
+            return;
+        }
+        final Map<Subscription, List<Set<String>>> matches = new LinkedHashMap<Subscription, List<Set<String>>>();
+        collect(delta.getAdded(), 0, matches);
+        collect(delta.getRemoved(), 1, matches);
+        collect(delta.getChanged(), 2, matches);
+        final List<Subscription> ready = new ArrayList<Subscription>(rejected);
+        rejected.clear();
+        for (final Map.Entry<Subscription, List<Set<String>>> match : matches.entrySet()) {
+            final List<Set<String>> keys = match.getValue();
+            final Subscription subscription = match.getKey();
+            if (subscription.offer(KeyDelta.of(keys.get(0), keys.get(1), keys.get(2)))) {
+                ready.add(subscription);
+            }
+        }
+        for (final Subscription subscription : ready) {
+            schedule(subscription);
+        }
+    }
+
+    /**
+     * Hands a subscription to the executor. If the executor rejects it, its changes stay pending and it is scheduled
+     * again by the next {@link #publish(KeyDelta)}.
+     */
+    private void schedule(final Subscription subscription) {
+        try {
+            executor().execute(subscription);
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to notify listener for '" + subscription.prefix + "', retrying on the next change", e);
+            rejected.add(subscription);
+        }
+    }
+
+    private void collect(final Set<String> keys, final int kind, final Map<Subscription, List<Set<String>>> matches) {
+        for (final String key : keys) {
+            Node node = root;
+            add(node, key, kind, matches);
+            for (final String segment : segments(key)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                add(node, key, kind, matches);
+            }
+        }
+    }
+
+    private void add(final Node node, final String key, final int kind, final Map<Subscription, List<Set<String>>> matches) {
+        for (final Subscription subscription : node.subscriptions) {
+            List<Set<String>> keys = matches.get(subscription);
+            if (keys == null) {
+                keys = new ArrayList<Set<String>>(3);
+                for (int i = 0; i < 3; i++) {
+                    keys.add(new HashSet<String>());
+                }
+                matches.put(subscription, keys);
+            }
+            keys.get(kind).add(key);
+        }
+    }
+
+    private Executor executor() {
+        if (executor == null) {
+            ownExecutor = new DaemonExecutor();
+            executor = ownExecutor;
+        }
+        return executor;
+    }
+
+    private static List<String> segments(final String key) {
+        final List<String> segments = new ArrayList<String>();
+        if (key.length() > 0) {
+            int start = 0;
+            int dot = key.indexOf('.');
+            while (dot >= 0) {
+                segments.add(key.substring(start, dot));
+                start = dot + 1;
+                dot = key.indexOf('.', start);
+            }
+            segments.add(key.substring(start));
+        }
+        return segments;
+    }
+
+    /**
+     * Trie node holding the subscriptions of one key prefix.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final List<Subscription> subscriptions = new ArrayList<Subscription>(1);
+
+        private boolean isEmpty() {
+            return children.isEmpty() && subscriptions.isEmpty();
+        }
+    }
+
+    /**
+     * A registered listener and the changes it has not received yet.
+     */
+    private final class Subscription implements Runnable {
+        private final String prefix;
+        private final ConfigChangeListener listener;
+        private KeyDelta pending = KeyDelta.EMPTY;
+        private boolean scheduled;
+
+        private Subscription(final String prefix, final ConfigChangeListener listener) {
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+
+        /**
+         * Adds changes to the pending event.
+         *
+         * @return true if the subscription must be scheduled
+         */
+        private synchronized boolean offer(final KeyDelta delta) {
+            pending = pending.merge(delta);
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        /**
+         * Removes the pending changes, the subscription is unscheduled once there are none left.
+         */
+        private synchronized KeyDelta take() {
+            final KeyDelta delta = pending;
+            pending = KeyDelta.EMPTY;
+            scheduled = !delta.isEmpty();
+            return delta;
+        }
+
+        public void run() {
+            for (KeyDelta delta = take(); !delta.isEmpty(); delta = take()) {
+                try {
+                    listener.configChanged(new ConfigChangeEvent(source, prefix, delta));
+                } catch (RuntimeException e) {
+                    log.warn("Listener for '" + prefix + "' failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Default executor. Runs tasks one at a time on a daemon thread that is started when a task arrives and stops
+     * once no task is left; at most {@link #QUEUE_CAPACITY} tasks wait.
+     */
+    private static final class DaemonExecutor implements Executor, Runnable {
+        private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+        private boolean running;
+        private boolean shutdown;
+
+        public synchronized void execute(final Runnable task) {
+            if (shutdown || tasks.size() >= QUEUE_CAPACITY) {
+                throw new RejectedExecutionException(shutdown ? "Executor is shut down" : "Too many queued events");
+            }
+            tasks.add(task);
+            if (!running) {
+                final Thread thread = new Thread(this, "configuration-listener");
+                thread.setDaemon(true);
+                thread.start();
+                running = true;
+            }
+        }
+
+        public void run() {
+            for (Runnable task = next(); task != null; task = next()) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Event delivery failed", e);
+                }
+            }
+        }
+
+        /**
+         * Rejects new tasks; queued tasks are still run.
+         */
+        private synchronized void shutdown() {
+            shutdown = true;
+        }
+
+        private synchronized Runnable next() {
+            final Runnable task = tasks.poll();
+            running = task != null;
+            return task;
+        }
+    }
+}
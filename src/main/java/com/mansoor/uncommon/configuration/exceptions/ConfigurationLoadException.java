@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.exceptions;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exception thrown when one or more configurations loaded together fail to load
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class ConfigurationLoadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final Map<File, Throwable> failures;
+
+    public ConfigurationLoadException(final Map<File, Throwable> failures) {
+        super(message(failures), failures.isEmpty() ? null : failures.values().iterator().next());
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<File, Throwable>(failures));
+    }
+
+    /**
+     * Returns every file that failed to load mapped to the reason it failed.
+     *
+     * @return failed files
+     */
+    public Map<File, Throwable> getFailures() {
+        return failures;
+    }
+
+    private static String message(final Map<File, Throwable> failures) {
+        final StringBuilder builder = new StringBuilder("Unable to load ").append(failures.size()).append(" configuration(s):");
+        for (final Map.Entry<File, Throwable> failure : failures.entrySet()) {
+            builder.append("\n  ").append(failure.getKey()).append(": ").append(failure.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings. {@link #mightContain(String)} never returns {@code false} for a string that was added, and
+ * returns {@code true} for a string that was not added with roughly the probability the filter was sized for.
+ * <p>
+ * Each string is hashed twice, with {@code String.hashCode()} and with FNV-1a, and the two hashes are combined to
+ * choose the bits. The bits are kept in an {@code AtomicLongArray}, so a string added while other threads check the
+ * filter is never missed by a check that starts after {@link #put(String)} returned.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    private volatile int size;
+
+    /**
+     * Creates a filter sized for the given number of strings and false positive probability.
+     *
+     * @param expectedInsertions number of strings the filter is sized for
+     * @param falsePositiveRate  false positive probability once {@code expectedInsertions} strings are added
+     */
+    public BloomFilter(final int expectedInsertions, final double falsePositiveRate) {
+        Preconditions.checkArgument(expectedInsertions >= 0, "expectedInsertions is negative");
+        Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+        final int expected = Math.max(expectedInsertions, 16);
+        final long optimalBits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bitCount = (int) Math.min(Math.max(optimalBits, 64L), Integer.MAX_VALUE - 63);
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        bits = new AtomicLongArray((bitCount + 63) >>> 6);
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value string to add
+     */
+    public void put(final String value) {
+        final int h1 = value.hashCode();
+        final int h2 = fnv(value);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            final int bit = index(h1 + i * h2);
+            long word = bits.get(bit >>> 6);
+            while ((word & (1L << bit)) == 0) {
+                if (bits.compareAndSet(bit >>> 6, word, word | (1L << bit))) {
+                    changed = true;
+                    break;
+                }
+                word = bits.get(bit >>> 6);
+            }
+        }
+        if (changed) {
+            size++;
+        }
+    }
+
+    /**
+     * Returns {@code false} if the string was definitely not added.
+     *
+     * @param value string to check
+     * @return true if the string might have been added
+     */
+    public boolean mightContain(final String value) {
+        final int h1 = value.hashCode();
+        final int h2 = fnv(value);
+        for (int i = 0; i < hashCount; i++) {
+            final int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of strings added, not counting strings that were already contained.
+     *
+     * @return approximate number of distinct strings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bits of the filter.
+     *
+     * @return bit count
+     */
+    public int bitSize() {
+        return bitCount;
+    }
+
+    /**
+     * Returns the false positive probability expected for the strings added so far.
+     *
+     * @return expected false positive probability
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * size / bitCount), hashCount);
+    }
+
+    private int index(final int hash) {
+        return (hash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    private static int fnv(final String value) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash | 1;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BloomFilter} of the keys of a configuration, used to skip a configuration that definitely does not contain
+ * a key. For hierarchical configurations the nested nodes above every leaf are added as well, so both
+ * {@code development} and {@code development.url} are found.
+ * <p>
+ * Added keys are put in the filter as they change. Removed keys can not be taken out of a Bloom filter, they only
+ * cause false positives, so the filter is rebuilt by its configuration once too many keys were removed or more keys
+ * were added than the filter was sized for.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class KeyFilter implements KeyIndex {
+    private static final int MINIMUM_CAPACITY = 64;
+    private final double falsePositiveRate;
+    private final boolean hierarchical;
+    private volatile BloomFilter filter;
+    private int capacity;
+    private int removed;
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param falsePositiveRate target false positive probability
+     * @param hierarchical      whether the nested nodes above each key are added
+     */
+    public KeyFilter(final double falsePositiveRate, final boolean hierarchical) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.hierarchical = hierarchical;
+        clear();
+    }
+
+    /**
+     * Returns {@code false} if the configuration definitely does not contain the key.
+     *
+     * @param key flat or nested key
+     * @return true if the configuration might contain the key
+     */
+    public boolean mightContain(final String key) {
+        final boolean result = filter.mightContain(key);
+        if (!result) {
+            negatives.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Records that {@link #mightContain(String)} returned {@code true} for a key the configuration did not contain.
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    /**
+     * Returns the measured false positive rate: false positives recorded by callers divided by all lookups of keys
+     * that were not contained.
+     *
+     * @return false positive rate, 0 if no missing key was looked up
+     */
+    public double getFalsePositiveRate() {
+        final long positives = falsePositives.get();
+        final long total = positives + negatives.get();
+        return total == 0 ? 0 : (double) positives / total;
+    }
+
+    /**
+     * Returns the false positive probability expected from the size of the filter.
+     *
+     * @return expected false positive rate
+     */
+    public double getExpectedFalsePositiveRate() {
+        return filter.expectedFalsePositiveRate();
+    }
+
+    /**
+     * Returns the false positive rate the filter is sized for.
+     *
+     * @return target false positive rate
+     */
+    public double getTargetFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Returns {@code true} if the nested nodes above each key are added.
+     *
+     * @return true for hierarchical configurations
+     */
+    public boolean isHierarchical() {
+        return hierarchical;
+    }
+
+    /**
+     * Returns the number of bits used by the filter.
+     *
+     * @return bit count
+     */
+    public int getBitSize() {
+        return filter.bitSize();
+    }
+
+    /**
+     * Returns {@code true} if the filter should be rebuilt from the keys of the configuration.
+     *
+     * @return true if too many keys were removed or added
+     */
+    public boolean isStale() {
+        final int size = filter.size();
+        return size > capacity || removed > Math.max(MINIMUM_CAPACITY, size) / 4;
+    }
+
+    /**
+     * Replaces the filter with one sized for, and containing, the given keys.
+     *
+     * @param keys every key of the configuration
+     */
+    public void rebuild(final Collection<String> keys) {
+        final Set<String> entries = new HashSet<String>(keys);
+        if (hierarchical) {
+            for (final String key : keys) {
+                String parent = KeyPaths.parent(key);
+                while (parent != null && entries.add(parent)) {
+                    parent = KeyPaths.parent(parent);
+                }
+            }
+        }
+        final int newCapacity = Math.max(MINIMUM_CAPACITY, entries.size() * 2);
+        final BloomFilter rebuilt = new BloomFilter(newCapacity, falsePositiveRate);
+        for (final String entry : entries) {
+            rebuilt.put(entry);
+        }
+        capacity = newCapacity;
+        removed = 0;
+        filter = rebuilt;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(final KeyDelta delta) {
+        for (final String key : delta.getAdded()) {
+            add(filter, key);
+        }
+        removed += delta.getRemoved().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        capacity = MINIMUM_CAPACITY;
+        removed = 0;
+        filter = new BloomFilter(capacity, falsePositiveRate);
+    }
+
+    private void add(final BloomFilter target, final String key) {
+        target.put(key);
+        if (hierarchical) {
+            for (String parent = KeyPaths.parent(key); parent != null; parent = KeyPaths.parent(parent)) {
+                target.put(parent);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+
+/**
+ * State derived from the keys of a configuration, such as caches and lookup indexes. A {@code KeyIndex} registered
+ * with a {@link com.mansoor.uncommon.configuration.BaseConfiguration} is updated synchronously, while the
+ * configuration lock is held, every time keys are loaded, set, reloaded or cleared.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public interface KeyIndex {
+
+    /**
+     * Applies a change to the keys of the configuration.
+     *
+     * @param delta keys that were added, removed or changed
+     */
+    void update(KeyDelta delta);
+
+    /**
+     * Called when every key has been removed from the configuration.
+     */
+    void clear();
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Trie of the keys of a configuration, split into segments at each dot. Listing the keys under a prefix walks only
+ * the subtree of the prefix, so it costs time proportional to the number of keys found rather than to the size of the
+ * configuration.
+ * <p>
+ * Updates are made under the configuration lock; lookups may run concurrently with them and see each key either
+ * before or after the update.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class KeyTrie implements KeyIndex {
+    private volatile Node root = new Node();
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(final KeyDelta delta) {
+        for (final String key : delta.getAdded()) {
+            add(key);
+        }
+        for (final String key : delta.getRemoved()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        root = new Node();
+    }
+
+    /**
+     * Adds a key to the trie.
+     *
+     * @param key key to add
+     */
+    public void add(final String key) {
+        Node node = root;
+        int start = 0;
+        for (int dot = key.indexOf('.'); dot >= 0; dot = key.indexOf('.', start)) {
+            node = node.child(key.substring(start, dot));
+            start = dot + 1;
+        }
+        node.child(key.substring(start)).key = key;
+    }
+
+    /**
+     * Removes a key from the trie, along with the nodes that no longer lead to a key.
+     *
+     * @param key key to remove
+     */
+    public void remove(final String key) {
+        remove(root, key, 0);
+    }
+
+    /**
+     * Returns {@code true} if the trie holds the key.
+     *
+     * @param key key to check
+     * @return true if present
+     */
+    public boolean contains(final String key) {
+        final Node node = find(key);
+        return node != null && node.key != null;
+    }
+
+    /**
+     * Returns every key equal to the prefix or below it, {@code development.port} and
+     * {@code development.password.database} for {@code development}. An empty prefix returns every key.
+     *
+     * @param prefix key prefix, without a trailing dot
+     * @return matching keys in no particular order
+     */
+    public List<String> keys(final String prefix) {
+        final List<String> result = new ArrayList<String>();
+        final Node node = prefix.length() == 0 ? root : find(prefix);
+        if (node != null) {
+            collect(node, result);
+        }
+        return result;
+    }
+
+    private Node find(final String key) {
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            final int dot = key.indexOf('.', start);
+            if (dot < 0) {
+                return node.children.get(key.substring(start));
+            }
+            node = node.children.get(key.substring(start, dot));
+            start = dot + 1;
+        }
+        return null;
+    }
+
+    private static boolean remove(final Node node, final String key, final int start) {
+        final int dot = key.indexOf('.', start);
+        final String segment = dot < 0 ? key.substring(start) : key.substring(start, dot);
+        final Node child = node.children.get(segment);
+        if (child == null) {
+            return false;
+        }
+        if (dot < 0) {
+            child.key = null;
+        } else if (!remove(child, key, dot + 1)) {
+            return false;
+        }
+        if (child.key == null && child.children.isEmpty()) {
+            node.children.remove(segment, child);
+            return true;
+        }
+        return false;
+    }
+
+    private static void collect(final Node node, final List<String> result) {
+        final String key = node.key;
+        if (key != null) {
+            result.add(key);
+        }
+        for (final Map.Entry<String, Node> child : node.children.entrySet()) {
+            collect(child.getValue(), result);
+        }
+    }
+
+    private static final class Node {
+        private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>(4);
+        private volatile String key;
+
+        private Node child(final String segment) {
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+/**
+ * Minimal perfect hash of a fixed set of strings, built with the hash, displace and compress (CHD) scheme. Each of
+ * the {@code n} strings maps to a distinct index in {@code [0, n)}, computed from one 64 bit hash of the string and
+ * one displacement read from a table of roughly {@code n / 4} entries. Strings that are not in the set map to an
+ * arbitrary index, so callers compare the string stored at the index.
+ * <p>
+ * Strings are spread over buckets that are placed largest first: for each bucket the smallest displacement that
+ * sends all of its strings to free indexes is recorded. Buckets holding a single string record the free index
+ * directly.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class MinimalPerfectHash {
+    private static final int BUCKET_SIZE = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+    private final int size;
+    private final int[] displacements;
+    private final long seed;
+
+    /**
+     * Builds the hash of the given distinct strings.
+     *
+     * @param keys distinct strings
+     * @throws IllegalArgumentException if the strings are not distinct
+     */
+    public MinimalPerfectHash(final String[] keys) {
+        Preconditions.checkNull(keys, "keys is null");
+        size = keys.length;
+        displacements = new int[Math.max(1, (size + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+        long candidate = 0x9E3779B97F4A7C15L;
+        int attempts = 0;
+        while (!build(keys, candidate)) {
+            Preconditions.checkArgument(++attempts < 16, "keys are not distinct");
+            candidate = mix(candidate + attempts);
+        }
+        seed = candidate;
+    }
+
+    /**
+     * Returns the index of the string.
+     *
+     * @param key string
+     * @return index in {@code [0, size)}, unique for strings of the set
+     */
+    public int index(final String key) {
+        final long hash = hash(key, seed);
+        final int displacement = displacements[bucket(hash)];
+        return displacement < 0 ? -displacement - 1 : slot(hash, displacement);
+    }
+
+    /**
+     * Returns the number of strings in the set.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries in the displacement table.
+     *
+     * @return table length
+     */
+    public int getDisplacementCount() {
+        return displacements.length;
+    }
+
+    private boolean build(final String[] keys, final long candidate) {
+        final int buckets = displacements.length;
+        final long[] hashes = new long[size];
+        final int[] bucketSizes = new int[buckets];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = hash(keys[i], candidate);
+            bucketSizes[bucket(hashes[i])]++;
+        }
+        // group key positions by bucket, buckets ordered by decreasing size
+        final int[] bucketStart = new int[buckets + 1];
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] = bucketStart[b] + bucketSizes[b];
+        }
+        final int[] members = new int[size];
+        final int[] filled = new int[buckets];
+        for (int i = 0; i < size; i++) {
+            final int b = bucket(hashes[i]);
+            members[bucketStart[b] + filled[b]++] = i;
+        }
+        int largest = 0;
+        for (final int bucketSize : bucketSizes) {
+            largest = Math.max(largest, bucketSize);
+        }
+        final int[] sizeStart = new int[largest + 2];
+        for (final int bucketSize : bucketSizes) {
+            sizeStart[largest - bucketSize + 1]++;
+        }
+        for (int s = 1; s < sizeStart.length; s++) {
+            sizeStart[s] += sizeStart[s - 1];
+        }
+        final int[] order = new int[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[sizeStart[largest - bucketSizes[b]]++] = b;
+        }
+
+        final boolean[] taken = new boolean[size];
+        final int[] slots = new int[largest];
+        int free = 0;
+        for (final int b : order) {
+            final int count = bucketSizes[b];
+            if (count == 0) {
+                displacements[b] = 0;
+            } else if (count == 1) {
+                while (taken[free]) {
+                    free++;
+                }
+                taken[free] = true;
+                displacements[b] = -free - 1;
+            } else if (!place(hashes, members, bucketStart[b], count, taken, slots, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the smallest displacement that sends every string of a bucket to a free index.
+     */
+    private boolean place(final long[] hashes, final int[] members, final int start, final int count, final boolean[] taken, final int[] slots, final int bucket) {
+        for (int displacement = 0; displacement < MAX_DISPLACEMENT; displacement++) {
+            boolean placed = true;
+            for (int i = 0; i < count && placed; i++) {
+                final int slot = slot(hashes[members[start + i]], displacement);
+                placed = !taken[slot];
+                for (int j = 0; j < i && placed; j++) {
+                    placed = slots[j] != slot;
+                }
+                slots[i] = slot;
+            }
+            if (placed) {
+                for (int i = 0; i < count; i++) {
+                    taken[slots[i]] = true;
+                }
+                displacements[bucket] = displacement;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int bucket(final long hash) {
+        return (int) ((hash >>> 1) % displacements.length);
+    }
+
+    private int slot(final long hash, final int displacement) {
+        final long mixed = mix(hash ^ 0xC2B2AE3D27D4EB4FL);
+        final long first = mixed & 0xFFFFFFFFL;
+        final long second = (mixed >>> 32) | 1L;
+        return (int) ((first + displacement * second) % size);
+    }
+
+    private static long hash(final String key, final long seed) {
+        long hash = seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the keys of a configuration by their relaxed form, so that {@code db.maxPool}, {@code DB_MAX_POOL} and
+ * {@code db.max-pool} all find the same key. The relaxed form of a key is the key in lower case with every
+ * underscore, dash and camel case hump turned into a dot, so segment boundaries still count: {@code db.maxPool} and
+ * {@code DB_MAX_POOL} share the form {@code db.max.pool}, while {@code a.bc} and {@code ab.c} do not conflict.
+ * <p>
+ * Keys are normalized once, when they are added. The key a requested name resolves to is cached until the keys of the
+ * configuration change, so resolving a name that was seen before is a single hash lookup; once the cache is full an
+ * arbitrary cached name is evicted for each new one. Keys with the same relaxed
+ * form are reported as conflicts when they are added; a name that matches a conflicting key exactly resolves to that
+ * key, any other name resolves to the first conflicting key in sorted order.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class RelaxedKeyIndex implements KeyIndex {
+    private static final int MAX_RESOLVED = 16384;
+    private static final Logger log = LoggerFactory.getLogger(RelaxedKeyIndex.class);
+    private final ConcurrentMap<String, Object> keys = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentMap<String, String> resolved = new ConcurrentHashMap<String, String>();
+    private volatile long generation;
+
+    /**
+     * Returns the relaxed form of a key.
+     *
+     * @param key key in any style
+     * @return lower case key with its segments separated by single dots
+     */
+    public static String normalize(final String key) {
+        final StringBuilder result = new StringBuilder(key.length() + 4);
+        char previous = '.';
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            final boolean separator = c == '.' || c == '_' || c == '-';
+            final boolean hump = Character.isUpperCase(c) && (Character.isLowerCase(previous) || Character.isDigit(previous));
+            if ((separator || hump) && result.length() > 0 && result.charAt(result.length() - 1) != '.') {
+                result.append('.');
+            }
+            if (!separator) {
+                result.append(c);
+            }
+            previous = separator ? '.' : c;
+        }
+        return result.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Returns the key of the configuration the name refers to.
+     *
+     * @param name key in any style
+     * @return matching key, or {@code name} itself if no key matches
+     */
+    @SuppressWarnings("unchecked")
+    public String resolve(final String name) {
+        final String cached = resolved.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        final long current = generation;
+        final Object match = keys.get(normalize(name));
+        final String key;
+        if (match == null) {
+            key = name;
+        } else if (match instanceof String) {
+            key = (String) match;
+        } else {
+            final SortedSet<String> conflicting = (SortedSet<String>) match;
+            key = conflicting.contains(name) ? name : conflicting.first();
+        }
+        if (resolved.size() >= MAX_RESOLVED) {
+            final Iterator<String> names = resolved.keySet().iterator();
+            if (names.hasNext()) {
+                names.next();
+                names.remove();
+            }
+        }
+        resolved.put(name, key);
+        if (current != generation) {
+            resolved.remove(name);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the keys that share a relaxed form, keyed by that form.
+     *
+     * @return conflicting keys
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Set<String>> getConflicts() {
+        final Map<String, Set<String>> conflicts = new HashMap<String, Set<String>>();
+        for (final Map.Entry<String, Object> entry : keys.entrySet()) {
+            if (entry.getValue() instanceof Set) {
+                conflicts.put(entry.getKey(), (Set<String>) entry.getValue());
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(final KeyDelta delta) {
+        if (delta.getAdded().isEmpty() && delta.getRemoved().isEmpty()) {
+            return;
+        }
+        for (final String key : delta.getRemoved()) {
+            remove(key);
+        }
+        for (final String key : delta.getAdded()) {
+            add(key);
+        }
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        keys.clear();
+        invalidate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(final String key) {
+        final String normalized = normalize(key);
+        final Object existing = keys.get(normalized);
+        final SortedSet<String> conflicting;
+        if (existing == null) {
+            keys.put(normalized, key);
+            return;
+        } else if (existing instanceof String) {
+            if (existing.equals(key)) {
+                return;
+            }
+            conflicting = new TreeSet<String>(Collections.singleton((String) existing));
+        } else {
+            if (((SortedSet<String>) existing).contains(key)) {
+                return;
+            }
+            conflicting = new TreeSet<String>((SortedSet<String>) existing);
+        }
+        conflicting.add(key);
+        log.warn("Keys " + conflicting + " conflict under relaxed key binding");
+        keys.put(normalized, Collections.unmodifiableSortedSet(conflicting));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(final String key) {
+        final String normalized = normalize(key);
+        final Object existing = keys.get(normalized);
+        if (existing instanceof String) {
+            if (existing.equals(key)) {
+                keys.remove(normalized);
+            }
+        } else if (existing != null) {
+            final SortedSet<String> conflicting = new TreeSet<String>((SortedSet<String>) existing);
+            conflicting.remove(key);
+            if (conflicting.size() == 1) {
+                keys.put(normalized, conflicting.first());
+            } else {
+                keys.put(normalized, Collections.unmodifiableSortedSet(conflicting));
+            }
+        }
+    }
+
+    private void invalidate() {
+        generation++;
+        resolved.clear();
+    }
+}
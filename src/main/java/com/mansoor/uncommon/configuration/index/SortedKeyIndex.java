@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Keys of a configuration kept in sorted order, for range and glob queries. A range query costs a logarithmic seek
+ * plus the keys returned. A glob query seeks to the literal prefix before its first wildcard and only tests the keys
+ * sharing that prefix.
+ * <p>
+ * Globs match whole keys: {@code *} matches any characters except a dot, {@code **} matches any characters and
+ * {@code ?} matches a single character except a dot, so {@code tenants.*.quota} matches {@code tenants.acme.quota}
+ * but not {@code tenants.acme.eu.quota}.
+ * </p>
+ * <p>
+ * The keys are held in a {@link TreeSet} guarded by a read-write lock; updates are exclusive and queries run
+ * concurrently.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class SortedKeyIndex implements KeyIndex {
+    private final TreeSet<String> keys = new TreeSet<String>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(final KeyDelta delta) {
+        lock.writeLock().lock();
+        try {
+            keys.addAll(delta.getAdded());
+            keys.removeAll(delta.getRemoved());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            keys.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the keys between {@code from} and {@code to}, both inclusive, in sorted order. The returned set is a
+     * live, read-only view of the index; its iterators work on the keys present when they were created.
+     *
+     * @param from lowest key
+     * @param to   highest key
+     * @return keys in the range
+     */
+    public SortedSet<String> range(final String from, final String to) {
+        if (from.compareTo(to) > 0) {
+            return Collections.unmodifiableSortedSet(new TreeSet<String>());
+        }
+        return new Range(from, to + '\0');
+    }
+
+    /**
+     * Returns the keys matching the glob in sorted order.
+     *
+     * @param glob key pattern
+     * @return matching keys
+     */
+    public List<String> find(final String glob) {
+        final String prefix = literalPrefix(glob);
+        final List<String> result = new ArrayList<String>();
+        lock.readLock().lock();
+        try {
+            if (prefix.length() == glob.length()) {
+                if (keys.contains(glob)) {
+                    result.add(glob);
+                }
+                return result;
+            }
+            final Pattern pattern = compile(glob);
+            final SortedSet<String> candidates = prefix.length() == 0 ? keys : keys.tailSet(prefix);
+            for (final String key : candidates) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                if (pattern.matcher(key).matches()) {
+                    result.add(key);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of keys in the index.
+     *
+     * @return key count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String literalPrefix(final String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                return glob.substring(0, i);
+            }
+        }
+        return glob;
+    }
+
+    private static Pattern compile(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (literal < i) {
+                regex.append(Pattern.quote(glob.substring(literal, i)));
+            }
+            if (c == '?') {
+                regex.append("[^.]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^.]*");
+            }
+            literal = i + 1;
+        }
+        if (literal < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literal)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Read-only view of the keys from {@code from} inclusive to {@code to} exclusive that takes the read lock on
+     * every call.
+     */
+    private final class Range extends AbstractSet<String> implements SortedSet<String> {
+        private final String from;
+        private final String to;
+
+        private Range(final String from, final String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public Iterator<String> iterator() {
+            lock.readLock().lock();
+            try {
+                return Collections.unmodifiableList(new ArrayList<String>(keys.subSet(from, to))).iterator();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int size() {
+            lock.readLock().lock();
+            try {
+                return keys.subSet(from, to).size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean contains(final Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            final String key = (String) o;
+            if (key.compareTo(from) < 0 || key.compareTo(to) >= 0) {
+                return false;
+            }
+            lock.readLock().lock();
+            try {
+                return keys.contains(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public Comparator<? super String> comparator() {
+            return null;
+        }
+
+        public SortedSet<String> subSet(final String fromElement, final String toElement) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement is greater than toElement");
+            }
+            final String low = fromElement.compareTo(from) > 0 ? fromElement : from;
+            final String high = toElement.compareTo(to) < 0 ? toElement : to;
+            return new Range(low, high.compareTo(low) < 0 ? low : high);
+        }
+
+        public SortedSet<String> headSet(final String toElement) {
+            return subSet(from, toElement.compareTo(from) < 0 ? from : toElement);
+        }
+
+        public SortedSet<String> tailSet(final String fromElement) {
+            return subSet(fromElement.compareTo(to) > 0 ? to : fromElement, to);
+        }
+
+        public String first() {
+            lock.readLock().lock();
+            try {
+                return keys.subSet(from, to).first();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public String last() {
+            lock.readLock().lock();
+            try {
+                return keys.subSet(from, to).last();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.index;
+
+import com.mansoor.uncommon.configuration.KeyDelta;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of converted values keyed by configuration key and type. Only the keys of a {@link KeyDelta}, and the nested
+ * nodes above them, are evicted when the configuration changes, everything else stays cached across reloads.
+ * <p>
+ * Cached instances are shared between callers, so mutable values such as {@code Date} must not be modified.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class ValueCache implements KeyIndex {
+    /**
+     * Returned by {@link #get} when no value is cached.
+     */
+    public static final Object MISS = new Object();
+    private static final Object NULL = new Object();
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, Object>> values = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, Object>>();
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, Object>> nestedValues = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, Object>>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long generation;
+
+    /**
+     * Returns the current generation, to be passed to {@link #put} by a caller that is about to convert a value.
+     *
+     * @return generation
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the cached value for the key and type.
+     *
+     * @param key    configuration key
+     * @param type   converted type
+     * @param nested whether the key was read as a nested key
+     * @return cached value, possibly {@code null}, or {@link #MISS} if no value is cached
+     */
+    public Object get(final String key, final Class<?> type, final boolean nested) {
+        final ConcurrentMap<Class<?>, Object> byType = (nested ? nestedValues : values).get(key);
+        final Object value = byType == null ? null : byType.get(type);
+        if (value == null) {
+            misses.incrementAndGet();
+            return MISS;
+        }
+        hits.incrementAndGet();
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * Caches a converted value, unless the cache was invalidated since {@code generation} was read.
+     *
+     * @param key        configuration key
+     * @param type       converted type
+     * @param nested     whether the key was read as a nested key
+     * @param value      converted value
+     * @param generation generation read before the raw value was read
+     */
+    public void put(final String key, final Class<?> type, final boolean nested, final Object value, final long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        final ConcurrentMap<String, ConcurrentMap<Class<?>, Object>> target = nested ? nestedValues : values;
+        ConcurrentMap<Class<?>, Object> byType = target.get(key);
+        if (byType == null) {
+            final ConcurrentMap<Class<?>, Object> created = new ConcurrentHashMap<Class<?>, Object>(4);
+            byType = target.putIfAbsent(key, created);
+            if (byType == null) {
+                byType = created;
+            }
+        }
+        byType.put(type, value == null ? NULL : value);
+        if (generation != this.generation) {
+            byType.remove(type);
+        }
+    }
+
+    /**
+     * Evicts the key and every nested node above it.
+     *
+     * @param key configuration key
+     */
+    public void invalidate(final String key) {
+        generation++;
+        for (String path = key; path != null; path = KeyPaths.parent(path)) {
+            values.remove(path);
+            nestedValues.remove(path);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(final KeyDelta delta) {
+        for (final String key : delta.getAdded()) {
+            invalidate(key);
+        }
+        for (final String key : delta.getRemoved()) {
+            invalidate(key);
+        }
+        for (final String key : delta.getChanged()) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        generation++;
+        values.clear();
+        nestedValues.clear();
+    }
+
+    /**
+     * Returns the number of keys with cached values.
+     *
+     * @return cached key count
+     */
+    public int size() {
+        return values.size() + nestedValues.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached value.
+     *
+     * @return hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to convert the value.
+     *
+     * @return miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.snapshot;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped header of a snapshot shared between processes. The header names the snapshot data file that is
+ * currently published and is guarded by a sequence lock: the writer makes the sequence odd before it changes the
+ * header and even again afterwards, so a reader that sees the same even sequence before and after reading the header
+ * has read a consistent version.
+ * <p>
+ * The header is read and written with plain accesses to the mapped buffer, which the compiler and the processor are
+ * free to reorder. {@link #sequence()} and {@link #publish(long, String)} therefore separate the sequence from the
+ * rest of the header with full fences: a write of a volatile field followed by a read of it. The write keeps every
+ * earlier access before it, the read keeps every later access after it, and a volatile write is never reordered with
+ * a following volatile read, so no access moves across the pair. The writer's odd sequence is thus stored before
+ * the header changes and its even sequence after them, and a reader loads the sequence before and after the header
+ * fields it reads between two calls of {@link #sequence()}. Readers that only need to notice a new version use
+ * {@link #peekSequence()}, a single load without fences, and call {@link #sequence()} once it changed.
+ * </p>
+ * <pre>
+ *      magic (int), layout (int), sequence (long), version (long), name length (int), UTF-8 data file name
+ * </pre>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class SharedHeader {
+    private static final int MAGIC = 0x55435348;
+    private static final int LAYOUT = 1;
+    private static final int SIZE = 256;
+    private static final int SEQUENCE = 8;
+    private static final int VERSION = 16;
+    private static final int NAME_LENGTH = 24;
+    private static final int NAME = 28;
+
+    private volatile int fence;
+    private final MappedByteBuffer buffer;
+
+    private SharedHeader(final MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps an existing header for reading.
+     *
+     * @param file header file
+     * @return header
+     * @throws IOException if the file can not be mapped
+     */
+    public static SharedHeader open(final File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            Preconditions.checkArgument(input.length() >= SIZE, "Not a shared snapshot header " + file);
+            final SharedHeader header = new SharedHeader(input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, SIZE));
+            Preconditions.checkArgument(header.buffer.getInt(0) == MAGIC && header.buffer.getInt(4) == LAYOUT,
+                    "Not a shared snapshot header " + file);
+            return header;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Maps a header for writing, creating it if it does not exist. The channel must stay open while the header is
+     * used.
+     *
+     * @param channel channel of the header file opened for reading and writing
+     * @return header
+     * @throws IOException if the file can not be mapped
+     */
+    public static SharedHeader create(final FileChannel channel) throws IOException {
+        final SharedHeader header = new SharedHeader(channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+        if (header.buffer.getInt(0) != MAGIC) {
+            header.buffer.putInt(4, LAYOUT);
+            header.buffer.putLong(SEQUENCE, 0);
+            header.buffer.putLong(VERSION, 0);
+            header.buffer.putInt(NAME_LENGTH, 0);
+            header.buffer.putInt(0, MAGIC);
+            header.buffer.force();
+        }
+        return header;
+    }
+
+    /**
+     * Returns the current sequence. An odd sequence means the writer is updating the header. Header fields read
+     * between two calls are read after the first sequence and before the second.
+     *
+     * @return sequence
+     */
+    public long sequence() {
+        fullFence();
+        final long sequence = buffer.getLong(SEQUENCE);
+        fullFence();
+        return sequence;
+    }
+
+    /**
+     * Returns the current sequence with a plain load that is not ordered with the other header fields. A changed
+     * value tells the caller that a new version was published; the header must then be read between two calls of
+     * {@link #sequence()}.
+     *
+     * @return sequence, possibly stale
+     */
+    public long peekSequence() {
+        return buffer.getLong(SEQUENCE);
+    }
+
+    /**
+     * Returns the published version, {@code 0} if nothing has been published.
+     *
+     * @return version
+     */
+    public long version() {
+        return buffer.getLong(VERSION);
+    }
+
+    /**
+     * Returns the name of the published data file, relative to the directory of the header.
+     *
+     * @return data file name or {@code null} if nothing has been published
+     */
+    public String dataFileName() {
+        final int length = buffer.getInt(NAME_LENGTH);
+        if (length <= 0 || length > SIZE - NAME) {
+            return null;
+        }
+        final ByteBuffer name = buffer.duplicate();
+        name.limit(NAME + length);
+        name.position(NAME);
+        return Snapshot.UTF8.decode(name).toString();
+    }
+
+    /**
+     * Publishes a new version. Must only be called by the process holding the writer lock.
+     *
+     * @param version      version being published
+     * @param dataFileName name of the data file holding the version
+     */
+    public void publish(final long version, final String dataFileName) {
+        final ByteBuffer name = Snapshot.UTF8.encode(dataFileName);
+        Preconditions.checkArgument(name.remaining() <= SIZE - NAME, "data file name is too long");
+        final long sequence = sequence();
+        buffer.putLong(SEQUENCE, sequence + 1);
+        fullFence();
+        buffer.putLong(VERSION, version);
+        buffer.putInt(NAME_LENGTH, name.remaining());
+        final ByteBuffer target = buffer.duplicate();
+        target.position(NAME);
+        target.put(name);
+        fullFence();
+        buffer.putLong(SEQUENCE, sequence + 2);
+        buffer.force();
+    }
+
+    /**
+     * Keeps every memory access before the call ahead of every access after it.
+     */
+    private int fullFence() {
+        fence = 0;
+        return fence;
+    }
+}
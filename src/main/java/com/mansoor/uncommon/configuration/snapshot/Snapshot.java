@@ -0,0 +1,659 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.snapshot;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read only view of a configuration snapshot. The snapshot is used in place: lookups probe the prebuilt hash index
+ * stored in the buffer and only the requested value is decoded, so a memory mapped snapshot needs no parsing at all.
+ * <p>
+ * Layout, all numbers big endian:
+ * <pre>
+ *      header   magic, version, flags, entry count, table size, table offset, data offset, reserved (8 ints)
+ *      table    table size ints, each the offset of an entry or 0 for an empty slot (linear probing)
+ *      entries  hash (int), key flags (byte), value tag (byte), key length (int), UTF-8 key, value
+ * </pre>
+ * Nested paths are stored flattened ({@code development.password.database}) so a nested lookup is a single probe.
+ * Integral, floating point and boolean values are stored in binary form. Tree nodes store the offsets of their
+ * children and only keep their String form when it can not be rendered from the children.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class Snapshot {
+    /**
+     * Key flag of entries reachable through {@code get}.
+     */
+    public static final int FLAT = 1;
+    /**
+     * Key flag of entries reachable through {@code getNested}.
+     */
+    public static final int NESTED = 2;
+    /**
+     * Key flag of primitive entries whose source value was a String.
+     */
+    static final int TEXT = 4;
+    /**
+     * Key flag of tree nodes whose String form is their JSON text.
+     */
+    static final int JSON = 8;
+
+    public static final byte STRING = 1;
+    public static final byte LIST = 2;
+    public static final byte NODE = 3;
+    public static final byte LONG = 4;
+    public static final byte DOUBLE = 5;
+    public static final byte BOOLEAN = 6;
+
+    static final int MAGIC = 0x55435331;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int HIERARCHICAL = 1;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int flags;
+    private final int size;
+    private final int mask;
+    private final int tableOffset;
+    private final int dataOffset;
+
+    private Snapshot(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        Preconditions.checkArgument(buffer.limit() >= HEADER_SIZE && buffer.getInt(0) == MAGIC, "Not a configuration snapshot");
+        Preconditions.checkArgument(buffer.getInt(4) == VERSION, "Unsupported snapshot version " + buffer.getInt(4));
+        flags = buffer.getInt(8);
+        size = buffer.getInt(12);
+        mask = buffer.getInt(16) - 1;
+        tableOffset = buffer.getInt(20);
+        dataOffset = buffer.getInt(24);
+    }
+
+    /**
+     * Opens a snapshot stored in the given buffer, starting at its position. The buffer is not copied.
+     *
+     * @param buffer buffer holding the snapshot
+     * @return snapshot
+     */
+    public static Snapshot open(final ByteBuffer buffer) {
+        Preconditions.checkNull(buffer, "buffer is null");
+        return new Snapshot(buffer.slice());
+    }
+
+    /**
+     * Memory maps the given snapshot file. The mapping stays valid after the file is deleted or replaced.
+     *
+     * @param file snapshot file
+     * @return snapshot reading the file in place
+     * @throws IOException if the file can not be mapped
+     */
+    public static Snapshot map(final File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Returns an empty snapshot.
+     *
+     * @param hierarchical whether the snapshot represents a tree based configuration
+     * @return empty snapshot
+     */
+    public static Snapshot empty(final boolean hierarchical) {
+        return open(SnapshotWriter.toBuffer(Collections.<String, Object>emptyMap(), hierarchical));
+    }
+
+    /**
+     * Returns {@code true} if this snapshot was taken from a tree based configuration such as YAML or JSON.
+     *
+     * @return true if nested values are stored as a tree
+     */
+    public boolean isHierarchical() {
+        return (flags & HIERARCHICAL) != 0;
+    }
+
+    /**
+     * Returns the number of entries in the snapshot.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the snapshot in bytes.
+     *
+     * @return byte size
+     */
+    public int byteSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * Finds the entry stored under the given key and flag.
+     *
+     * @param key  key to find
+     * @param flag {@link #FLAT} or {@link #NESTED}
+     * @return entry offset or {@code -1} if there is no such entry
+     */
+    public int find(final String key, final int flag) {
+        final int hash = key.hashCode();
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = buffer.getInt(tableOffset + (slot << 2))) != 0) {
+            if (buffer.getInt(entry) == hash && (buffer.get(entry + 4) & flag) != 0 && keyEquals(entry, key)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the offset of the first entry, or {@code -1} if the snapshot is empty.
+     *
+     * @return entry offset
+     */
+    public int first() {
+        return size == 0 ? -1 : dataOffset;
+    }
+
+    /**
+     * Returns the offset of the entry following the given one, or {@code -1} if it is the last entry.
+     *
+     * @param entry entry offset
+     * @return entry offset
+     */
+    public int next(final int entry) {
+        final int next = valueOffset(entry) + valueLength(entry);
+        return next < buffer.limit() ? next : -1;
+    }
+
+    /**
+     * Returns the key of the given entry.
+     *
+     * @param entry entry offset
+     * @return key
+     */
+    public String key(final int entry) {
+        return decode(entry + 10, buffer.getInt(entry + 6));
+    }
+
+    /**
+     * Returns the key flags of the given entry.
+     *
+     * @param entry entry offset
+     * @return combination of {@link #FLAT} and {@link #NESTED}
+     */
+    public int flags(final int entry) {
+        return buffer.get(entry + 4);
+    }
+
+    /**
+     * Returns the value tag of the given entry.
+     *
+     * @param entry entry offset
+     * @return one of the tag constants
+     */
+    public byte tag(final int entry) {
+        return buffer.get(entry + 5);
+    }
+
+    /**
+     * Returns the value of a {@link #LONG} entry.
+     *
+     * @param entry entry offset
+     * @return long value
+     */
+    public long longValue(final int entry) {
+        return buffer.getLong(valueOffset(entry));
+    }
+
+    /**
+     * Returns the value of a {@link #DOUBLE} entry.
+     *
+     * @param entry entry offset
+     * @return double value
+     */
+    public double doubleValue(final int entry) {
+        return Double.longBitsToDouble(buffer.getLong(valueOffset(entry)));
+    }
+
+    /**
+     * Returns the String form of the given entry, identical to the String form of the value in the
+     * configuration the snapshot was taken from.
+     *
+     * @param entry entry offset
+     * @return value as String
+     */
+    public String text(final int entry) {
+        final int offset = valueOffset(entry);
+        switch (tag(entry)) {
+            case LONG:
+                return Long.toString(buffer.getLong(offset));
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(buffer.getLong(offset)));
+            case BOOLEAN:
+                return String.valueOf(buffer.get(offset) != 0);
+            case LIST:
+                final int renderedLength = buffer.getInt(offset);
+                return renderedLength >= 0 ? decode(offset + 4, renderedLength) : String.valueOf(list(entry));
+            case NODE:
+                final int nodeTextLength = buffer.getInt(offset);
+                return nodeTextLength >= 0 ? decode(offset + 4, nodeTextLength) : render(entry);
+            default:
+                return decode(offset + 4, buffer.getInt(offset));
+        }
+    }
+
+    /**
+     * Returns the elements of a {@link #LIST} entry.
+     *
+     * @param entry entry offset
+     * @return list of values or {@code null} if the entry is not a list
+     */
+    public List<String> list(final int entry) {
+        if (tag(entry) != LIST) {
+            return null;
+        }
+        int offset = valueOffset(entry);
+        offset += 4 + Math.max(0, buffer.getInt(offset));
+        final int count = buffer.getInt(offset);
+        offset += 4;
+        final List<String> result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            final int length = buffer.getInt(offset);
+            result.add(length < 0 ? null : decode(offset + 4, length));
+            offset += 4 + Math.max(0, length);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the given entry in the form it had in the source configuration: Strings, Lists of String,
+     * Integers, Longs, Doubles and Booleans. Tree nodes are returned as their String form.
+     *
+     * @param entry entry offset
+     * @return decoded value
+     */
+    public Object value(final int entry) {
+        final boolean text = (buffer.get(entry + 4) & TEXT) != 0;
+        switch (tag(entry)) {
+            case LIST:
+                return list(entry);
+            case LONG:
+                if (text) {
+                    return text(entry);
+                }
+                final long value = longValue(entry);
+                return value == (int) value ? (Object) (int) value : (Object) value;
+            case DOUBLE:
+                return text ? text(entry) : (Object) doubleValue(entry);
+            case BOOLEAN:
+                return text ? text(entry) : (Object) (buffer.get(valueOffset(entry)) != 0);
+            default:
+                return text(entry);
+        }
+    }
+
+    /**
+     * Rebuilds the tree node stored in the given entry from its children.
+     *
+     * @param entry entry offset
+     * @return child names mapped to their values, or {@code null} if the entry is not a node
+     */
+    public Map<String, Object> node(final int entry) {
+        if (tag(entry) != NODE) {
+            return null;
+        }
+        final int prefix = buffer.getInt(entry + 6) + 1;
+        final int offset = children(entry);
+        final int count = buffer.getInt(offset);
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < count; i++) {
+            final int child = buffer.getInt(offset + 4 + (i << 2));
+            result.put(childName(child, prefix), tag(child) == NODE ? node(child) : value(child));
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the top level map of the configuration this snapshot was taken from.
+     *
+     * @return top level entries
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (int entry = first(); entry >= 0; entry = next(entry)) {
+            if ((flags(entry) & FLAT) != 0) {
+                result.put(key(entry), tag(entry) == NODE ? node(entry) : value(entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns every leaf key mapped to its value, the way {@link com.mansoor.uncommon.configuration.util.KeyPaths}
+     * flattens the map returned by {@link #toMap()}, without rebuilding that map.
+     *
+     * @return leaf keys mapped to their values
+     */
+    public Map<String, Object> flatten() {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (int entry = first(); entry >= 0; entry = next(entry)) {
+            if (isLeaf(entry)) {
+                result.put(key(entry), leafValue(entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the entry is one of the leaves returned by {@link #flatten()}: a value or an empty node
+     * of a hierarchical snapshot, a top level entry otherwise.
+     *
+     * @param entry entry offset
+     * @return true if the entry is a leaf
+     */
+    public boolean isLeaf(final int entry) {
+        if (!isHierarchical()) {
+            return (flags(entry) & FLAT) != 0;
+        }
+        return tag(entry) != NODE || buffer.getInt(children(entry)) == 0;
+    }
+
+    /**
+     * Returns the value {@link #flatten()} maps the leaf to.
+     *
+     * @param entry entry offset
+     * @return decoded value, a rebuilt map for a node
+     */
+    public Object leafValue(final int entry) {
+        return tag(entry) == NODE ? node(entry) : value(entry);
+    }
+
+    /**
+     * Finds the leaf stored under the given key.
+     *
+     * @param key leaf key
+     * @return entry offset or {@code -1} if there is no such leaf
+     */
+    public int findLeaf(final String key) {
+        final int hash = key.hashCode();
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = buffer.getInt(tableOffset + (slot << 2))) != 0) {
+            if (buffer.getInt(entry) == hash && keyEquals(entry, key) && isLeaf(entry)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the leaf with the same key as an entry of another snapshot, comparing the encoded keys so that no key is
+     * decoded.
+     *
+     * @param source snapshot holding the entry
+     * @param entry  entry offset in {@code source}
+     * @return entry offset in this snapshot or {@code -1} if there is no such leaf
+     */
+    public int findLeaf(final Snapshot source, final int entry) {
+        final int hash = source.buffer.getInt(entry);
+        int slot = spread(hash) & mask;
+        int candidate;
+        while ((candidate = buffer.getInt(tableOffset + (slot << 2))) != 0) {
+            if (buffer.getInt(candidate) == hash && bytesEqual(candidate + 6, source, entry + 6, 4 + buffer.getInt(candidate + 6))
+                    && isLeaf(candidate)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if the entry holds the same encoded value as an entry of another snapshot. Nodes reference
+     * their children by offset and are compared by their rebuilt maps.
+     *
+     * @param entry      entry offset in this snapshot
+     * @param other      other snapshot
+     * @param otherEntry entry offset in {@code other}
+     * @return true if both values are equal
+     */
+    public boolean valueEquals(final int entry, final Snapshot other, final int otherEntry) {
+        if (tag(entry) != other.tag(otherEntry) || ((flags(entry) ^ other.flags(otherEntry)) & TEXT) != 0) {
+            return false;
+        }
+        if (tag(entry) == NODE) {
+            return node(entry).equals(other.node(otherEntry));
+        }
+        final int length = valueLength(entry);
+        return length == other.valueLength(otherEntry) && bytesEqual(valueOffset(entry), other, other.valueOffset(otherEntry), length);
+    }
+
+    /**
+     * Writes the snapshot to the given stream.
+     *
+     * @param output stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream output) throws IOException {
+        final ByteBuffer source = buffer.duplicate();
+        source.clear();
+        final byte[] chunk = new byte[8192];
+        while (source.hasRemaining()) {
+            final int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            output.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Appends a child of a tree node in the form {@code Map.toString()} or a JSON object print it.
+     */
+    static void appendChild(final StringBuilder out, final String name, final String text, final boolean quoted, final boolean json) {
+        if (json) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            quote(out, name).append(':');
+            if (quoted) {
+                quote(out, text);
+            } else {
+                out.append(text);
+            }
+        } else {
+            if (out.length() > 1) {
+                out.append(", ");
+            }
+            out.append(name).append('=').append(text);
+        }
+    }
+
+    /**
+     * Appends a JSON string literal, escaped the way json-simple escapes it.
+     */
+    private static StringBuilder quote(final StringBuilder out, final String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '/':
+                    out.append("\\/");
+                    break;
+                default:
+                    if (c <= '\u001F' || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF')) {
+                        final String hex = Integer.toHexString(c).toUpperCase();
+                        out.append("\\u");
+                        for (int pad = hex.length(); pad < 4; pad++) {
+                            out.append('0');
+                        }
+                        out.append(hex);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    static int spread(final int hash) {
+        final int h = hash ^ (hash >>> 16);
+        return h * 0x9E3779B1;
+    }
+
+    /**
+     * Renders a tree node that does not store its String form from its children.
+     */
+    private String render(final int entry) {
+        final int prefix = buffer.getInt(entry + 6) + 1;
+        final boolean json = (buffer.get(entry + 4) & JSON) != 0;
+        final int offset = children(entry);
+        final int count = buffer.getInt(offset);
+        final StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            final int child = buffer.getInt(offset + 4 + (i << 2));
+            final boolean quoted = tag(child) == STRING || (buffer.get(child + 4) & TEXT) != 0;
+            appendChild(out, childName(child, prefix), text(child), quoted, json);
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * Returns the offset of the child count of a tree node, which is followed by the offsets of the children.
+     */
+    private int children(final int entry) {
+        final int offset = valueOffset(entry);
+        return offset + 4 + Math.max(0, buffer.getInt(offset));
+    }
+
+    /**
+     * Returns the name of a child, its key without the key of its parent.
+     */
+    private String childName(final int child, final int prefix) {
+        return decode(child + 10 + prefix, buffer.getInt(child + 6) - prefix);
+    }
+
+    private int valueOffset(final int entry) {
+        return entry + 10 + buffer.getInt(entry + 6);
+    }
+
+    private int valueLength(final int entry) {
+        final int offset = valueOffset(entry);
+        switch (tag(entry)) {
+            case LONG:
+            case DOUBLE:
+                return 8;
+            case BOOLEAN:
+                return 1;
+            case LIST:
+                int position = offset + 4 + Math.max(0, buffer.getInt(offset));
+                final int count = buffer.getInt(position);
+                position += 4;
+                for (int i = 0; i < count; i++) {
+                    position += 4 + Math.max(0, buffer.getInt(position));
+                }
+                return position - offset;
+            case NODE:
+                final int children = children(entry);
+                return children + 4 + (buffer.getInt(children) << 2) - offset;
+            default:
+                return 4 + buffer.getInt(offset);
+        }
+    }
+
+    private boolean bytesEqual(final int offset, final Snapshot other, final int otherOffset, final int length) {
+        if (other.buffer.limit() < otherOffset + length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != other.buffer.get(otherOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean keyEquals(final int entry, final String key) {
+        final int length = buffer.getInt(entry + 6);
+        final int start = entry + 10;
+        if (length < key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final byte b = buffer.get(start + i);
+            if (b < 0) {
+                return decode(start, length).equals(key);
+            }
+            if (i >= key.length() || key.charAt(i) != b) {
+                return false;
+            }
+        }
+        return length == key.length();
+    }
+
+    private String decode(final int offset, final int length) {
+        final ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(offset + length).position(offset);
+        final CharBuffer chars = UTF8.decode(bytes);
+        return chars.toString();
+    }
+}
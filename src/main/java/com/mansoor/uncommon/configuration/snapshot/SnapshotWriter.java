@@ -0,0 +1,318 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.snapshot;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@link Snapshot}s from the raw entries of a configuration.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class SnapshotWriter {
+    private SnapshotWriter() {
+    }
+
+    /**
+     * Writes a snapshot of the given entries to the stream.
+     *
+     * @param entries      top level entries of the configuration
+     * @param hierarchical {@code true} if map values are nested nodes that can be reached with nested keys
+     * @param output       stream to write to
+     * @throws IOException if writing fails
+     */
+    public static void write(final Map<String, ?> entries, final boolean hierarchical, final OutputStream output) throws IOException {
+        Preconditions.checkNull(entries, "entries is null");
+        final List<Entry> flattened = new ArrayList<Entry>();
+        for (final Map.Entry<?, ?> entry : entries.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                continue;
+            }
+            final String key = (String) entry.getKey();
+            if (hierarchical) {
+                add(flattened, key, Snapshot.FLAT | (isPathSegment(key) ? Snapshot.NESTED : 0), entry.getValue(), true);
+            } else {
+                add(flattened, key, Snapshot.FLAT | Snapshot.NESTED, entry.getValue(), false);
+            }
+        }
+
+        final int tableSize = tableSize(flattened.size());
+        final int tableOffset = Snapshot.HEADER_SIZE;
+        final int dataOffset = tableOffset + tableSize * 4;
+        final int[] table = new int[tableSize];
+        final List<byte[]> encoded = new ArrayList<byte[]>(flattened.size());
+        int offset = dataOffset;
+        for (final Entry entry : flattened) {
+            final byte[] bytes = entry.toBytes();
+            encoded.add(bytes);
+            entry.offset = offset;
+            offset += bytes.length + (entry.children == null ? 0 : entry.children.size() * 4);
+            int slot = Snapshot.spread(entry.hash) & (tableSize - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = entry.offset;
+        }
+
+        final DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(Snapshot.MAGIC);
+        out.writeInt(Snapshot.VERSION);
+        out.writeInt(hierarchical ? Snapshot.HIERARCHICAL : 0);
+        out.writeInt(flattened.size());
+        out.writeInt(tableSize);
+        out.writeInt(tableOffset);
+        out.writeInt(dataOffset);
+        out.writeInt(0);
+        for (final int slot : table) {
+            out.writeInt(slot);
+        }
+        for (int i = 0; i < flattened.size(); i++) {
+            out.write(encoded.get(i));
+            final List<Entry> children = flattened.get(i).children;
+            if (children != null) {
+                for (final Entry child : children) {
+                    out.writeInt(child.offset);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Builds a snapshot of the given entries in a heap buffer.
+     *
+     * @param entries      top level entries of the configuration
+     * @param hierarchical {@code true} if map values are nested nodes
+     * @return buffer holding the snapshot
+     */
+    public static ByteBuffer toBuffer(final Map<String, ?> entries, final boolean hierarchical) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            write(entries, hierarchical, output);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to build snapshot", e);
+        }
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
+    /**
+     * Returns {@code true} if the key can be reached by splitting a nested key on {@code '.'}.
+     */
+    private static boolean isPathSegment(final String key) {
+        return key.length() > 0 && key.indexOf('.') < 0;
+    }
+
+    /**
+     * Adds the entry and, for a tree node, its children. Children that can not be reached with a nested key are
+     * still written, without key flags, so the node can be rebuilt from its child references.
+     */
+    private static Entry add(final List<Entry> flattened, final String key, final int flags, final Object value, final boolean hierarchical) {
+        if (value == null) {
+            return null;
+        }
+        final Entry entry = new Entry(key, flags, value);
+        flattened.add(entry);
+        if (value instanceof Map) {
+            final boolean nested = hierarchical && (flags & Snapshot.NESTED) != 0;
+            entry.children = new ArrayList<Entry>();
+            for (final Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+                if (child.getKey() instanceof String) {
+                    final String name = (String) child.getKey();
+                    final int childFlags = nested && isPathSegment(name) ? Snapshot.NESTED : 0;
+                    final Entry added = add(flattened, key + "." + name, childFlags, child.getValue(), hierarchical);
+                    if (added != null) {
+                        entry.children.add(added);
+                    }
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static int tableSize(final int entries) {
+        int size = 16;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * An entry waiting to be written.
+     */
+    private static final class Entry {
+        private final int hash;
+        private final String key;
+        private int flags;
+        private final byte tag;
+        private final Object value;
+        private List<Entry> children;
+        private int offset;
+
+        private Entry(final String key, final int flags, final Object value) {
+            this.hash = key.hashCode();
+            this.key = key;
+            this.value = value;
+            final String text = value instanceof String ? (String) value : null;
+            if (value instanceof List) {
+                tag = Snapshot.LIST;
+            } else if (value instanceof Map) {
+                tag = Snapshot.NODE;
+            } else if (isLong(value) || (text != null && isLong(text))) {
+                tag = Snapshot.LONG;
+            } else if (value instanceof Double || (text != null && isDouble(text))) {
+                tag = Snapshot.DOUBLE;
+            } else if (value instanceof Boolean || "true".equals(text) || "false".equals(text)) {
+                tag = Snapshot.BOOLEAN;
+            } else {
+                tag = Snapshot.STRING;
+            }
+            this.flags = text != null && tag != Snapshot.STRING ? flags | Snapshot.TEXT : flags;
+        }
+
+        /**
+         * Encodes the entry. The child references of a tree node follow the encoded bytes once the offsets of the
+         * children are known.
+         */
+        private byte[] toBytes() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            final byte[] keyBytes = encode(key);
+            final String text = value instanceof String ? (String) value : null;
+            String nodeText = null;
+            if (tag == Snapshot.NODE) {
+                nodeText = value.toString();
+                if (nodeText.equals(render(false))) {
+                    nodeText = null;
+                } else if (nodeText.equals(render(true))) {
+                    flags |= Snapshot.JSON;
+                    nodeText = null;
+                }
+            }
+            out.writeInt(hash);
+            out.writeByte(flags);
+            out.writeByte(tag);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+            switch (tag) {
+                case Snapshot.LONG:
+                    out.writeLong(text != null ? Long.parseLong(text) : ((Number) value).longValue());
+                    break;
+                case Snapshot.DOUBLE:
+                    out.writeLong(Double.doubleToLongBits(text != null ? Double.parseDouble(text) : (Double) value));
+                    break;
+                case Snapshot.BOOLEAN:
+                    out.writeByte(text != null ? ("true".equals(text) ? 1 : 0) : ((Boolean) value ? 1 : 0));
+                    break;
+                case Snapshot.LIST:
+                    final List<?> list = (List<?>) value;
+                    final List<String> elements = new ArrayList<String>(list.size());
+                    for (final Object element : list) {
+                        elements.add(element == null ? null : element.toString());
+                    }
+                    final String rendered = value.toString();
+                    writeString(out, rendered.equals(String.valueOf(elements)) ? null : rendered);
+                    out.writeInt(elements.size());
+                    for (final String element : elements) {
+                        writeString(out, element);
+                    }
+                    break;
+                case Snapshot.NODE:
+                    writeString(out, nodeText);
+                    out.writeInt(children.size());
+                    break;
+                default:
+                    writeString(out, value.toString());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Renders the node from its children the way {@link Snapshot#text(int)} does when no text is stored. The
+         * String form of every child is the String form of its source value.
+         */
+        private String render(final boolean json) {
+            final StringBuilder out = new StringBuilder("{");
+            for (final Entry child : children) {
+                final boolean quoted = child.tag == Snapshot.STRING || (child.flags & Snapshot.TEXT) != 0;
+                Snapshot.appendChild(out, child.key.substring(key.length() + 1), child.value.toString(), quoted, json);
+            }
+            return out.append('}').toString();
+        }
+
+        private static boolean isLong(final Object value) {
+            return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+        }
+
+        private static boolean isLong(final String text) {
+            final int length = text.length();
+            if (length == 0 || length > 19) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                if (!(c >= '0' && c <= '9') && !(i == 0 && c == '-' && length > 1)) {
+                    return false;
+                }
+            }
+            try {
+                return Long.toString(Long.parseLong(text)).equals(text);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static boolean isDouble(final String text) {
+            if (text.length() == 0 || text.length() > 32 || !Character.isDigit(text.charAt(text.length() - 1))) {
+                return false;
+            }
+            try {
+                return Double.toString(Double.parseDouble(text)).equals(text);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static void writeString(final DataOutputStream out, final String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                final byte[] bytes = encode(value);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private static byte[] encode(final String value) {
+            final ByteBuffer encoded = Snapshot.UTF8.encode(value);
+            final byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import java.util.Map;
+
+/**
+ * Immutable map of configuration keys to raw values. Updates return a new store and leave the original unchanged, so
+ * a store can be shared with readers without copying or locking.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public interface ConfigStore {
+
+    /**
+     * Returns the raw value stored under the key.
+     *
+     * @param key configuration key
+     * @return raw value or {@code null}
+     */
+    Object get(String key);
+
+    /**
+     * Returns a store with the given changes applied. A {@code null} value removes the key.
+     *
+     * @param changes keys mapped to their new raw values
+     * @return updated store
+     */
+    ConfigStore apply(Map<String, ?> changes);
+
+    /**
+     * Returns the number of keys in the store.
+     *
+     * @return key count
+     */
+    int size();
+
+    /**
+     * Returns the entries of the store as an unmodifiable map.
+     *
+     * @return entries
+     */
+    Map<String, Object> toMap();
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ConfigStore} backed by a {@code HashMap} that is copied on every update. Reads are a single hash lookup,
+ * updates cost O(n).
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class CopyOnWriteStore implements ConfigStore {
+    /**
+     * Store without keys.
+     */
+    public static final CopyOnWriteStore EMPTY = new CopyOnWriteStore(new HashMap<String, Object>());
+    private final Map<String, Object> entries;
+
+    private CopyOnWriteStore(final Map<String, Object> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ConfigStore apply(final Map<String, ?> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        final Map<String, Object> copy = new HashMap<String, Object>(entries);
+        for (final Map.Entry<String, ?> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                copy.remove(change.getKey());
+            } else {
+                copy.put(change.getKey(), change.getValue());
+            }
+        }
+        return new CopyOnWriteStore(copy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Object> toMap() {
+        return Collections.unmodifiableMap(entries);
+    }
+}
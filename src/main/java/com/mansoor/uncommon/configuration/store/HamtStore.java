@@ -0,0 +1,357 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent hash array mapped trie. Each node maps 5 bits of the key hash to up to 32 children through a bitmap, so
+ * an update copies only the O(log n) nodes on the path to the key and shares every other node with the previous
+ * store. Previous stores stay valid and unchanged for as long as they are referenced.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class HamtStore implements ConfigStore {
+    /**
+     * Store without keys.
+     */
+    public static final HamtStore EMPTY = new HamtStore(BitmapNode.EMPTY, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private final Node root;
+    private final int size;
+
+    private HamtStore(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(final String key) {
+        return key == null ? null : root.find(key, hash(key), 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ConfigStore apply(final Map<String, ?> changes) {
+        Node node = root;
+        int count = size;
+        final Box box = new Box();
+        for (final Map.Entry<String, ?> change : changes.entrySet()) {
+            final String key = change.getKey();
+            final int hash = hash(key);
+            if (change.getValue() == null) {
+                final Node updated = node.remove(key, hash, 0);
+                if (updated != node) {
+                    node = updated == null ? BitmapNode.EMPTY : updated;
+                    count--;
+                }
+            } else {
+                box.added = false;
+                node = node.put(key, hash, change.getValue(), 0, box);
+                if (box.added) {
+                    count++;
+                }
+            }
+        }
+        return node == root ? this : new HamtStore(node, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the entries of the store.
+     *
+     * @return entries
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> entries = new HashMap<String, Object>(size * 2);
+        root.collect(entries);
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static int hash(final String key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Creates the smallest node holding two entries whose hashes are equal up to {@code shift}.
+     */
+    private static Node merge(final Entry first, final Entry second, final int shift) {
+        if (first.hash == second.hash) {
+            return new CollisionNode(first.hash, new Entry[]{first, second});
+        }
+        final int firstBit = bit(first.hash, shift);
+        final int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new BitmapNode(firstBit, new Object[]{merge(first, second, shift + BITS)});
+        }
+        final boolean firstIsLower = ((first.hash >>> shift) & MASK) < ((second.hash >>> shift) & MASK);
+        return new BitmapNode(firstBit | secondBit, firstIsLower ? new Object[]{first, second} : new Object[]{second, first});
+    }
+
+    /**
+     * Trie node. Updates return the node itself when nothing changed.
+     */
+    private interface Node {
+        Object find(String key, int hash, int shift);
+
+        Node put(String key, int hash, Object value, int shift, Box box);
+
+        /**
+         * Returns the node without the key, or {@code null} if the node would be empty.
+         */
+        Node remove(String key, int hash, int shift);
+
+        void collect(Map<String, Object> entries);
+    }
+
+    /**
+     * Key and value stored in a node.
+     */
+    private static final class Entry {
+        private final String key;
+        private final int hash;
+        private final Object value;
+
+        private Entry(final String key, final int hash, final Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Tells the caller of {@code put} whether a key was added.
+     */
+    private static final class Box {
+        private boolean added;
+    }
+
+    /**
+     * Node whose slots, entries or child nodes, are indexed by the bits set in {@code bitmap}.
+     */
+    private static final class BitmapNode implements Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(final int bitmap, final Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        public Object find(final String key, final int hash, final int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final Object slot = slots[index(bit)];
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry) slot;
+                return entry.hash == hash && entry.key.equals(key) ? entry.value : null;
+            }
+            return ((Node) slot).find(key, hash, shift + BITS);
+        }
+
+        public Node put(final String key, final int hash, final Object value, final int shift, final Box box) {
+            final int bit = bit(hash, shift);
+            final int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                box.added = true;
+                final Object[] copy = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, copy, 0, index);
+                copy[index] = new Entry(key, hash, value);
+                System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            final Object slot = slots[index];
+            final Object replacement;
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry) slot;
+                if (entry.hash == hash && entry.key.equals(key)) {
+                    if (entry.value.equals(value)) {
+                        return this;
+                    }
+                    replacement = new Entry(key, hash, value);
+                } else {
+                    box.added = true;
+                    replacement = merge(entry, new Entry(key, hash, value), shift + BITS);
+                }
+            } else {
+                final Node child = (Node) slot;
+                final Node updated = child.put(key, hash, value, shift + BITS, box);
+                if (updated == child) {
+                    return this;
+                }
+                replacement = updated;
+            }
+            final Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        public Node remove(final String key, final int hash, final int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int index = index(bit);
+            final Object slot = slots[index];
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry) slot;
+                if (entry.hash != hash || !entry.key.equals(key)) {
+                    return this;
+                }
+                return without(bit, index);
+            }
+            final Node child = (Node) slot;
+            final Node updated = child.remove(key, hash, shift + BITS);
+            if (updated == child) {
+                return this;
+            }
+            if (updated == null) {
+                return without(bit, index);
+            }
+            final Object[] copy = slots.clone();
+            copy[index] = inline(updated);
+            return new BitmapNode(bitmap, copy);
+        }
+
+        public void collect(final Map<String, Object> entries) {
+            for (final Object slot : slots) {
+                if (slot instanceof Entry) {
+                    entries.put(((Entry) slot).key, ((Entry) slot).value);
+                } else {
+                    ((Node) slot).collect(entries);
+                }
+            }
+        }
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Node without(final int bit, final int index) {
+            if (slots.length == 1) {
+                return null;
+            }
+            final Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        /**
+         * Replaces a child that holds a single entry by the entry itself.
+         */
+        private static Object inline(final Node node) {
+            if (node instanceof BitmapNode) {
+                final Object[] children = ((BitmapNode) node).slots;
+                if (children.length == 1 && children[0] instanceof Entry) {
+                    return children[0];
+                }
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Node holding entries whose keys have the same hash.
+     */
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Entry[] entries;
+
+        private CollisionNode(final int hash, final Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        public Object find(final String key, final int hash, final int shift) {
+            final int index = indexOf(key, hash);
+            return index < 0 ? null : entries[index].value;
+        }
+
+        public Node put(final String key, final int hash, final Object value, final int shift, final Box box) {
+            if (hash != this.hash) {
+                return new BitmapNode(bit(this.hash, shift), new Object[]{this}).put(key, hash, value, shift, box);
+            }
+            final int index = indexOf(key, hash);
+            if (index >= 0) {
+                if (entries[index].value.equals(value)) {
+                    return this;
+                }
+                final Entry[] copy = entries.clone();
+                copy[index] = new Entry(key, hash, value);
+                return new CollisionNode(hash, copy);
+            }
+            box.added = true;
+            final Entry[] copy = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, copy, 0, entries.length);
+            copy[entries.length] = new Entry(key, hash, value);
+            return new CollisionNode(hash, copy);
+        }
+
+        public Node remove(final String key, final int hash, final int shift) {
+            final int index = indexOf(key, hash);
+            if (index < 0) {
+                return this;
+            }
+            if (entries.length == 2) {
+                return new BitmapNode(bit(hash, shift), new Object[]{entries[1 - index]});
+            }
+            final Entry[] copy = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 1, copy, index, entries.length - index - 1);
+            return new CollisionNode(hash, copy);
+        }
+
+        public void collect(final Map<String, Object> entries) {
+            for (final Entry entry : this.entries) {
+                entries.put(entry.key, entry.value);
+            }
+        }
+
+        private int indexOf(final String key, final int hash) {
+            if (hash == this.hash) {
+                for (int i = 0; i < entries.length; i++) {
+                    if (entries[i].key.equals(key)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@link Properties} whose entries live in an {@link OffHeapTable} instead of the heap. Loading, storing and the
+ * {@code Hashtable} operations all go through the table, so the object can replace a plain {@code Properties} behind a
+ * {@link com.mansoor.uncommon.configuration.PropertyConfiguration}. Keys and values must be strings.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class OffHeapProperties extends Properties {
+    private static final long serialVersionUID = 1L;
+    private final transient OffHeapTable table;
+
+    /**
+     * Creates empty properties backed by a new table.
+     */
+    public OffHeapProperties() {
+        this(new OffHeapTable());
+    }
+
+    /**
+     * Creates properties backed by the given table.
+     *
+     * @param table off-heap table
+     */
+    public OffHeapProperties(final OffHeapTable table) {
+        Preconditions.checkNull(table, "table is null");
+        this.table = table;
+    }
+
+    /**
+     * Returns the table holding the entries.
+     *
+     * @return off-heap table
+     */
+    public OffHeapTable getTable() {
+        return table;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getProperty(final String key) {
+        return table.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getProperty(final String key, final String defaultValue) {
+        final String value = table.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized Object setProperty(final String key, final String value) {
+        return table.put(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(final Object key) {
+        return key instanceof String ? table.get((String) key) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized Object put(final Object key, final Object value) {
+        Preconditions.checkArgument(key instanceof String && value instanceof String, "Off-heap properties only hold strings");
+        return table.put((String) key, (String) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void putAll(final Map<?, ?> map) {
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized Object remove(final Object key) {
+        return key instanceof String ? table.remove((String) key) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(final Object key) {
+        return key instanceof String && table.containsKey((String) key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(final Object value) {
+        for (final Map.Entry<String, String> entry : table) {
+            if (entry.getValue().equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(final Object value) {
+        return containsValue(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void clear() {
+        table.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<Object, Object>>() {
+            public Iterator<Map.Entry<Object, Object>> iterator() {
+                final Iterator<Map.Entry<String, String>> entries = table.iterator();
+                return new Iterator<Map.Entry<Object, Object>>() {
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<Object, Object> next() {
+                        return (Map.Entry) entries.next();
+                    }
+
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            public int size() {
+                return table.size();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Object> keySet() {
+        final Set<Object> keys = new LinkedHashSet<Object>();
+        for (final Map.Entry<String, String> entry : table) {
+            keys.add(entry.getKey());
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<Object> values() {
+        final List<Object> values = new ArrayList<Object>();
+        for (final Map.Entry<String, String> entry : table) {
+            values.add(entry.getValue());
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Enumeration<Object> keys() {
+        return Collections.enumeration(keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Enumeration<Object> elements() {
+        return Collections.enumeration(values());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Enumeration<?> propertyNames() {
+        return keys();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<String> stringPropertyNames() {
+        final Set<String> names = new LinkedHashSet<String>();
+        for (final Map.Entry<String, String> entry : table) {
+            names.add(entry.getKey());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean equals(final Object o) {
+        return o instanceof Map && entrySet().equals(((Map<?, ?>) o).entrySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int hashCode() {
+        return entrySet().hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized String toString() {
+        final Map<String, String> copy = new LinkedHashMap<String, String>();
+        for (final Map.Entry<String, String> entry : table) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return copy.toString();
+    }
+}
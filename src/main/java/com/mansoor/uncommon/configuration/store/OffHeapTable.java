@@ -0,0 +1,564 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mutable string to string table held outside the Java heap. Keys and values are encoded as UTF-8 and appended to a
+ * direct data buffer; an open addressing index in a second direct buffer maps each key to its entry. Strings are
+ * decoded only when read, so a table with millions of entries costs the garbage collector two buffer objects instead
+ * of millions of strings.
+ * <p>
+ * Each index slot packs the key hash into its upper 32 bits and the entry offset plus one into the lower 32 bits;
+ * zero marks an empty slot and {@code -1} a removed one. Probing is linear and compares the stored hash before the
+ * key bytes. Replacing or removing an entry leaves its bytes in the data buffer; the buffer is compacted when it is
+ * full and at least half of it is garbage, and doubled otherwise.
+ * </p>
+ * <pre>
+ *      entry   key length (int), value length (int), UTF-8 key, UTF-8 value
+ * </pre>
+ * <p>
+ * Reads may run concurrently; writes are exclusive. Iterators work on the entries present when they were created.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class OffHeapTable implements Iterable<Map.Entry<String, String>> {
+    private static final String UTF8 = "UTF-8";
+    private static final long EMPTY = 0L;
+    private static final long REMOVED = -1L;
+    private static final int HEADER = 8;
+    private static final int MIN_SLOTS = 16;
+    private static final int MIN_DATA = 1024;
+    private static final int MAX_DATA = Integer.MAX_VALUE - 8;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongBuffer index;
+    private ByteBuffer data;
+    private int used;
+    private int garbage;
+    private int size;
+    private int removed;
+
+    /**
+     * Creates an empty table.
+     */
+    public OffHeapTable() {
+        this(MIN_SLOTS);
+    }
+
+    /**
+     * Creates an empty table sized for the expected number of entries.
+     *
+     * @param expectedSize expected number of entries
+     */
+    public OffHeapTable(final int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0 && expectedSize <= 1 << 28, "expectedSize must be between 0 and 2^28");
+        index = allocateIndex(slotsFor(expectedSize));
+        data = ByteBuffer.allocateDirect(MIN_DATA);
+    }
+
+    /**
+     * Returns the value stored under the key.
+     *
+     * @param key key
+     * @return value or {@code null}
+     */
+    public String get(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final byte[] encoded = encode(key);
+        lock.readLock().lock();
+        try {
+            final int slot = find(key.hashCode(), encoded);
+            return slot < 0 ? null : value(data, offset(index.get(slot)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the table holds the key.
+     *
+     * @param key key
+     * @return true if present
+     */
+    public boolean containsKey(final String key) {
+        if (key == null) {
+            return false;
+        }
+        final byte[] encoded = encode(key);
+        lock.readLock().lock();
+        try {
+            return find(key.hashCode(), encoded) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the value under the key.
+     *
+     * @param key   key
+     * @param value value
+     * @return previous value or {@code null}
+     */
+    public String put(final String key, final String value) {
+        Preconditions.checkNull(key, "key is null");
+        Preconditions.checkNull(value, "value is null");
+        final byte[] encodedKey = encode(key);
+        final byte[] encodedValue = encode(value);
+        final int hash = key.hashCode();
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, encodedKey);
+            final String previous = slot < 0 ? null : value(data, offset(index.get(slot)));
+            final LongBuffer before = index;
+            final int offset = append(encodedKey, encodedValue);
+            if (index != before && slot >= 0) {
+                slot = find(hash, encodedKey);
+            }
+            if (slot >= 0) {
+                garbage += length(data, offset(index.get(slot)));
+                index.put(slot, pack(hash, offset));
+            } else {
+                if ((size + removed + 1) * 2 > index.capacity()) {
+                    rehash(slotsFor(size + 1));
+                }
+                insert(index, hash, offset);
+                size++;
+            }
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key key
+     * @return removed value or {@code null}
+     */
+    public String remove(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final byte[] encoded = encode(key);
+        lock.writeLock().lock();
+        try {
+            final int slot = find(key.hashCode(), encoded);
+            if (slot < 0) {
+                return null;
+            }
+            final int offset = offset(index.get(slot));
+            final String previous = value(data, offset);
+            garbage += length(data, offset);
+            index.put(slot, REMOVED);
+            size--;
+            removed++;
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every entry and releases the buffers held so far.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index = allocateIndex(MIN_SLOTS);
+            data = ByteBuffer.allocateDirect(MIN_DATA);
+            used = 0;
+            garbage = 0;
+            size = 0;
+            removed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return entry count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes reserved outside the heap by the index and data buffers.
+     *
+     * @return reserved bytes
+     */
+    public long getReservedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) index.capacity() * 8 + data.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<Map.Entry<String, String>> iterator() {
+        lock.readLock().lock();
+        try {
+            final int[] offsets = new int[size];
+            int count = 0;
+            for (int i = 0; i < index.capacity(); i++) {
+                final long entry = index.get(i);
+                if (entry != EMPTY && entry != REMOVED) {
+                    offsets[count++] = offset(entry);
+                }
+            }
+            return new EntryIterator(data, offsets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares two tables entry by entry on their encoded bytes and collects the keys that differ. Only the keys that
+     * differ are decoded, so comparing two large tables that are mostly equal creates little garbage.
+     *
+     * @param before  table before the change
+     * @param after   table after the change
+     * @param added   receives the keys only present in {@code after}
+     * @param removed receives the keys only present in {@code before}
+     * @param changed receives the keys whose values differ
+     */
+    public static void diff(final OffHeapTable before, final OffHeapTable after, final Collection<String> added,
+                            final Collection<String> removed, final Collection<String> changed) {
+        Preconditions.checkNull(before, "before is null");
+        Preconditions.checkNull(after, "after is null");
+        if (before == after) {
+            return;
+        }
+        before.lock.readLock().lock();
+        try {
+            after.lock.readLock().lock();
+            try {
+                after.collect(before, added, changed);
+                before.collect(after, removed, null);
+            } finally {
+                after.lock.readLock().unlock();
+            }
+        } finally {
+            before.lock.readLock().unlock();
+        }
+    }
+
+    private void collect(final OffHeapTable other, final Collection<String> missing, final Collection<String> changed) {
+        for (int i = 0; i < index.capacity(); i++) {
+            final long entry = index.get(i);
+            if (entry == EMPTY || entry == REMOVED) {
+                continue;
+            }
+            final int offset = offset(entry);
+            final int slot = other.find((int) (entry >>> 32), data, offset);
+            if (slot < 0) {
+                missing.add(key(data, offset));
+            } else if (changed != null && !valueEquals(data, offset, other.data, offset(other.index.get(slot)))) {
+                changed.add(key(data, offset));
+            }
+        }
+    }
+
+    private int find(final int hash, final ByteBuffer source, final int sourceOffset) {
+        final int mask = index.capacity() - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            final long entry = index.get(slot);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != REMOVED && (int) (entry >>> 32) == hash
+                    && bytesEqual(data, offset(entry) + HEADER, data.getInt(offset(entry)),
+                    source, sourceOffset + HEADER, source.getInt(sourceOffset))) {
+                return slot;
+            }
+        }
+    }
+
+    private static boolean valueEquals(final ByteBuffer a, final int aOffset, final ByteBuffer b, final int bOffset) {
+        return bytesEqual(a, aOffset + HEADER + a.getInt(aOffset), a.getInt(aOffset + 4),
+                b, bOffset + HEADER + b.getInt(bOffset), b.getInt(bOffset + 4));
+    }
+
+    private static boolean bytesEqual(final ByteBuffer a, final int aStart, final int aLength,
+                                      final ByteBuffer b, final int bStart, final int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a.get(aStart + i) != b.get(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int find(final int hash, final byte[] key) {
+        final int mask = index.capacity() - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            final long entry = index.get(slot);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != REMOVED && (int) (entry >>> 32) == hash && keyEquals(offset(entry), key)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals(final int offset, final byte[] key) {
+        if (data.getInt(offset) != key.length) {
+            return false;
+        }
+        final int start = offset + HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int append(final byte[] key, final byte[] value) {
+        final long needed = (long) HEADER + key.length + value.length;
+        if (used + needed > data.capacity()) {
+            makeRoom(needed);
+        }
+        final int offset = used;
+        data.putInt(offset, key.length);
+        data.putInt(offset + 4, value.length);
+        final ByteBuffer target = data.duplicate();
+        target.position(offset + HEADER);
+        target.put(key);
+        target.put(value);
+        used += (int) needed;
+        return offset;
+    }
+
+    private void makeRoom(final long needed) {
+        final long live = (long) used - garbage;
+        long capacity = Math.max(MIN_DATA, garbage * 2 >= used ? data.capacity() : (long) data.capacity() * 2);
+        while (capacity < live + needed) {
+            capacity *= 2;
+        }
+        if (live + needed > MAX_DATA) {
+            throw new IllegalStateException("Off-heap table is full");
+        }
+        final ByteBuffer target = ByteBuffer.allocateDirect((int) Math.min(capacity, MAX_DATA));
+        final LongBuffer slots = allocateIndex(index.capacity());
+        int position = 0;
+        for (int i = 0; i < index.capacity(); i++) {
+            final long entry = index.get(i);
+            if (entry == EMPTY || entry == REMOVED) {
+                continue;
+            }
+            final int offset = offset(entry);
+            final int length = length(data, offset);
+            final ByteBuffer source = data.duplicate();
+            source.position(offset);
+            source.limit(offset + length);
+            target.position(position);
+            target.put(source);
+            insert(slots, (int) (entry >>> 32), position);
+            position += length;
+        }
+        data = target;
+        index = slots;
+        used = position;
+        garbage = 0;
+        removed = 0;
+    }
+
+    private void rehash(final int slots) {
+        final LongBuffer target = allocateIndex(Math.max(slots, index.capacity()));
+        for (int i = 0; i < index.capacity(); i++) {
+            final long entry = index.get(i);
+            if (entry != EMPTY && entry != REMOVED) {
+                insert(target, (int) (entry >>> 32), offset(entry));
+            }
+        }
+        index = target;
+        removed = 0;
+    }
+
+    private static void insert(final LongBuffer slots, final int hash, final int offset) {
+        final int mask = slots.capacity() - 1;
+        int slot = spread(hash) & mask;
+        while (slots.get(slot) != EMPTY && slots.get(slot) != REMOVED) {
+            slot = (slot + 1) & mask;
+        }
+        slots.put(slot, pack(hash, offset));
+    }
+
+    private static LongBuffer allocateIndex(final int slots) {
+        return ByteBuffer.allocateDirect(slots * 8).asLongBuffer();
+    }
+
+    private static int slotsFor(final int entries) {
+        int slots = MIN_SLOTS;
+        while (slots < entries * 2) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long pack(final int hash, final int offset) {
+        return ((long) hash << 32) | ((offset + 1) & 0xFFFFFFFFL);
+    }
+
+    private static int offset(final long entry) {
+        return (int) entry - 1;
+    }
+
+    private static int length(final ByteBuffer buffer, final int offset) {
+        return HEADER + buffer.getInt(offset) + buffer.getInt(offset + 4);
+    }
+
+    private static String key(final ByteBuffer buffer, final int offset) {
+        return decode(buffer, offset + HEADER, buffer.getInt(offset));
+    }
+
+    private static String value(final ByteBuffer buffer, final int offset) {
+        return decode(buffer, offset + HEADER + buffer.getInt(offset), buffer.getInt(offset + 4));
+    }
+
+    private static String decode(final ByteBuffer buffer, final int start, final int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(start);
+        source.get(bytes);
+        try {
+            return new String(bytes, UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encode(final String text) {
+        try {
+            return text.getBytes(UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private int next;
+        private String last;
+
+        private EntryIterator(final ByteBuffer buffer, final int[] offsets) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+        }
+
+        public boolean hasNext() {
+            return next < offsets.length;
+        }
+
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int offset = offsets[next++];
+            last = key(buffer, offset);
+            return new Entry(last, value(buffer, offset));
+        }
+
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException("next() has not been called");
+            }
+            OffHeapTable.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * Entry decoded from the table; changes are made through the table, not the entry.
+     */
+    private static final class Entry implements Map.Entry<String, String> {
+        private final String key;
+        private final String value;
+
+        private Entry(final String key, final String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String setValue(final String value) {
+            throw new UnsupportedOperationException("Entries of an off-heap table are read-only");
+        }
+
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return key.equals(other.getKey()) && value.equals(other.getValue());
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.mansoor.uncommon.configuration.store;
+
+import com.mansoor.uncommon.configuration.snapshot.Snapshot;
+import com.mansoor.uncommon.configuration.util.Preconditions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ConfigStore} that reads the leaves of a {@link Snapshot} in place. Changes are kept in a small
+ * {@link HamtStore} on top of the snapshot, so a mapped snapshot is never copied to the heap to build a store.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class SnapshotStore implements ConfigStore {
+    private static final Object REMOVED = new Object();
+    private final Snapshot snapshot;
+    private final ConfigStore changes;
+
+    private SnapshotStore(final Snapshot snapshot, final ConfigStore changes) {
+        this.snapshot = snapshot;
+        this.changes = changes;
+    }
+
+    /**
+     * Creates a store holding the leaves of the given snapshot.
+     *
+     * @param snapshot snapshot to read
+     * @return store
+     */
+    public static SnapshotStore of(final Snapshot snapshot) {
+        Preconditions.checkNull(snapshot, "snapshot is null");
+        return new SnapshotStore(snapshot, HamtStore.EMPTY);
+    }
+
+    /**
+     * Returns the snapshot the store reads.
+     *
+     * @return snapshot
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Moves the store onto a newer snapshot and applies the changes between the two. Keys that are not in
+     * {@code changes} must hold the same leaf in both snapshots.
+     *
+     * @param next    newer snapshot
+     * @param changed keys mapped to their new raw values
+     * @return store reading {@code next}
+     */
+    public SnapshotStore rebase(final Snapshot next, final Map<String, ?> changed) {
+        Preconditions.checkNull(next, "snapshot is null");
+        return new SnapshotStore(next, changes).apply(changed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(final String key) {
+        final Object changed = changes.get(key);
+        if (changed != null) {
+            return changed == REMOVED ? null : changed;
+        }
+        final int entry = snapshot.findLeaf(key);
+        return entry < 0 ? null : snapshot.leafValue(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SnapshotStore apply(final Map<String, ?> changed) {
+        if (changed.isEmpty()) {
+            return this;
+        }
+        final Map<String, Object> overlay = new HashMap<String, Object>();
+        for (final Map.Entry<String, ?> change : changed.entrySet()) {
+            final int entry = snapshot.findLeaf(change.getKey());
+            final Object loaded = entry < 0 ? null : snapshot.leafValue(entry);
+            if (change.getValue() == null) {
+                overlay.put(change.getKey(), loaded == null ? null : REMOVED);
+            } else {
+                overlay.put(change.getKey(), change.getValue().equals(loaded) ? null : change.getValue());
+            }
+        }
+        return new SnapshotStore(snapshot, changes.apply(overlay));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return toMap().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> entries = snapshot.flatten();
+        for (final Map.Entry<String, Object> change : changes.toMap().entrySet()) {
+            if (change.getValue() == REMOVED) {
+                entries.remove(change.getKey());
+            } else {
+                entries.put(change.getKey(), change.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+}
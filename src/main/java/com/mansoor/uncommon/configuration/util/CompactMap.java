@@ -0,0 +1,286 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map for the small nested nodes of YAML and JSON trees. Up to {@link #THRESHOLD} entries are kept in a single array
+ * of alternating keys and values, in insertion order, and found with a linear search; there is no hash table, no
+ * entry objects and no load factor slack. A node that grows past the threshold is promoted to a
+ * {@code LinkedHashMap}.
+ * <p/>
+ * Writes are expected to be serialized by the owning configuration while reads run without a lock. The array, its
+ * size and the promoted map are therefore published together through one volatile field: an entry is appended to a
+ * slot no published size covers yet, a grown array or promoted map is filled completely before it is published, and
+ * removal copies the array instead of shifting it under a reader. Replacing the value of an existing key is a single
+ * reference write.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public class CompactMap extends AbstractMap<String, Object> {
+    /**
+     * Largest number of entries kept in the array.
+     */
+    public static final int THRESHOLD = 8;
+    private volatile State state;
+
+    /**
+     * Creates an empty map sized for the given number of entries.
+     *
+     * @param capacity expected number of entries
+     */
+    public CompactMap(final int capacity) {
+        state = new State(new Object[Math.max(1, Math.min(capacity, THRESHOLD)) * 2], 0, null);
+    }
+
+    /**
+     * Returns {@code true} if the map was promoted to a hash map.
+     *
+     * @return true if promoted
+     */
+    public boolean isPromoted() {
+        return state.promoted != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        final State current = state;
+        return current.promoted != null ? current.promoted.size() : current.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(final Object key) {
+        final State current = state;
+        return current.promoted != null ? current.promoted.containsKey(key) : current.indexOf(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(final Object key) {
+        final State current = state;
+        if (current.promoted != null) {
+            return current.promoted.get(key);
+        }
+        final int index = current.indexOf(key);
+        return index < 0 ? null : current.table[index + 1];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object put(final String key, final Object value) {
+        final State current = state;
+        if (current.promoted != null) {
+            return current.promoted.put(key, value);
+        }
+        final Object[] table = current.table;
+        final int size = current.size;
+        final int index = current.indexOf(key);
+        if (index >= 0) {
+            final Object previous = table[index + 1];
+            table[index + 1] = value;
+            return previous;
+        }
+        if (size == THRESHOLD) {
+            final Map<String, Object> promoted = new LinkedHashMap<String, Object>(THRESHOLD * 4);
+            for (int i = 0; i < size * 2; i += 2) {
+                promoted.put((String) table[i], table[i + 1]);
+            }
+            promoted.put(key, value);
+            state = new State(null, 0, promoted);
+            return null;
+        }
+        Object[] target = table;
+        if (size * 2 == table.length) {
+            target = new Object[Math.min(size * 2, THRESHOLD) * 2];
+            System.arraycopy(table, 0, target, 0, table.length);
+        }
+        target[size * 2] = key;
+        target[size * 2 + 1] = value;
+        state = new State(target, size + 1, null);
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object remove(final Object key) {
+        final State current = state;
+        if (current.promoted != null) {
+            return current.promoted.remove(key);
+        }
+        final int index = current.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final Object previous = current.table[index + 1];
+        final Object[] copy = new Object[current.table.length];
+        System.arraycopy(current.table, 0, copy, 0, index);
+        System.arraycopy(current.table, index + 2, copy, index, current.size * 2 - index - 2);
+        state = new State(copy, current.size - 1, null);
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear() {
+        final State current = state;
+        if (current.promoted != null) {
+            current.promoted.clear();
+        } else {
+            state = new State(new Object[current.table.length], 0, null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Map.Entry<String, Object>> entrySet() {
+        final State current = state;
+        if (current.promoted != null) {
+            return current.promoted.entrySet();
+        }
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                final State latest = state;
+                return latest.promoted != null ? latest.promoted.entrySet().iterator() : new EntryIterator(latest);
+            }
+
+            public int size() {
+                return CompactMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Array, size and promoted map published together; never modified except for values of existing keys and
+     * slots past {@code size}.
+     */
+    private static final class State {
+        private final Object[] table;
+        private final int size;
+        private final Map<String, Object> promoted;
+
+        private State(final Object[] table, final int size, final Map<String, Object> promoted) {
+            this.table = table;
+            this.size = size;
+            this.promoted = promoted;
+        }
+
+        private int indexOf(final Object key) {
+            for (int i = 0; i < size * 2; i += 2) {
+                if (table[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Iterates over the array in insertion order as it was when the iterator was created.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+        private final State current;
+        private int next;
+        private String last;
+
+        private EntryIterator(final State current) {
+            this.current = current;
+        }
+
+        public boolean hasNext() {
+            return next < current.size * 2;
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = (String) current.table[next];
+            final Object value = current.table[next + 1];
+            next += 2;
+            return new ArrayEntry(last, value);
+        }
+
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            CompactMap.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * Entry that writes through to the map.
+     */
+    private final class ArrayEntry implements Map.Entry<String, Object> {
+        private final String key;
+        private Object value;
+
+        private ArrayEntry(final String key, final Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Object setValue(final Object value) {
+            final Object previous = this.value;
+            put(key, value);
+            this.value = value;
+            return previous;
+        }
+
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return key.equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Opens configuration files and streams, transparently compressing or decompressing them.
+ * <p>
+ * Files ending in {@code .gz} or {@code .gzip} are read and written as gzip, files ending in {@code .deflate},
+ * {@code .zz} or {@code .zlib} as zlib deflate streams. Gzip content is also recognized by its header when it is
+ * read from a stream or from a file without one of these extensions. Decompression is streamed; the decompressed
+ * content is only held in memory as a whole when the format reading it needs that, as a compressed snapshot does.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class Compression {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private Compression() {
+    }
+
+    /**
+     * Opens the given file for reading, decompressing it if required.
+     *
+     * @param file file to open
+     * @return stream of decompressed content
+     * @throws IOException if the file can not be opened
+     */
+    public static InputStream openInput(final File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+        try {
+            return isDeflate(file) ? new InflaterInputStream(input, new Inflater(), BUFFER_SIZE) : decompress(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the given file for writing, compressing it if its name requires it.
+     *
+     * @param file file to open
+     * @return stream that writes to the file
+     * @throws IOException if the file can not be opened
+     */
+    public static OutputStream openOutput(final File file) throws IOException {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            if (isGzip(file)) {
+                return new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            return new BufferedOutputStream(isDeflate(file) ? new DeflaterOutputStream(output) : output, BUFFER_SIZE);
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the given stream in a gzip decompressor if it starts with a gzip header.
+     *
+     * @param input stream to inspect
+     * @return stream of decompressed content
+     * @throws IOException if reading the header fails
+     */
+    public static InputStream decompress(final InputStream input) throws IOException {
+        final PushbackInputStream pushback = new PushbackInputStream(input, 2);
+        final int first = pushback.read();
+        final int second = first == -1 ? -1 : pushback.read();
+        if (second != -1) {
+            pushback.unread(second);
+        }
+        if (first != -1) {
+            pushback.unread(first);
+        }
+        final boolean gzip = first != -1 && second != -1 && ((second << 8) | first) == GZIP_MAGIC;
+        return gzip ? new GZIPInputStream(pushback, BUFFER_SIZE) : pushback;
+    }
+
+    /**
+     * Returns {@code true} if the file name has a gzip extension
+     *
+     * @param file file
+     * @return true if the file is gzip compressed
+     */
+    public static boolean isGzip(final File file) {
+        final String name = file.getName().toLowerCase();
+        return name.endsWith(".gz") || name.endsWith(".gzip");
+    }
+
+    /**
+     * Returns {@code true} if the file name has a deflate extension
+     *
+     * @param file file
+     * @return true if the file is deflate compressed
+     */
+    public static boolean isDeflate(final File file) {
+        final String name = file.getName().toLowerCase();
+        return name.endsWith(".deflate") || name.endsWith(".zz") || name.endsWith(".zlib");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility methods for working with the key paths of a configuration.
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class KeyPaths {
+    private KeyPaths() {
+    }
+
+    /**
+     * Flattens the given top level entries to a map of keys and leaf values. For hierarchical configurations nested
+     * maps are walked and their leaves are keyed by their nested path ({@code development.password.database}),
+     * empty maps are kept as leaves.
+     *
+     * @param entries      top level entries
+     * @param hierarchical whether map values are nested nodes
+     * @return leaf keys mapped to their values
+     */
+    public static Map<String, Object> flatten(final Map<String, ?> entries, final boolean hierarchical) {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (final Map.Entry<?, ?> entry : entries.entrySet()) {
+            flatten(String.valueOf(entry.getKey()), entry.getValue(), hierarchical, result);
+        }
+        return result;
+    }
+
+    /**
+     * Flattens a single value stored under the given key.
+     *
+     * @param key          key or nested path of the value
+     * @param value        value, ignored if {@code null}
+     * @param hierarchical whether map values are nested nodes
+     * @return leaf keys mapped to their values
+     */
+    public static Map<String, Object> flatten(final String key, final Object value, final boolean hierarchical) {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        flatten(key, value, hierarchical, result);
+        return result;
+    }
+
+    private static void flatten(final String path, final Object value, final boolean hierarchical, final Map<String, Object> result) {
+        if (value == null) {
+            return;
+        }
+        if (hierarchical && value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+            for (final Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+                flatten(path + "." + child.getKey(), child.getValue(), true, result);
+            }
+        } else {
+            result.put(path, value);
+        }
+    }
+
+    /**
+     * Returns the parent path of a nested key, {@code development.password} for
+     * {@code development.password.database}.
+     *
+     * @param key nested key
+     * @return parent path or {@code null} for a top level key
+     */
+    public static String parent(final String key) {
+        final int dot = key.lastIndexOf('.');
+        return dot > 0 ? key.substring(0, dot) : null;
+    }
+}
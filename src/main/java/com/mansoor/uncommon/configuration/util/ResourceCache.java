@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of classpath resource content keyed by resource {@code URL}. Each resource is read once, even when several
+ * threads request it at the same time, and the content is handed out as read only buffers sharing the same bytes.
+ * <p>
+ * Content is held through soft references, so the cache never keeps a resource, or the class loader it came from,
+ * alive once the memory is needed; a resource whose content was collected is simply read again.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class ResourceCache {
+    private static final ConcurrentMap<String, ContentReference> cache = new ConcurrentHashMap<String, ContentReference>();
+    private static final ReferenceQueue<Future<ByteBuffer>> collected = new ReferenceQueue<Future<ByteBuffer>>();
+
+    private ResourceCache() {
+    }
+
+    /**
+     * Returns the content of the given resource, reading it if it is not cached yet.
+     *
+     * @param url resource url
+     * @return read only buffer positioned at the start of the content
+     * @throws IOException if the resource can not be read
+     */
+    public static ByteBuffer read(final URL url) throws IOException {
+        Preconditions.checkNull(url, "url is null");
+        purge();
+        final String key = url.toExternalForm();
+        ContentReference reference = cache.get(key);
+        Future<ByteBuffer> content = reference == null ? null : reference.get();
+        while (content == null) {
+            final FutureTask<ByteBuffer> task = new FutureTask<ByteBuffer>(new Callable<ByteBuffer>() {
+                public ByteBuffer call() throws IOException {
+                    return ByteBuffer.wrap(readFully(url)).asReadOnlyBuffer();
+                }
+            });
+            final ContentReference created = new ContentReference(key, task);
+            if (reference == null ? cache.putIfAbsent(key, created) == null : cache.replace(key, reference, created)) {
+                reference = created;
+                content = task;
+                task.run();
+            } else {
+                reference = cache.get(key);
+                content = reference == null ? null : reference.get();
+            }
+        }
+        try {
+            return content.get().duplicate();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + url);
+        } catch (ExecutionException e) {
+            cache.remove(key, reference);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to read " + url, e.getCause());
+        }
+    }
+
+    /**
+     * Removes the given resource from the cache, so the next load reads it again.
+     *
+     * @param url resource url
+     */
+    public static void invalidate(final URL url) {
+        Preconditions.checkNull(url, "url is null");
+        cache.remove(url.toExternalForm());
+    }
+
+    /**
+     * Removes all resources from the cache.
+     */
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Removes the entries whose content was collected.
+     */
+    private static void purge() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            cache.remove(((ContentReference) reference).key, reference);
+        }
+    }
+
+    /**
+     * Soft reference to the content of a resource that remembers its key.
+     */
+    private static final class ContentReference extends SoftReference<Future<ByteBuffer>> {
+        private final String key;
+
+        private ContentReference(final String key, final Future<ByteBuffer> content) {
+            super(content, collected);
+            this.key = key;
+        }
+    }
+
+    private static byte[] readFully(final URL url) throws IOException {
+        final InputStream input = url.openStream();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded table of canonical strings. {@link #deduplicate(String)} returns the string already in the table when an
+ * equal string was seen before, so repeated keys and values of a loaded configuration share one instance.
+ * <p>
+ * The table is direct mapped: a string goes to the slot chosen by its hash and replaces whatever the slot held, so
+ * the table never holds more than its capacity and needs no eviction bookkeeping. Strings longer than
+ * {@link #MAX_LENGTH} are not kept. The table can be shared between threads.
+ * </p>
+ *
+ * @author Muhammad Ashraf
+ * @since 0.2
+ */
+public final class StringDeduplicator {
+    /**
+     * Longest string kept in the table.
+     */
+    public static final int MAX_LENGTH = 256;
+    private final String[] table;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * Creates a table holding up to the given number of strings, rounded up to a power of two.
+     *
+     * @param capacity table capacity
+     */
+    public StringDeduplicator(final int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30");
+        int slots = 1;
+        while (slots < capacity) {
+            slots <<= 1;
+        }
+        table = new String[slots];
+    }
+
+    /**
+     * Returns the canonical instance of the string.
+     *
+     * @param value string, may be {@code null}
+     * @return an equal string from the table, or {@code value} itself
+     */
+    public String deduplicate(final String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        final int h = value.hashCode();
+        final int slot = (h ^ (h >>> 16)) & (table.length - 1);
+        final String existing = table[slot];
+        if (existing == value) {
+            return value;
+        }
+        if (existing != null && existing.equals(value)) {
+            hits.incrementAndGet();
+            bytesSaved.addAndGet(size(value));
+            return existing;
+        }
+        table[slot] = value;
+        return value;
+    }
+
+    /**
+     * Returns the number of strings that were replaced by an equal string from the table.
+     *
+     * @return hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the estimated heap no longer used by replaced strings, as laid out by the Java 5 and 6 JVMs this
+     * library targets on 64 bits with compressed references: a 32 byte {@code String} object holding the array
+     * reference, offset, count and hash, plus a {@code char[]} of two bytes per character. Later JVMs that store
+     * Latin-1 strings in one byte per character save less than reported.
+     *
+     * @return bytes saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Returns the number of slots of the table.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return table.length;
+    }
+
+    private static long size(final String value) {
+        return 32 + ((16 + 2L * value.length() + 7) & ~7);
+    }
+}
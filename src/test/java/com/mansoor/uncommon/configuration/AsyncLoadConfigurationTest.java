@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.exceptions.ConfigurationLoadException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class AsyncLoadConfigurationTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLoadAsync() throws Exception {
+        final JsonConfiguration configuration = new JsonConfiguration();
+        final Future<BaseConfiguration> loaded = configuration.loadAsync(resource("/sample.json"), executor);
+        assertThat(loaded.get(), is(sameInstance((BaseConfiguration) configuration)));
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+    }
+
+    @Test
+    public void testLoadAll() {
+        final File json = resource("/sample.json");
+        final File yaml = resource("/sample.yaml");
+        final File properties = resource("/sample.properties");
+        final Map<File, BaseConfiguration> loaded = Configurations.loadAll(Arrays.asList(json, yaml, properties), executor);
+
+        assertThat(new ArrayList<File>(loaded.keySet()), is(equalTo(Arrays.asList(json, yaml, properties))));
+        assertThat(loaded.get(json), is(instanceOf(JsonConfiguration.class)));
+        assertThat(loaded.get(yaml).getNested(String.class, "development.url"), is(equalTo("http://localhost:8080/demo")));
+        assertThat(loaded.get(properties), is(instanceOf(PropertyConfiguration.class)));
+    }
+
+    @Test
+    public void testLoadAllReportsEveryFailure() throws Exception {
+        final File broken = File.createTempFile("broken", ".json");
+        broken.deleteOnExit();
+        final Writer writer = new FileWriter(broken);
+        try {
+            writer.write("{\"development\":");
+        } finally {
+            writer.close();
+        }
+        final File missing = new File(broken.getParentFile(), "missing-" + System.nanoTime() + ".yaml");
+        try {
+            Configurations.loadAll(Arrays.asList(resource("/sample.json"), broken, missing), executor);
+            throw new AssertionError("loading should fail");
+        } catch (ConfigurationLoadException e) {
+            assertThat(new ArrayList<File>(e.getFailures().keySet()), is(equalTo(Arrays.asList(broken, missing))));
+            assertThat(e.getMessage(), containsString(missing.getPath()));
+            assertThat(e.getCause(), is(sameInstance(e.getFailures().get(broken))));
+        }
+    }
+
+    private File resource(final String name) {
+        return new File(this.getClass().getResource(name).getPath());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.util.CompactMap;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CompactNodeConfigurationTest {
+
+    @Test
+    public void testYamlNodesAreCompact() throws Exception {
+        final File file = File.createTempFile("compact", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "development:\n  url: http://localhost\n  hosts:\n    - name: a\n      port: 1\n  database:\n    name: demo\nname: demo\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        assertThat(configuration.getRawValue("development"), is(instanceOf(CompactMap.class)));
+        assertThat(configuration.getNestedValue("development.database"), is(instanceOf(CompactMap.class)));
+        assertThat(configuration.getNested(String.class, "development.database.name"), is(equalTo("demo")));
+        configuration.setNested("development.cache.size", 10);
+        assertThat(configuration.getNested(Integer.class, "development.cache.size"), is(10));
+
+        final File saved = configuration.save(File.createTempFile("compact", ".yaml").getPath());
+        saved.deleteOnExit();
+        final YamlConfiguration copy = new YamlConfiguration();
+        copy.load(saved);
+        assertThat(copy.getNested(String.class, "development.url"), is(equalTo("http://localhost")));
+        assertThat(copy.getNested(Integer.class, "development.cache.size"), is(10));
+        assertThat(((List<?>) copy.getNestedValue("development.hosts")).get(0), is(instanceOf(CompactMap.class)));
+    }
+
+    @Test
+    public void testJsonNodesPrintAsJson() throws Exception {
+        final File file = File.createTempFile("compact", ".json");
+        file.deleteOnExit();
+        TestUtil.write(file, "{\"development\":{\"port\":8080},\"hosts\":[\"a\",\"b\"]}");
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(file);
+        assertThat(configuration.getRawValue("development"), is(instanceOf(CompactMap.class)));
+        assertThat(configuration.get(String.class, "development"), is(equalTo("{\"port\":8080}")));
+        assertThat(configuration.getNested(Integer.class, "development.port"), is(8080));
+        assertThat(configuration.getList(String.class, "hosts"), is(equalTo(Arrays.asList("a", "b"))));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CompositeConfigurationTest {
+    private PropertyConfiguration overrides;
+    private YamlConfiguration defaults;
+    private CompositeConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        overrides = new PropertyConfiguration();
+        overrides.set("development.url", "http://override");
+        defaults = new YamlConfiguration();
+        defaults.load(this.getClass().getResource("/sample.yaml").getPath());
+        configuration = new CompositeConfiguration(overrides, defaults);
+    }
+
+    @Test
+    public void testFirstLayerWins() {
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://override")));
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+        assertThat(configuration.getNestedList(String.class, "development.logFiles"), is(equalTo(Arrays.asList("/logs/debug.log", "/logs/error.log"))));
+        assertThat(configuration.get(String.class, "description"), is(equalTo("development environment")));
+        assertThat(configuration.get(String.class, "development.url"), is(equalTo("http://override")));
+        assertThat(configuration.getNestedLayer("development.password.dbpassword"), is(sameInstance((BaseConfiguration) defaults)));
+        assertThat(configuration.get(String.class, "missing"), is(nullValue()));
+        assertThat(configuration.getNested(String.class, "development.missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testIndexFollowsLayerChanges() {
+        overrides.set("description", "overridden");
+        assertThat(configuration.get(String.class, "description"), is(equalTo("overridden")));
+
+        defaults.setNested("development.password.dbpassword", "changed");
+        assertThat(configuration.getNested(String.class, "development.password.dbpassword"), is(equalTo("changed")));
+
+        defaults.setNested("production.url", "http://production");
+        assertThat(configuration.getNested(String.class, "production.url"), is(equalTo("http://production")));
+        assertThat(configuration.getLayer("production"), is(sameInstance((BaseConfiguration) defaults)));
+
+        overrides.clear();
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://localhost:8080/demo")));
+        assertThat(configuration.get(String.class, "description"), is(equalTo("development environment")));
+
+        defaults.clear();
+        assertThat(configuration.getNested(String.class, "development.url"), is(nullValue()));
+        assertThat(configuration.getNestedLayer("development"), is(nullValue()));
+    }
+
+    @Test
+    public void testSetWritesToFirstLayer() {
+        configuration.set("name", "composite");
+        assertThat(overrides.get(String.class, "name"), is(equalTo("composite")));
+        assertThat(configuration.get(String.class, "name"), is(equalTo("composite")));
+
+        configuration.detach();
+        overrides.set("detached", "value");
+        assertThat(configuration.getLayer("detached"), is(nullValue()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testLoadNotSupported() {
+        configuration.load("config.yaml");
+    }
+}
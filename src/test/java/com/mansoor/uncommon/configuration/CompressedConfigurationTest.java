@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CompressedConfigurationTest {
+
+    @Test
+    public void testLoadGzipJson() throws Exception {
+        final File file = gzip("/sample.json", "sample", ".json.gz");
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(file);
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+    }
+
+    @Test
+    public void testLoadGzipStream() throws Exception {
+        final File file = gzip("/sample.properties", "sample", ".bin");
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        final InputStream input = new FileInputStream(file);
+        try {
+            configuration.load(input);
+        } finally {
+            input.close();
+        }
+        final PropertyConfiguration expected = new PropertyConfiguration();
+        expected.load(this.getClass().getResource("/sample.properties").getPath());
+        assertThat(configuration.toProperties(), is(equalTo(expected.toProperties())));
+    }
+
+    @Test
+    public void testSaveAndLoadCompressedYaml() throws Exception {
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(this.getClass().getResource("/sample.yaml").getPath());
+        final File file = File.createTempFile("sample", ".yaml.gz");
+        file.deleteOnExit();
+        configuration.save(file.getPath());
+
+        final YamlConfiguration reloaded = new YamlConfiguration();
+        reloaded.load(file);
+        assertThat(reloaded.getNested(String.class, "development.url"), is(equalTo("http://localhost:8080/demo")));
+        assertThat(isGzip(file), is(true));
+    }
+
+    @Test
+    public void testSaveAndLoadDeflateProperties() throws Exception {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.load(this.getClass().getResource("/sample.properties").getPath());
+        final File file = File.createTempFile("sample", ".properties.deflate");
+        file.deleteOnExit();
+        configuration.save(file.getPath());
+
+        final PropertyConfiguration reloaded = new PropertyConfiguration();
+        reloaded.load(file);
+        assertThat(reloaded.toProperties(), is(equalTo(configuration.toProperties())));
+    }
+
+    private File gzip(final String resource, final String prefix, final String suffix) throws IOException {
+        final File file = File.createTempFile(prefix, suffix);
+        file.deleteOnExit();
+        final InputStream input = this.getClass().getResourceAsStream(resource);
+        final OutputStream output = new GZIPOutputStream(new FileOutputStream(file));
+        try {
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+            output.close();
+        }
+        return file;
+    }
+
+    private boolean isGzip(final File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+        try {
+            return input.read() == 0x1f && input.read() == 0x8b;
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.event.ConfigChangeEvent;
+import com.mansoor.uncommon.configuration.event.ConfigChangeListener;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ConfigChangeListenerTest {
+
+    @Test
+    public void testListenerReceivesChangesUnderPrefix() throws Exception {
+        final File file = File.createTempFile("listener", ".yaml");
+        TestUtil.write(file, "development:\n  url: http://localhost\n  port: 8080\ndev: x\nname: demo\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final RecordingListener development = new RecordingListener();
+        final RecordingListener dev = new RecordingListener();
+        configuration.addListener("development", development);
+        configuration.addListener("dev", dev);
+
+        TestUtil.write(file, "development:\n  url: http://localhost\n  port: 9090\ndev: x\nname: changed\n");
+        configuration.reload();
+
+        final ConfigChangeEvent event = development.events.poll(5, TimeUnit.SECONDS);
+        assertThat(event, is(notNullValue()));
+        assertThat(event.getPrefix(), is(equalTo("development")));
+        assertThat(event.getConfiguration(), is(sameInstance((Configuration) configuration)));
+        assertThat(event.getDelta().getChanged(), is(equalTo(Collections.singleton("development.port"))));
+        assertThat(event.getDelta().size(), is(1));
+        assertThat(dev.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testSlowListenerReceivesCoalescedEvents() throws Exception {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BlockingQueue<ConfigChangeEvent> events = new LinkedBlockingQueue<ConfigChangeEvent>();
+        configuration.addListener("", new ConfigChangeListener() {
+            public void configChanged(final ConfigChangeEvent event) {
+                events.add(event);
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        configuration.set("a", 1);
+        assertThat(entered.await(5, TimeUnit.SECONDS), is(true));
+        configuration.set("b", 1);
+        configuration.set("c", 1);
+        configuration.set("b", 2);
+        release.countDown();
+
+        assertThat(events.poll(5, TimeUnit.SECONDS).getDelta().getAdded(), is(equalTo(Collections.singleton("a"))));
+        final ConfigChangeEvent merged = events.poll(5, TimeUnit.SECONDS);
+        assertThat(merged.getDelta().getAdded(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("b", "c")))));
+        assertThat(merged.getDelta().getChanged().isEmpty(), is(true));
+        assertThat(events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testClearAndRemoveListener() throws Exception {
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(this.getClass().getResource("/sample.json").getPath());
+        final RecordingListener listener = new RecordingListener();
+        configuration.addListener("development", listener);
+
+        configuration.clear();
+        final ConfigChangeEvent event = listener.events.poll(5, TimeUnit.SECONDS);
+        assertThat(event.getDelta().getRemoved(), hasItem("development.database"));
+
+        assertThat(configuration.removeListener("development", listener), is(true));
+        assertThat(configuration.removeListener("development", listener), is(false));
+        configuration.setNested("development.database", "mysql");
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testRejectedEventIsDeliveredWithNextChange() throws Exception {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        final AtomicInteger executions = new AtomicInteger();
+        configuration.setListenerExecutor(new Executor() {
+            public void execute(final Runnable command) {
+                if (executions.getAndIncrement() == 0) {
+                    throw new RejectedExecutionException("queue full");
+                }
+                command.run();
+            }
+        });
+        final RecordingListener listener = new RecordingListener();
+        configuration.addListener("", listener);
+
+        configuration.set("a", 1);
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+        configuration.set("b", 1);
+        final ConfigChangeEvent event = listener.events.poll(5, TimeUnit.SECONDS);
+        assertThat(event, is(notNullValue()));
+        assertThat(event.getDelta().getAdded(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("a", "b")))));
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testShutdownStopsNotifications() throws Exception {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        final RecordingListener listener = new RecordingListener();
+        configuration.addListener("", listener);
+        configuration.set("a", 1);
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is(notNullValue()));
+
+        configuration.shutdown();
+        configuration.set("b", 1);
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    private static class RecordingListener implements ConfigChangeListener {
+        private final BlockingQueue<ConfigChangeEvent> events = new LinkedBlockingQueue<ConfigChangeEvent>();
+
+        public void configChanged(final ConfigChangeEvent event) {
+            events.add(event);
+        }
+    }
+}
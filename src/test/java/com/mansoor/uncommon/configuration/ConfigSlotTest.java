@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.exceptions.PropertyConversionException;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ConfigSlotTest {
+
+    @Test
+    public void testSlotsFollowSetOverrideAndClear() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setValueCaching(true);
+        configuration.set("db.pool", 10);
+        final ConfigSlot<Integer> pool = configuration.register("db.pool", Integer.class);
+        final ConfigSlot<String> name = configuration.register("db.name", String.class);
+        assertThat(pool.get(), is(10));
+        assertThat(name.get(), is(nullValue()));
+        assertThat(configuration.register("db.pool", Integer.class), is(sameInstance(pool)));
+        assertThat(configuration.register("db.pool", Long.class).getIndex(), is(2));
+
+        configuration.get(Integer.class, "db.pool");
+        configuration.set("db.pool", 20);
+        configuration.set("db.name", "orders");
+        assertThat(pool.get(), is(20));
+        assertThat(name.get(), is(equalTo("orders")));
+
+        configuration.override("db.pool", 5);
+        assertThat(pool.get(), is(5));
+        configuration.removeOverride("db.pool");
+        assertThat(pool.get(), is(20));
+
+        configuration.clear();
+        assertThat(pool.get(), is(nullValue()));
+        assertThat(name.get(), is(nullValue()));
+    }
+
+    @Test(expected = PropertyConversionException.class)
+    public void testConversionFailureIsReportedByGet() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        final ConfigSlot<Integer> pool = configuration.register("db.pool", Integer.class);
+        configuration.set("db.pool", "many");
+        pool.get();
+    }
+
+    @Test
+    public void testNestedSlotsAreReboundOnReload() throws Exception {
+        final File file = File.createTempFile("slots", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "db:\n  pool: 10\n  name: orders\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final ConfigSlot<Integer> pool = configuration.register("db.pool", Integer.class);
+        final ConfigSlot<String> name = configuration.register("db.name", String.class);
+        assertThat(pool.get(), is(10));
+
+        TestUtil.write(file, "db:\n  pool: 30\n  name: orders\n");
+        configuration.reload();
+        assertThat(pool.get(), is(30));
+        assertThat(name.get(), is(equalTo("orders")));
+    }
+}
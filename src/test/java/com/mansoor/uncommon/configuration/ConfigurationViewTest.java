@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ConfigurationViewTest {
+
+    @Test
+    public void testViewIsNotAffectedByLaterChanges() throws Exception {
+        final File file = File.createTempFile("view", ".properties");
+        file.deleteOnExit();
+        TestUtil.write(file, "host=localhost\nport=8080\nhosts=a,b\n");
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.load(file);
+        final ConfigurationView first = configuration.snapshot();
+        assertThat(configuration.snapshot(), is(sameInstance(first)));
+
+        configuration.set("port", 9090);
+        TestUtil.write(file, "host=example.com\nport=8081\nhosts=c\n");
+        configuration.reload();
+        final ConfigurationView second = configuration.snapshot();
+
+        assertThat(first.get(String.class, "host"), is(equalTo("localhost")));
+        assertThat(first.get(Integer.class, "port"), is(8080));
+        assertThat(first.getList(String.class, "hosts"), is(equalTo(Arrays.asList("a", "b"))));
+        assertThat(second.get(String.class, "host"), is(equalTo("example.com")));
+        assertThat(second.getNested(Integer.class, "port"), is(8081));
+        assertThat(second.getVersion(), is(greaterThan(first.getVersion())));
+
+        configuration.clear();
+        assertThat(configuration.snapshot().get(String.class, "host"), is(nullValue()));
+        assertThat(second.get(String.class, "host"), is(equalTo("example.com")));
+    }
+
+    @Test
+    public void testNestedValuesAndOverrides() throws Exception {
+        final File file = File.createTempFile("view", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "development:\n  url: http://localhost\n  hosts:\n    - a\n    - b\nname: demo\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final ConfigurationView first = configuration.snapshot();
+        configuration.override("development.url", "http://example.com");
+        configuration.setNested("development.port", 8080);
+        final ConfigurationView second = configuration.snapshot();
+
+        assertThat(first.getNested(String.class, "development.url"), is(equalTo("http://localhost")));
+        assertThat(first.getNested(Integer.class, "development.port"), is(nullValue()));
+        assertThat(first.getNestedList(String.class, "development.hosts"), is(equalTo(Arrays.asList("a", "b"))));
+        assertThat(first.get(String.class, "name"), is(equalTo("demo")));
+        assertThat(second.getNested(String.class, "development.url"), is(equalTo("http://example.com")));
+        assertThat(second.getNested(Integer.class, "development.port"), is(8080));
+        assertThat(second.getVersion(), is(first.getVersion() + 2));
+    }
+
+    @Test
+    public void testCompositeView() {
+        final PropertyConfiguration overrides = new PropertyConfiguration();
+        final PropertyConfiguration defaults = new PropertyConfiguration();
+        defaults.set("host", "localhost");
+        defaults.set("port", 8080);
+        overrides.set("port", 9090);
+        final CompositeConfiguration configuration = new CompositeConfiguration(overrides, defaults);
+        final ConfigurationView first = configuration.snapshot();
+        overrides.set("host", "example.com");
+        final ConfigurationView second = configuration.snapshot();
+
+        assertThat(first.get(String.class, "host"), is(equalTo("localhost")));
+        assertThat(first.get(Integer.class, "port"), is(9090));
+        assertThat(second.get(String.class, "host"), is(equalTo("example.com")));
+        assertThat(second.getVersion(), is(greaterThan(first.getVersion())));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        new PropertyConfiguration().snapshot().set("key", "value");
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DiffReloadConfigurationTest {
+
+    @Test
+    public void testReloadOnlyInvalidatesChangedKeys() throws Exception {
+        final Map<String, String> values = new HashMap<String, String>();
+        for (int i = 0; i < 1000; i++) {
+            values.put("key" + i, String.valueOf(i));
+        }
+        final File file = write(File.createTempFile("diff", ".properties"), values);
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setValueCaching(true);
+        configuration.load(file);
+        readAll(configuration);
+        assertThat(configuration.valueCache.size(), is(1000));
+
+        values.put("key1", "changed");
+        values.remove("key2");
+        values.put("added", "1");
+        write(file, values);
+        configuration.reload();
+
+        final KeyDelta delta = configuration.getLastReloadDelta();
+        assertThat(delta.getChanged(), is(equalTo(Collections.singleton("key1"))));
+        assertThat(delta.getRemoved(), is(equalTo(Collections.singleton("key2"))));
+        assertThat(delta.getAdded(), is(equalTo(Collections.singleton("added"))));
+        assertThat(configuration.valueCache.size(), is(998));
+
+        final long misses = configuration.valueCache.getMisses();
+        readAll(configuration);
+        assertThat(configuration.valueCache.getMisses() - misses, is(2L));
+        assertThat(configuration.get(String.class, "key1"), is(equalTo("changed")));
+        assertThat(configuration.get(String.class, "key2"), is(nullValue()));
+    }
+
+    @Test
+    public void testReloadNestedKeys() throws Exception {
+        final File file = File.createTempFile("diff", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "development:\n  url: http://localhost\n  port: 8080\nname: demo\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.setValueCaching(true);
+        configuration.load(file);
+        assertThat(configuration.getNested(Integer.class, "development.port"), is(8080));
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://localhost")));
+        assertThat(configuration.get(String.class, "development"), is(notNullValue()));
+        assertThat(configuration.get(String.class, "name"), is(equalTo("demo")));
+
+        TestUtil.write(file, "development:\n  url: http://localhost\n  port: 9090\nname: demo\n");
+        configuration.reload();
+
+        assertThat(configuration.getLastReloadDelta().getChanged(), is(equalTo(Collections.singleton("development.port"))));
+        assertThat(configuration.getLastReloadDelta().size(), is(1));
+        assertThat(configuration.valueCache.size(), is(2));
+        assertThat(configuration.getNested(Integer.class, "development.port"), is(9090));
+        assertThat(configuration.get(String.class, "development"), containsString("9090"));
+    }
+
+    @Test
+    public void testSetInvalidatesCachedValue() throws Exception {
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.setValueCaching(true);
+        configuration.load(this.getClass().getResource("/sample.json").getPath());
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+
+        configuration.setNested("development.database", "postgres");
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("postgres")));
+
+        configuration.set("version", 2);
+        assertThat(configuration.get(Integer.class, "version"), is(2));
+        configuration.set("version", 3);
+        assertThat(configuration.get(Integer.class, "version"), is(3));
+
+        configuration.clear();
+        assertThat(configuration.get(Integer.class, "version"), is(nullValue()));
+    }
+
+    @Test
+    public void testUntrackedReloadDeltaSurvivesLaterChanges() throws Exception {
+        final Map<String, String> values = new HashMap<String, String>();
+        values.put("a", "1");
+        values.put("b", "1");
+        final File file = write(File.createTempFile("diff", ".properties"), values);
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.load(file);
+
+        values.put("a", "2");
+        values.remove("b");
+        values.put("c", "1");
+        write(file, values);
+        configuration.reload();
+        configuration.set("d", "1");
+        configuration.set("a", "3");
+
+        final KeyDelta delta = configuration.getLastReloadDelta();
+        assertThat(delta.getChanged(), is(equalTo(Collections.singleton("a"))));
+        assertThat(delta.getRemoved(), is(equalTo(Collections.singleton("b"))));
+        assertThat(delta.getAdded(), is(equalTo(Collections.singleton("c"))));
+        assertThat(configuration.get(String.class, "a"), is(equalTo("3")));
+    }
+
+    @Test
+    public void testMergeDelta() {
+        final Map<String, Object> first = new HashMap<String, Object>();
+        first.put("a", "1");
+        first.put("b", "1");
+        final Map<String, Object> second = new HashMap<String, Object>(first);
+        second.remove("a");
+        second.put("c", "1");
+        final Map<String, Object> third = new HashMap<String, Object>(second);
+        third.put("a", "2");
+        third.remove("c");
+        third.put("b", "2");
+
+        final KeyDelta merged = KeyDelta.diff(first, second).merge(KeyDelta.diff(second, third));
+        assertThat(merged.getAdded().isEmpty(), is(true));
+        assertThat(merged.getRemoved().isEmpty(), is(true));
+        assertThat(merged.getChanged(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("a", "b")))));
+        assertThat(KeyDelta.diff(first, first).isEmpty(), is(true));
+    }
+
+    private void readAll(final PropertyConfiguration configuration) {
+        for (int i = 0; i < 1000; i++) {
+            configuration.get(String.class, "key" + i);
+        }
+    }
+
+    private File write(final File file, final Map<String, String> values) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<String, String> entry : values.entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        TestUtil.write(file, builder.toString());
+        return file;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DirectoryConfigurationTest {
+    private File directory;
+    private DirectoryConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("conf", ".d");
+        directory.delete();
+        directory.mkdir();
+        TestUtil.write(new File(directory, "10-defaults.yaml"), "development:\n  url: http://localhost\n  port: 8080\nname: demo\n");
+        TestUtil.write(new File(directory, "20-database.json"), "{\"development\":{\"port\":9090,\"database\":\"mysql\"}}");
+        TestUtil.write(new File(directory, "30-local.properties"), "name=local\n");
+        TestUtil.write(new File(directory, "README.txt"), "not a fragment");
+    }
+
+    @After
+    public void tearDown() {
+        if (configuration != null) {
+            configuration.stopPolling();
+        }
+        for (final File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testMergeInFileNameOrder() {
+        configuration = new DirectoryConfiguration();
+        configuration.load(directory);
+        assertThat(configuration.getFragmentNames(), is(equalTo(Arrays.asList("10-defaults.yaml", "20-database.json", "30-local.properties"))));
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://localhost")));
+        assertThat(configuration.getNested(Integer.class, "development.port"), is(9090));
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+        assertThat(configuration.get(String.class, "name"), is(equalTo("local")));
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testOnlyChangedFragmentIsParsedAgain() throws Exception {
+        configuration = new DirectoryConfiguration(20, TimeUnit.MILLISECONDS);
+        configuration.setReloadQuietPeriod(0, TimeUnit.MILLISECONDS);
+        configuration.load(directory);
+        assertThat(configuration.getFragmentLoads(), is(3));
+
+        TestUtil.write(new File(directory, "20-database.json"), "{\"development\":{\"port\":9090,\"database\":\"postgres\"}}");
+        while (!"postgres".equals(configuration.getNested(String.class, "development.database"))) {
+            Thread.sleep(10);
+        }
+        assertThat(configuration.getFragmentLoads(), is(4));
+        assertThat(configuration.getLastReloadDelta().getChanged(), is(equalTo(Collections.singleton("development.database"))));
+        assertThat(configuration.getLastReloadDelta().size(), is(1));
+
+        new File(directory, "30-local.properties").delete();
+        while (!"demo".equals(configuration.get(String.class, "name"))) {
+            Thread.sleep(10);
+        }
+        assertThat(configuration.getFragmentLoads(), is(4));
+
+        TestUtil.write(new File(directory, "40-extra.yaml"), "extra: 42\n");
+        while (configuration.get(Integer.class, "extra") == null) {
+            Thread.sleep(10);
+        }
+        assertThat(configuration.getFragmentLoads(), is(5));
+        assertThat(configuration.getLastReloadDelta().getAdded(), is(equalTo(Collections.singleton("extra"))));
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testBrokenFragmentKeepsLastContent() throws Exception {
+        configuration = new DirectoryConfiguration(20, TimeUnit.MILLISECONDS);
+        configuration.setReloadQuietPeriod(0, TimeUnit.MILLISECONDS);
+        configuration.load(directory);
+
+        TestUtil.write(new File(directory, "20-database.json"), "{\"development\":");
+        TestUtil.write(new File(directory, "30-local.properties"), "name=changed\n");
+        while (!"changed".equals(configuration.get(String.class, "name"))) {
+            Thread.sleep(10);
+        }
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testFailedFragmentIsRetriedWhenItsSizeChanges() throws Exception {
+        configuration = new DirectoryConfiguration(20, TimeUnit.MILLISECONDS);
+        configuration.setReloadQuietPeriod(0, TimeUnit.MILLISECONDS);
+        configuration.load(directory);
+
+        final File fragment = new File(directory, "20-database.json");
+        final long modified = fragment.lastModified() + 5000;
+        TestUtil.write(new File(directory, "20-database.json"), "{\"development\":");
+        fragment.setLastModified(modified);
+        TestUtil.write(new File(directory, "30-local.properties"), "name=changed\n");
+        while (!"changed".equals(configuration.get(String.class, "name"))) {
+            Thread.sleep(10);
+        }
+
+        TestUtil.write(new File(directory, "20-database.json"), "{\"development\":{\"database\":\"postgres\"}}");
+        fragment.setLastModified(modified);
+        while (!"postgres".equals(configuration.getNested(String.class, "development.database"))) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.Convertors.DefaultConverterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EnvironmentConfigurationTest {
+    private EnvironmentConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        final Map<String, String> environment = new HashMap<String, String>();
+        environment.put("DATABASE_URL", "jdbc:mysql://localhost/demo");
+        environment.put("DATABASE_POOL_SIZE", "8");
+        environment.put("LOG_FILES", "/logs/debug.log,/logs/error.log");
+        environment.put("app.name", "explicit");
+        environment.put("APP_NAME", "derived");
+        configuration = new EnvironmentConfiguration(new DefaultConverterRegistry(), environment);
+    }
+
+    @Test
+    public void testBothFormsResolve() {
+        assertThat(configuration.get(String.class, "DATABASE_URL"), is(equalTo("jdbc:mysql://localhost/demo")));
+        assertThat(configuration.get(String.class, "database.url"), is(equalTo("jdbc:mysql://localhost/demo")));
+        assertThat(configuration.getNested(Integer.class, "database.pool.size"), is(8));
+        assertThat(configuration.getList(String.class, "log.files"), is(equalTo(Arrays.asList("/logs/debug.log", "/logs/error.log"))));
+        assertThat(configuration.get(String.class, "missing.key"), is(nullValue()));
+    }
+
+    @Test
+    public void testExactNameWins() {
+        assertThat(configuration.get(String.class, "app.name"), is(equalTo("explicit")));
+        assertThat(configuration.get(String.class, "APP_NAME"), is(equalTo("derived")));
+    }
+
+    @Test
+    public void testIndexIsBidirectional() {
+        assertThat(configuration.toKey("DATABASE_POOL_SIZE"), is(equalTo("database.pool.size")));
+        assertThat(configuration.toEnvironmentName("database.pool.size"), is(equalTo("DATABASE_POOL_SIZE")));
+        assertThat(configuration.toEnvironmentName("server.http-port"), is(equalTo("SERVER_HTTP_PORT")));
+    }
+
+    @Test
+    public void testSetUpdatesBothForms() {
+        configuration.set("database.url", "jdbc:postgresql://localhost/demo");
+        assertThat(configuration.get(String.class, "DATABASE_URL"), is(equalTo("jdbc:postgresql://localhost/demo")));
+        configuration.set("server.port", 8080);
+        assertThat(configuration.get(Integer.class, "SERVER_PORT"), is(8080));
+        assertThat(configuration.get(Integer.class, "server.port"), is(8080));
+    }
+
+    @Test
+    public void testSnapshotOfProcessEnvironment() {
+        final EnvironmentConfiguration environment = new EnvironmentConfiguration();
+        for (final Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            assertThat(environment.get(String.class, entry.getKey()), is(equalTo(entry.getValue())));
+        }
+    }
+
+    @Test
+    public void testEntriesListEachVariableOnce() {
+        assertThat(configuration.getRawEntries().size(), is(5));
+        assertThat(configuration.getRawEntries().containsKey("database.url"), is(false));
+        assertThat(configuration.getRawValue("database.url"), is(equalTo((Object) "jdbc:mysql://localhost/demo")));
+    }
+
+    @Test
+    public void testReloadReplacesSnapshot() {
+        final EnvironmentConfiguration environment = new EnvironmentConfiguration();
+        environment.set("uncommon.reload.marker", "set");
+        environment.reload();
+        assertThat(environment.get(String.class, "uncommon.reload.marker"), is(nullValue()));
+        assertThat(environment.getRawEntries().size(), is(System.getenv().size()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testLoadNotSupported() {
+        configuration.load("env.properties");
+    }
+}
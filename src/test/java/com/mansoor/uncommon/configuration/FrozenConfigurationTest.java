@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.index.MinimalPerfectHash;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class FrozenConfigurationTest {
+
+    @Test
+    public void testPerfectHashIsMinimal() {
+        final String[] keys = new String[100000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "development.service" + (i % 97) + ".key" + i;
+        }
+        final MinimalPerfectHash hash = new MinimalPerfectHash(keys);
+        final boolean[] used = new boolean[keys.length];
+        for (final String key : keys) {
+            final int index = hash.index(key);
+            assertThat(used[index], is(false));
+            used[index] = true;
+        }
+        assertThat(hash.getDisplacementCount(), is(keys.length / 4));
+    }
+
+    @Test
+    public void testFrozenValues() throws Exception {
+        final File file = File.createTempFile("frozen", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "development:\n  port: 8080\n  ratio: 0.75\n  code: '007'\n  hosts:\n    - a\n    - b\nname: demo\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final FrozenConfiguration frozen = configuration.freeze();
+        configuration.setNested("development.port", 9090);
+
+        assertThat(frozen.size(), is(5));
+        assertThat(frozen.getNested(Integer.class, "development.port"), is(8080));
+        assertThat(frozen.getNested(Long.class, "development.port"), is(8080L));
+        assertThat(frozen.getNested(String.class, "development.port"), is(equalTo("8080")));
+        assertThat(frozen.getNested(Double.class, "development.ratio"), is(0.75));
+        assertThat(frozen.getNested(String.class, "development.code"), is(equalTo("007")));
+        assertThat(frozen.getNestedList(String.class, "development.hosts"), is(equalTo(Arrays.asList("a", "b"))));
+        assertThat(frozen.get(String.class, "name"), is(equalTo("demo")));
+        assertThat(frozen.get(String.class, "missing"), is(nullValue()));
+        assertThat(new PropertyConfiguration().freeze().get(String.class, "missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testIntegralValuesReadAsDouble() throws Exception {
+        final File file = File.createTempFile("frozen", ".yaml");
+        TestUtil.write(file, "timeout: 30\nretries: 3000000000\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final FrozenConfiguration frozen = configuration.freeze();
+        assertThat(frozen.get(Double.class, "timeout"), is(30.0));
+        assertThat(frozen.get(Double.class, "retries"), is(3.0E9));
+
+        final PropertyConfiguration properties = new PropertyConfiguration();
+        properties.set("timeout", "30");
+        assertThat(properties.freeze().get(Double.class, "timeout"), is(30.0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFrozenIsReadOnly() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.set("key", "value");
+        configuration.freeze().set("key", "changed");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.index.BloomFilter;
+import com.mansoor.uncommon.configuration.index.KeyFilter;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class KeyFilterTest {
+
+    @Test
+    public void testBloomFilter() {
+        final BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertThat(filter.mightContain("key" + i), is(true));
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives, is(lessThan(300)));
+        assertThat(filter.expectedFalsePositiveRate(), is(lessThan(0.02)));
+    }
+
+    @Test
+    public void testFilterFollowsChanges() {
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.setKeyFilter(true);
+        configuration.load(this.getClass().getResource("/sample.yaml").getPath());
+        assertThat(configuration.mightContainKey("development"), is(true));
+        assertThat(configuration.mightContainKey("development.password"), is(true));
+        assertThat(configuration.mightContainKey("development.password.dbpassword"), is(true));
+
+        configuration.setNested("production.url", "http://production");
+        assertThat(configuration.mightContainKey("production"), is(true));
+        assertThat(configuration.mightContainKey("production.url"), is(true));
+
+        final int bits = configuration.getKeyFilter().getBitSize();
+        for (int i = 0; i < 1000; i++) {
+            configuration.set("key" + i, i);
+        }
+        assertThat(configuration.getKeyFilter().getBitSize(), is(greaterThan(bits)));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(configuration.mightContainKey("key" + i), is(true));
+        }
+
+        configuration.clear();
+        assertThat(configuration.mightContainKey("development"), is(false));
+    }
+
+    @Test
+    public void testCompositeSkipsFilteredLayers() {
+        final PropertyConfiguration overrides = new PropertyConfiguration();
+        overrides.setKeyFilter(0.05);
+        overrides.set("description", "overridden");
+        final JsonConfiguration defaults = new JsonConfiguration();
+        defaults.setKeyFilter(true);
+        defaults.load(this.getClass().getResource("/sample.json").getPath());
+        final CompositeConfiguration configuration = new CompositeConfiguration(overrides, defaults);
+
+        assertThat(configuration.get(String.class, "description"), is(equalTo("overridden")));
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+        final KeyFilter filter = overrides.getKeyFilter();
+        assertThat(filter.getFalsePositiveRate(), is(lessThan(0.2)));
+        assertThat(filter.mightContain("development.database"), is(false));
+    }
+}
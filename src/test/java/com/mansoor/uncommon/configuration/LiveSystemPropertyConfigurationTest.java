@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class LiveSystemPropertyConfigurationTest {
+    private static final String KEY = "live.system.property.test";
+    private LiveSystemPropertyConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        System.clearProperty(KEY);
+        configuration = new LiveSystemPropertyConfiguration();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(KEY);
+    }
+
+    @Test
+    public void testReadsLiveValues() {
+        assertThat(configuration.get(Integer.class, KEY), is(nullValue()));
+        System.setProperty(KEY, "1");
+        assertThat(configuration.get(Integer.class, KEY), is(1));
+        System.setProperty(KEY, "2");
+        assertThat(configuration.get(Integer.class, KEY), is(2));
+        assertThat(configuration.getNested(String.class, KEY), is(equalTo("2")));
+        System.clearProperty(KEY);
+        assertThat(configuration.get(Integer.class, KEY), is(nullValue()));
+    }
+
+    @Test
+    public void testConvertedValueIsReusedWhileUnchanged() {
+        System.setProperty(KEY, "42");
+        final Integer first = configuration.get(Integer.class, KEY);
+        assertThat(configuration.get(Integer.class, KEY), is(sameInstance(first)));
+        System.setProperty(KEY, new String("42"));
+        assertThat(configuration.get(Integer.class, KEY), is(sameInstance(first)));
+        System.setProperty(KEY, "1000");
+        assertThat(configuration.get(Integer.class, KEY), is(1000));
+    }
+
+    @Test
+    public void testOverlayDoesNotChangeSystemProperties() {
+        System.setProperty(KEY, "system");
+        configuration.set(KEY, "local");
+        assertThat(configuration.get(String.class, KEY), is(equalTo("local")));
+        assertThat(System.getProperty(KEY), is(equalTo("system")));
+        assertThat(configuration.toProperties().getProperty(KEY), is(equalTo("local")));
+        configuration.reload();
+        assertThat(configuration.get(String.class, KEY), is(equalTo("local")));
+        configuration.clear();
+        assertThat(configuration.get(String.class, KEY), is(equalTo("system")));
+    }
+
+    @Test
+    public void testSnapshotCopiesLiveValues() {
+        System.setProperty(KEY, "1");
+        final ConfigurationView first = configuration.snapshot();
+        System.setProperty(KEY, "2");
+        final ConfigurationView second = configuration.snapshot();
+        assertThat(first.get(Integer.class, KEY), is(1));
+        assertThat(second.get(Integer.class, KEY), is(2));
+        assertThat(second.getVersion(), is(greaterThan(first.getVersion())));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OffHeapPropertyConfigurationTest {
+
+    @Test
+    public void testLoadAndRead() {
+        final OffHeapPropertyConfiguration configuration = new OffHeapPropertyConfiguration();
+        configuration.load(getClass().getResource("/testProp.properties").getPath());
+        assertThat(configuration.get(Integer.class, "one"), is(1));
+        assertThat(configuration.getList(String.class, "development.accounts").size(), is(3));
+        assertThat(configuration.get(String.class, "missing"), is(nullValue()));
+        assertThat(configuration.getReservedBytes(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void testSetSaveAndReload() throws Exception {
+        final OffHeapPropertyConfiguration configuration = new OffHeapPropertyConfiguration();
+        configuration.set("routing.eu", "host-\u00e9");
+        configuration.set("routing.size", 42);
+        final Properties properties = configuration.toProperties();
+        assertThat(properties.getProperty("routing.eu"), is(equalTo("host-\u00e9")));
+        assertThat(properties.size(), is(2));
+
+        final File file = File.createTempFile("offheap", ".properties");
+        file.deleteOnExit();
+        configuration.save(file.getPath());
+        final OffHeapPropertyConfiguration loaded = new OffHeapPropertyConfiguration();
+        loaded.load(file);
+        assertThat(loaded.get(String.class, "routing.eu"), is(equalTo("host-\u00e9")));
+        assertThat(loaded.get(Integer.class, "routing.size"), is(42));
+        loaded.reload();
+        assertThat(loaded.get(Integer.class, "routing.size"), is(42));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OverrideConfigurationTest {
+
+    @Test
+    public void testOverridesSurviveReload() throws Exception {
+        final File file = File.createTempFile("override", ".properties");
+        file.deleteOnExit();
+        TestUtil.write(file, "port=8080\nhost=localhost\n");
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.load(file);
+        configuration.override("port", 9090);
+        configuration.set("written", "value");
+        assertThat(configuration.get(Integer.class, "port"), is(9090));
+
+        TestUtil.write(file, "port=8081\nhost=example.com\n");
+        configuration.reload();
+        assertThat(configuration.get(Integer.class, "port"), is(9090));
+        assertThat(configuration.get(String.class, "host"), is(equalTo("example.com")));
+        assertThat(configuration.get(String.class, "written"), is(nullValue()));
+
+        configuration.clear();
+        assertThat(configuration.get(Integer.class, "port"), is(9090));
+        configuration.reload();
+        assertThat(configuration.removeOverride("port"), is(true));
+        assertThat(configuration.removeOverride("port"), is(false));
+        assertThat(configuration.get(Integer.class, "port"), is(8081));
+    }
+
+    @Test
+    public void testNestedAndListOverrides() throws Exception {
+        final File file = File.createTempFile("override", ".yaml");
+        file.deleteOnExit();
+        TestUtil.write(file, "development:\n  url: http://localhost\n  hosts:\n    - a\n    - b\n");
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        configuration.override("development.url", "http://example.com");
+        configuration.overrideList("development.hosts", Arrays.asList("c"));
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://example.com")));
+        assertThat(configuration.getNestedList(String.class, "development.hosts"), is(equalTo(Arrays.asList("c"))));
+
+        configuration.reload();
+        assertThat(configuration.getNested(String.class, "development.url"), is(equalTo("http://example.com")));
+        assertThat(configuration.getOverrides().size(), is(2));
+        configuration.clearOverrides();
+        assertThat(configuration.getOverrides().isEmpty(), is(true));
+        assertThat(configuration.getNestedList(String.class, "development.hosts"), is(equalTo(Arrays.asList("a", "b"))));
+    }
+
+    @Test
+    public void testOverridesInvalidateCachedValues() throws Exception {
+        final File file = File.createTempFile("override", ".properties");
+        file.deleteOnExit();
+        TestUtil.write(file, "port=8080\n");
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setValueCaching(true);
+        configuration.load(file);
+        assertThat(configuration.get(Integer.class, "port"), is(8080));
+        configuration.override("port", 9090);
+        assertThat(configuration.get(Integer.class, "port"), is(9090));
+        configuration.override("timeout", 30);
+        assertThat(configuration.get(Integer.class, "timeout"), is(30));
+        configuration.removeOverride("port");
+        assertThat(configuration.get(Integer.class, "port"), is(8080));
+        assertThat(configuration.getLastReloadDelta().isEmpty(), is(true));
+        assertThat(configuration.getOverrides(), is(equalTo(Collections.<String, Object>singletonMap("timeout", "30"))));
+    }
+}
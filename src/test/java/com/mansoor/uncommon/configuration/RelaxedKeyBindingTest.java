@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.index.RelaxedKeyIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RelaxedKeyBindingTest {
+
+    @Test
+    public void testKeysResolveInAnyStyle() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.set("db.maxPool", 10);
+        configuration.set("db.hosts", "a,b");
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(nullValue()));
+
+        configuration.setRelaxedKeys(true);
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(10));
+        assertThat(configuration.get(Integer.class, "db.max-pool"), is(10));
+        assertThat(configuration.getNested(Integer.class, "Db.Max.Pool"), is(10));
+        assertThat(configuration.getList(String.class, "DB_HOSTS"), is(equalTo(Arrays.asList("a", "b"))));
+
+        configuration.set("cache.ttl-seconds", 60);
+        assertThat(configuration.get(Integer.class, "CACHE_TTL_SECONDS"), is(60));
+        configuration.set("db.maxPool", 20);
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(20));
+        assertThat(configuration.getRelaxedKeyIndex().getConflicts().isEmpty(), is(true));
+
+        configuration.setRelaxedKeys(false);
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(nullValue()));
+    }
+
+    @Test
+    public void testSlotsFollowRelaxedNames() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setRelaxedKeys(true);
+        final ConfigSlot<Integer> pool = configuration.register("DB_MAX_POOL", Integer.class);
+        assertThat(pool.get(), is(nullValue()));
+
+        configuration.set("db.maxPool", 10);
+        assertThat(pool.get(), is(10));
+        configuration.set("db.maxPool", 20);
+        assertThat(pool.get(), is(20));
+        assertThat(configuration.register("db.max-pool", Integer.class), is(sameInstance(pool)));
+
+        configuration.setRelaxedKeys(false);
+        assertThat(pool.get(), is(nullValue()));
+    }
+
+    @Test
+    public void testCompositeResolvesRelaxedNames() {
+        final PropertyConfiguration overrides = new PropertyConfiguration();
+        overrides.setRelaxedKeys(true);
+        overrides.set("db.maxPool", 10);
+        final PropertyConfiguration defaults = new PropertyConfiguration();
+        defaults.set("DB_MAX_POOL", 5);
+        defaults.set("cache.ttl", 60);
+        final CompositeConfiguration configuration = new CompositeConfiguration(overrides, defaults);
+
+        assertThat(configuration.get(Integer.class, "db.max-pool"), is(10));
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(5));
+        assertThat(configuration.get(Integer.class, "cache.ttl"), is(60));
+        assertThat(configuration.get(Integer.class, "CACHE_TTL"), is(nullValue()));
+    }
+
+    @Test
+    public void testConflictsAreReported() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setRelaxedKeys(true);
+        configuration.set("db.maxPool", 10);
+        configuration.set("db.max-pool", 20);
+        final Map<String, Set<String>> conflicts = configuration.getRelaxedKeyIndex().getConflicts();
+        assertThat(conflicts.get("db.max.pool"), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("db.maxPool", "db.max-pool")))));
+        assertThat(configuration.get(Integer.class, "db.maxPool"), is(10));
+        assertThat(configuration.get(Integer.class, "db.max-pool"), is(20));
+        assertThat(configuration.get(Integer.class, "DB_MAX_POOL"), is(20));
+
+        configuration.clear();
+        assertThat(configuration.getRelaxedKeyIndex().getConflicts().isEmpty(), is(true));
+        assertThat(RelaxedKeyIndex.normalize("Db_Max-Pool.size"), is(equalTo("db.max.pool.size")));
+        assertThat(RelaxedKeyIndex.normalize("db.maxPool"), is(equalTo("db.max.pool")));
+        assertThat(RelaxedKeyIndex.normalize("HTTP__PORT"), is(equalTo("http.port")));
+    }
+
+    @Test
+    public void testSegmentBoundariesAreKept() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setRelaxedKeys(true);
+        configuration.set("a.bc", 1);
+        configuration.set("ab.c", 2);
+        assertThat(configuration.getRelaxedKeyIndex().getConflicts().isEmpty(), is(true));
+        assertThat(configuration.get(Integer.class, "A_BC"), is(1));
+        assertThat(configuration.get(Integer.class, "AB_C"), is(2));
+        assertThat(configuration.get(Integer.class, "ABC"), is(nullValue()));
+    }
+
+    @Test
+    public void testNestedKeysResolve() throws Exception {
+        final File file = File.createTempFile("relaxed", ".yaml");
+        file.deleteOnExit();
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("db:\n  maxPool: 10\n  hosts: [a, b]\n");
+        } finally {
+            writer.close();
+        }
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.setRelaxedKeys(true);
+        configuration.load(file);
+        assertThat(configuration.getNested(Integer.class, "DB_MAX_POOL"), is(10));
+        assertThat(configuration.getNestedList(String.class, "db.HOSTS"), is(equalTo(Arrays.asList("a", "b"))));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ReloadRecoveryTest {
+    private PropertyConfiguration polling;
+
+    @After
+    public void tearDown() {
+        if (polling != null) {
+            polling.stopPolling();
+        }
+    }
+
+    @Test
+    public void testFailedReloadKeepsLastGoodContent() throws Exception {
+        final File file = File.createTempFile("recovery", ".json");
+        TestUtil.write(file, "{\"development\":{\"database\":\"mysql\"},\"name\":\"demo\"}");
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(file);
+
+        TestUtil.write(file, "{\"development\":");
+        try {
+            configuration.reload();
+            throw new AssertionError("reload of a truncated file should fail");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+        assertThat(configuration.get(String.class, "name"), is(equalTo("demo")));
+        assertThat(configuration.getReloadFailures(), is(1));
+        assertThat(configuration.getConsecutiveReloadFailures(), is(1));
+        assertThat(configuration.getLastReloadDelta().isEmpty(), is(true));
+
+        TestUtil.write(file, "{\"development\":{\"database\":\"postgres\"},\"name\":\"demo\"}");
+        configuration.reload();
+        assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("postgres")));
+        assertThat(configuration.getReloadFailures(), is(1));
+        assertThat(configuration.getConsecutiveReloadFailures(), is(0));
+    }
+
+    @Test
+    public void testLoadResetsConsecutiveFailures() throws Exception {
+        final File file = File.createTempFile("recovery", ".json");
+        TestUtil.write(file, "{\"name\":\"demo\"}");
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(file);
+
+        TestUtil.write(file, "{\"name\":");
+        try {
+            configuration.reload();
+            throw new AssertionError("reload of a truncated file should fail");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertThat(configuration.getConsecutiveReloadFailures(), is(1));
+
+        final File other = File.createTempFile("recovery", ".json");
+        TestUtil.write(other, "{\"name\":\"other\"}");
+        configuration.load(other);
+        assertThat(configuration.getConsecutiveReloadFailures(), is(0));
+        assertThat(configuration.get(String.class, "name"), is(equalTo("other")));
+    }
+
+    @Test(timeout = 20 * 1000)
+    public void testReadersNeverSeeHalfLoadedContent() throws Exception {
+        final File file = File.createTempFile("recovery", ".properties");
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("key").append(i).append("=value").append(i).append('\n');
+        }
+        TestUtil.write(file, text.toString());
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.load(file);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger misses = new AtomicInteger();
+        final Thread reader = new Thread(new Runnable() {
+            public void run() {
+                while (!done.get()) {
+                    if (configuration.get(String.class, "key499") == null) {
+                        misses.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            configuration.reload();
+        }
+        done.set(true);
+        reader.join();
+        assertThat(misses.get(), is(0));
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testPollerWaitsForQuietPeriod() throws Exception {
+        final File file = File.createTempFile("recovery", ".properties");
+        TestUtil.write(file, "name=first\n");
+        file.setLastModified(System.currentTimeMillis() - 60 * 1000L);
+        polling = new PropertyConfiguration(20, TimeUnit.MILLISECONDS);
+        polling.setReloadQuietPeriod(500, TimeUnit.MILLISECONDS);
+        polling.load(file);
+
+        TestUtil.write(file, "name=second\n");
+        final long written = System.currentTimeMillis();
+        Thread.sleep(200);
+        assertThat(polling.get(String.class, "name"), is(equalTo("first")));
+        while (!"second".equals(polling.get(String.class, "name"))) {
+            Thread.sleep(10);
+        }
+        assertThat(System.currentTimeMillis() - written, is(greaterThanOrEqualTo(500L)));
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testPollerBacksOffAfterFailure() throws Exception {
+        final File file = File.createTempFile("recovery", ".properties");
+        TestUtil.write(file, "name=first\n");
+        file.setLastModified(System.currentTimeMillis() - 60 * 1000L);
+        polling = new PropertyConfiguration(20, TimeUnit.MILLISECONDS);
+        polling.setReloadQuietPeriod(0, TimeUnit.MILLISECONDS);
+        polling.setReloadBackoff(1, 1, TimeUnit.MINUTES);
+        polling.load(file);
+
+        TestUtil.write(file, "name=\\u12\n");
+        while (polling.getReloadFailures() == 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertThat(polling.getReloadFailures(), is(1));
+        assertThat(polling.get(String.class, "name"), is(equalTo("first")));
+
+        TestUtil.write(file, "name=second, fixed\n");
+        while (!"second, fixed".equals(polling.get(String.class, "name"))) {
+            Thread.sleep(10);
+        }
+        assertThat(polling.getConsecutiveReloadFailures(), is(0));
+    }
+}
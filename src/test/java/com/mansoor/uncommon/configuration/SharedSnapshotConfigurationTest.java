@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SharedSnapshotConfigurationTest {
+    private File header;
+    private SharedSnapshotPublisher publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        header = File.createTempFile("shared", ".config");
+        header.delete();
+        header.deleteOnExit();
+        publisher = new SharedSnapshotPublisher(header);
+    }
+
+    @Test
+    public void testReadersSwitchToPublishedVersion() throws Exception {
+        final PropertyConfiguration source = new PropertyConfiguration();
+        source.set("pool", 10);
+        assertThat(publisher.publish(source), is(equalTo(1L)));
+
+        final SharedSnapshotConfiguration first = new SharedSnapshotConfiguration();
+        final SharedSnapshotConfiguration second = new SharedSnapshotConfiguration();
+        first.load(header);
+        second.load(header);
+        assertThat(first.get(Integer.class, "pool"), is(equalTo(10)));
+        assertThat(first.getVersion(), is(equalTo(1L)));
+
+        source.set("pool", 20);
+        assertThat(publisher.publish(source), is(equalTo(2L)));
+        assertThat(first.get(Integer.class, "pool"), is(equalTo(20)));
+        assertThat(second.get(Integer.class, "pool"), is(equalTo(20)));
+        assertThat(second.getVersion(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void testViewsFollowPublishedVersions() throws Exception {
+        final PropertyConfiguration source = new PropertyConfiguration();
+        source.set("pool", 10);
+        source.set("name", "first");
+        publisher.publish(source);
+        final SharedSnapshotConfiguration reader = new SharedSnapshotConfiguration();
+        reader.load(header);
+        final ConfigurationView before = reader.snapshot();
+
+        final PropertyConfiguration next = new PropertyConfiguration();
+        next.set("pool", 20);
+        next.set("extra", "added");
+        publisher.publish(next);
+        final ConfigurationView after = reader.snapshot();
+        assertThat(after.get(Integer.class, "pool"), is(equalTo(20)));
+        assertThat(after.get(String.class, "name"), is(nullValue()));
+        assertThat(after.get(String.class, "extra"), is(equalTo("added")));
+        assertThat(after.getVersion(), is(equalTo(before.getVersion() + 1)));
+        assertThat(before.get(Integer.class, "pool"), is(equalTo(10)));
+        assertThat(before.get(String.class, "name"), is(equalTo("first")));
+        final File directory = header.getAbsoluteFile().getParentFile();
+        new File(directory, header.getName() + ".2").deleteOnExit();
+    }
+
+    @Test
+    public void testExpiredVersionsAreDeleted() throws Exception {
+        final PropertyConfiguration source = new PropertyConfiguration();
+        source.set("key", "value");
+        publisher.publish(source);
+        publisher.publish(source);
+        publisher.publish(source);
+        final File directory = header.getAbsoluteFile().getParentFile();
+        assertThat(new File(directory, header.getName() + ".1").exists(), is(false));
+        assertThat(new File(directory, header.getName() + ".3").exists(), is(true));
+        new File(directory, header.getName() + ".2").deleteOnExit();
+        new File(directory, header.getName() + ".3").deleteOnExit();
+    }
+
+    @Test
+    public void testEmptyConfigurationPublished() throws Exception {
+        final SharedSnapshotPublisher empty = new SharedSnapshotPublisher(header);
+        final PropertyConfiguration source = new PropertyConfiguration();
+        empty.publish(source);
+        final SharedSnapshotConfiguration configuration = new SharedSnapshotConfiguration();
+        configuration.load(header);
+        assertThat(configuration.get(String.class, "missing"), is(nullValue()));
+        new File(header.getAbsoluteFile().getParentFile(), header.getName() + ".1").deleteOnExit();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.snapshot.Snapshot;
+import com.mansoor.uncommon.configuration.snapshot.SnapshotWriter;
+import com.mansoor.uncommon.configuration.util.KeyPaths;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SnapshotConfigurationTest {
+
+    @Test
+    public void testYamlRoundTrip() throws Exception {
+        assertRoundTrip(new YamlConfiguration(), "/test.yaml");
+        assertRoundTrip(new YamlConfiguration(), "/sample.yaml");
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        assertRoundTrip(new JsonConfiguration(), "/sample.json");
+    }
+
+    @Test
+    public void testPropertiesRoundTrip() throws Exception {
+        assertRoundTrip(new PropertyConfiguration(), "/sample.properties");
+        assertRoundTrip(new PropertyConfiguration(), "/testProp.properties");
+    }
+
+    @Test
+    public void testSnapshotCompiler() throws Exception {
+        final File snapshotFile = tempFile(".snapshot");
+        SnapshotCompiler.compile(new File(this.getClass().getResource("/sample.json").getPath()), snapshotFile);
+        final SnapshotConfiguration snapshot = new SnapshotConfiguration();
+        snapshot.load(snapshotFile);
+        assertThat(snapshot.getNested(Integer.class, "development.maxConnection"), is(equalTo(2)));
+        assertThat(snapshot.getNestedList(String.class, "development.logFiles"), hasItems("/logs/debug.log", "/logs/error.log"));
+    }
+
+    @Test
+    public void testCompressedSnapshot() throws Exception {
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(this.getClass().getResource("/sample.yaml").getPath());
+        final File snapshotFile = tempFile(".snapshot.gz");
+        configuration.saveSnapshot(snapshotFile.getPath());
+        final SnapshotConfiguration snapshot = new SnapshotConfiguration();
+        snapshot.load(snapshotFile);
+        assertThat(snapshot.getNested(String.class, "development.password.expiration"), is(equalTo("03/12/2014")));
+    }
+
+    @Test
+    public void testRawValueMatchesRawEntries() throws Exception {
+        final JsonConfiguration configuration = new JsonConfiguration();
+        configuration.load(this.getClass().getResource("/sample.json").getPath());
+        final File snapshotFile = tempFile(".snapshot");
+        configuration.saveSnapshot(snapshotFile.getPath());
+        final SnapshotConfiguration snapshot = new SnapshotConfiguration();
+        snapshot.load(snapshotFile);
+        for (final Map.Entry<String, Object> entry : snapshot.getRawEntries().entrySet()) {
+            assertThat(snapshot.getRawValue(entry.getKey()), is(equalTo(entry.getValue())));
+        }
+        assertThat(snapshot.getRawValue("missing"), is(nullValue()));
+        assertThat(snapshot.getRawValue(null), is(nullValue()));
+        assertThat(snapshot.get(String.class, null), is(nullValue()));
+        assertThat(snapshot.getList(String.class, null), is(nullValue()));
+    }
+
+    @Test
+    public void testNodesReferenceTheirChildren() throws Exception {
+        final StringBuilder leaf = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            leaf.append('x');
+        }
+        final Map<String, Object> root = new LinkedHashMap<String, Object>();
+        Map<String, Object> node = root;
+        for (int depth = 0; depth < 16; depth++) {
+            final Map<String, Object> child = new LinkedHashMap<String, Object>();
+            node.put("level" + depth, child);
+            node.put("odd.key", depth);
+            node = child;
+        }
+        node.put("leaf", leaf.toString());
+        node.put("empty", new LinkedHashMap<String, Object>());
+        final Snapshot snapshot = Snapshot.open(SnapshotWriter.toBuffer(root, true));
+        assertThat(snapshot.byteSize() < 8192, is(true));
+        assertThat(snapshot.toMap(), is(equalTo(root)));
+        assertThat(snapshot.flatten(), is(equalTo(KeyPaths.flatten(root, true))));
+        assertThat(snapshot.text(snapshot.find("level0", Snapshot.FLAT)), is(equalTo(root.get("level0").toString())));
+    }
+
+    @Test
+    public void testSnapshotOfSnapshot() throws Exception {
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(this.getClass().getResource("/test.yaml").getPath());
+        final File first = tempFile(".snapshot");
+        configuration.saveSnapshot(first.getPath());
+        final SnapshotConfiguration snapshot = new SnapshotConfiguration();
+        snapshot.load(first);
+        final File second = tempFile(".snapshot");
+        snapshot.saveSnapshot(second.getPath());
+        final SnapshotConfiguration copy = new SnapshotConfiguration();
+        copy.load(second);
+        assertThat(copy.size(), is(equalTo(snapshot.size())));
+        assertThat(copy.getNestedList(File.class, "development.password.socket").size(), is(equalTo(2)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws Exception {
+        new SnapshotConfiguration().set("key", "value");
+    }
+
+    private void assertRoundTrip(final BaseConfiguration configuration, final String resource) throws Exception {
+        configuration.load(this.getClass().getResource(resource).getPath());
+        final File snapshotFile = tempFile(".snapshot");
+        configuration.saveSnapshot(snapshotFile.getPath());
+        final SnapshotConfiguration snapshot = new SnapshotConfiguration();
+        snapshot.load(snapshotFile);
+
+        final Set<String> keys = new TreeSet<String>();
+        collectKeys(configuration.getRawEntries(), "", keys);
+        keys.add("missing.key");
+        for (final String key : keys) {
+            for (final Class<?> type : Arrays.<Class<?>>asList(String.class, Integer.class, Long.class, Double.class, File.class)) {
+                assertSame(resource + " get " + type.getSimpleName() + " " + key, configuration, snapshot, new Read(type, key) {
+                    Object read(final Configuration c) {
+                        return c.get(type, key);
+                    }
+                });
+                assertSame(resource + " getNested " + type.getSimpleName() + " " + key, configuration, snapshot, new Read(type, key) {
+                    Object read(final Configuration c) {
+                        return c.getNested(type, key);
+                    }
+                });
+                assertSame(resource + " getList " + type.getSimpleName() + " " + key, configuration, snapshot, new Read(type, key) {
+                    Object read(final Configuration c) {
+                        return c.getList(type, key);
+                    }
+                });
+                assertSame(resource + " getNestedList " + type.getSimpleName() + " " + key, configuration, snapshot, new Read(type, key) {
+                    Object read(final Configuration c) {
+                        return c.getNestedList(type, key);
+                    }
+                });
+            }
+        }
+    }
+
+    private void assertSame(final String message, final Configuration expected, final Configuration actual, final Read read) {
+        assertThat(message, read.apply(actual), is(equalTo(read.apply(expected))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectKeys(final Map<String, Object> map, final String prefix, final Set<String> keys) {
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            final String key = prefix + entry.getKey();
+            keys.add(key);
+            if (entry.getValue() instanceof Map) {
+                collectKeys((Map<String, Object>) entry.getValue(), key + ".", keys);
+            }
+        }
+    }
+
+    private static File tempFile(final String suffix) throws Exception {
+        final File file = File.createTempFile("config", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * A read whose result, or exception type, must be identical for both configurations.
+     */
+    private abstract static class Read {
+        final Class<?> type;
+        final String key;
+
+        Read(final Class<?> type, final String key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        abstract Object read(Configuration configuration);
+
+        Object apply(final Configuration configuration) {
+            try {
+                return read(configuration);
+            } catch (RuntimeException e) {
+                return e.getClass();
+            }
+        }
+    }
+}
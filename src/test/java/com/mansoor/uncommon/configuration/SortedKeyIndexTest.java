@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SortedSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SortedKeyIndexTest {
+
+    @Test
+    public void testFindKeysMatchesGlobs() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.set("tenants.acme.quota", 10);
+        configuration.set("tenants.globex.quota", 20);
+        configuration.set("tenants.globex.eu.quota", 30);
+        configuration.set("tenants.acme.owner", "bob");
+        configuration.set("tenantsCount", 2);
+
+        assertThat(configuration.findKeys("tenants.*.quota"), is(equalTo(Arrays.asList("tenants.acme.quota", "tenants.globex.quota"))));
+        assertThat(configuration.findKeys("tenants.**.quota"), is(equalTo(Arrays.asList("tenants.acme.quota", "tenants.globex.eu.quota", "tenants.globex.quota"))));
+        assertThat(configuration.findKeys("tenants?Count"), is(equalTo(Arrays.<String>asList())));
+        assertThat(configuration.findKeys("tenantsCoun?"), is(equalTo(Arrays.asList("tenantsCount"))));
+        assertThat(configuration.findKeys("tenants.acme.owner"), is(equalTo(Arrays.asList("tenants.acme.owner"))));
+
+        configuration.set("tenants.initech.quota", 5);
+        configuration.override("tenants.umbrella.quota", 1);
+        assertThat(configuration.findKeys("tenants.*.quota").size(), is(4));
+        configuration.clear();
+        assertThat(configuration.findKeys("tenants.*.quota"), is(equalTo(Arrays.asList("tenants.umbrella.quota"))));
+    }
+
+    @Test
+    public void testKeyRangeIsLive() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        for (int i = 90; i < 210; i++) {
+            configuration.set(String.format("shard.%04d", i), i);
+        }
+        final SortedSet<String> shards = configuration.keyRange("shard.0100", "shard.0199");
+        assertThat(shards.size(), is(100));
+        assertThat(shards.first(), is(equalTo("shard.0100")));
+        assertThat(shards.last(), is(equalTo("shard.0199")));
+
+        configuration.set("shard.0150a", 1);
+        assertThat(shards.size(), is(101));
+        assertThat(configuration.keyRange("shard.0199", "shard.0100").isEmpty(), is(true));
+    }
+}
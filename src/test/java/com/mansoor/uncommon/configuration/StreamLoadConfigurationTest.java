@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.util.ResourceCache;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StreamLoadConfigurationTest {
+
+    @Test
+    public void testLoadJsonFromInputStream() throws Exception {
+        final JsonConfiguration configuration = new JsonConfiguration();
+        final InputStream input = this.getClass().getResourceAsStream("/sample.json");
+        try {
+            configuration.load(input);
+        } finally {
+            input.close();
+        }
+        assertThat(configuration.getNested(Integer.class, "development.maxConnection"), is(equalTo(2)));
+    }
+
+    @Test
+    public void testLoadYamlFromByteBuffer() throws Exception {
+        final File file = new File(this.getClass().getResource("/sample.yaml").getPath());
+        final FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final YamlConfiguration configuration = new YamlConfiguration();
+            configuration.load(buffer);
+            assertThat(configuration.getNested(String.class, "development.database"), is(equalTo("mysql")));
+            assertThat(buffer.position(), is(equalTo(0)));
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testLoadResource() throws Exception {
+        final PropertyConfiguration first = new PropertyConfiguration();
+        final PropertyConfiguration second = new PropertyConfiguration();
+        first.loadResource("/sample.properties");
+        second.loadResource("sample.properties");
+        assertThat(first.toProperties(), is(equalTo(second.toProperties())));
+
+        final PropertyConfiguration fromFile = new PropertyConfiguration();
+        final InputStream input = new FileInputStream(this.getClass().getResource("/sample.properties").getPath());
+        try {
+            fromFile.load(input);
+        } finally {
+            input.close();
+        }
+        assertThat(first.toProperties(), is(equalTo(fromFile.toProperties())));
+    }
+
+    @Test
+    public void testResourceCacheSharesContent() throws Exception {
+        final ByteBuffer first = ResourceCache.read(this.getClass().getResource("/test.yaml"));
+        first.get();
+        final ByteBuffer second = ResourceCache.read(this.getClass().getResource("/test.yaml"));
+        assertThat(second.position(), is(equalTo(0)));
+        assertThat(second.isReadOnly(), is(true));
+        assertThat(second.remaining(), is(equalTo(first.limit())));
+    }
+
+    @Test
+    public void testInvalidateReadsResourceAgain() throws Exception {
+        final File file = File.createTempFile("resource", ".properties");
+        file.deleteOnExit();
+        final Writer writer = new FileWriter(file);
+        writer.write("a=1");
+        writer.close();
+        final URL url = file.toURI().toURL();
+        assertThat(ResourceCache.read(url).remaining(), is(equalTo(3)));
+        final Writer rewrite = new FileWriter(file);
+        rewrite.write("a=10");
+        rewrite.close();
+        assertThat(ResourceCache.read(url).remaining(), is(equalTo(3)));
+        ResourceCache.invalidate(url);
+        assertThat(ResourceCache.read(url).remaining(), is(equalTo(4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingResource() throws Exception {
+        new JsonConfiguration().loadResource("/missing.json");
+    }
+}
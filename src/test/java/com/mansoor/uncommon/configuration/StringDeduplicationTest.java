@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.util.StringDeduplicator;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StringDeduplicationTest {
+
+    @Test
+    public void testYamlStringsAreShared() throws Exception {
+        final StringBuilder yaml = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            yaml.append("tenant").append(i).append(":\n  host: localhost\n  port: '8080'\n  url: http://example.com/api\n");
+        }
+        final File file = TestUtil.write(File.createTempFile("dedup", ".yaml"), yaml.toString());
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.setStringDeduplication(true);
+        configuration.load(file);
+
+        final Object host = configuration.getNestedValue("tenant0.host");
+        assertThat(configuration.getNestedValue("tenant99.host"), is(sameInstance(host)));
+        assertThat(configuration.getNestedValue("tenant50.url"), is(sameInstance(configuration.getNestedValue("tenant1.url"))));
+        final String first = keyOf(configuration.getNestedValue("tenant0"));
+        assertThat(keyOf(configuration.getNestedValue("tenant1")), is(sameInstance(first)));
+
+        final StringDeduplicator deduplicator = configuration.getStringDeduplicator();
+        assertThat(deduplicator.getHits(), is(greaterThanOrEqualTo(99L * 6)));
+        assertThat(deduplicator.getBytesSaved(), is(greaterThan(99L * 6 * 40)));
+
+        configuration.reload();
+        assertThat(configuration.getNestedValue("tenant0.host"), is(sameInstance(host)));
+    }
+
+    @Test
+    public void testPropertyValuesAreShared() throws Exception {
+        final File file = TestUtil.write(File.createTempFile("dedup", ".properties"), "a.enabled=true\nb.enabled=true\nc.enabled=false\n");
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.setStringDeduplication(64);
+        configuration.load(file);
+        assertThat(configuration.getRawValue("a.enabled"), is(sameInstance(configuration.getRawValue("b.enabled"))));
+        assertThat(configuration.get(String.class, "c.enabled"), is(equalTo("false")));
+        assertThat(configuration.getStringDeduplicator().getHits(), is(1L));
+    }
+
+    @Test
+    public void testTableIsBounded() {
+        final StringDeduplicator deduplicator = new StringDeduplicator(3);
+        assertThat(deduplicator.getCapacity(), is(4));
+        final String value = new String("localhost");
+        assertThat(deduplicator.deduplicate(value), is(sameInstance(value)));
+        assertThat(deduplicator.deduplicate(new String("localhost")), is(sameInstance(value)));
+        assertThat(deduplicator.getBytesSaved(), is(72L));
+        for (int i = 0; i < 1000; i++) {
+            deduplicator.deduplicate("value" + i);
+        }
+        assertThat(deduplicator.getHits(), is(1L));
+    }
+
+    private static String keyOf(final Object node) {
+        return ((Map<?, ?>) node).keySet().iterator().next().toString();
+    }
+}
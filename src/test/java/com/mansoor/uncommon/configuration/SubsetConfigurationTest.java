@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import com.mansoor.uncommon.configuration.index.KeyTrie;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SubsetConfigurationTest {
+
+    @Test
+    public void testPropertySubsetIsLive() {
+        final PropertyConfiguration configuration = new PropertyConfiguration();
+        configuration.set("development.password.database", "secret");
+        configuration.set("development.port", 8080);
+        configuration.set("developmentMode", "true");
+        configuration.set("production.port", 80);
+
+        final SubsetConfiguration development = configuration.subset("development.");
+        assertThat(development.getPrefix(), is(equalTo("development")));
+        assertThat(development.get(String.class, "password.database"), is(equalTo("secret")));
+        assertThat(development.get(Integer.class, "port"), is(8080));
+        assertThat(asSet(development.getKeys()), is(equalTo(asSet("password.database", "port"))));
+
+        configuration.set("development.host", "localhost");
+        development.set("timeout", 30);
+        assertThat(configuration.get(Integer.class, "development.timeout"), is(30));
+        assertThat(asSet(development.getKeys()), is(equalTo(asSet("password.database", "port", "host", "timeout"))));
+        assertThat(development.subset("password").getKeys(), is(equalTo(Arrays.asList("database"))));
+
+        configuration.clear();
+        assertThat(development.getKeys().isEmpty(), is(true));
+        assertThat(development.get(Integer.class, "port"), is(nullValue()));
+    }
+
+    @Test
+    public void testYamlSubsetUsesNestedKeys() throws Exception {
+        final File file = File.createTempFile("subset", ".yaml");
+        file.deleteOnExit();
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("development:\n  port: 8080\n  password:\n    database: secret\nproduction:\n  port: 80\n");
+        } finally {
+            writer.close();
+        }
+        final YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(file);
+        final SubsetConfiguration development = configuration.subset("development");
+        assertThat(development.get(Integer.class, "port"), is(8080));
+        assertThat(asSet(development.getKeys()), is(equalTo(asSet("port", "password.database"))));
+
+        final ConfigurationView view = development.snapshot();
+        development.set("port", 9090);
+        assertThat(development.get(Integer.class, "port"), is(9090));
+        assertThat(configuration.getNested(Integer.class, "development.port"), is(9090));
+        assertThat(view.get(Integer.class, "port"), is(8080));
+        assertThat(view.get(String.class, "password.database"), is(equalTo("secret")));
+        assertThat(view.get(Integer.class, "production.port"), is(nullValue()));
+
+        configuration.setNested("development.host", "db");
+        final ConfigurationView next = development.snapshot();
+        assertThat(next.getVersion(), is(configuration.snapshot().getVersion()));
+        assertThat(next.getStore().toMap().keySet(), is(equalTo(asSet("port", "host", "password.database"))));
+        assertThat(next.get(Integer.class, "port"), is(9090));
+    }
+
+    @Test
+    public void testTrieMatchesWholeSegments() {
+        final KeyTrie trie = new KeyTrie();
+        trie.add("dev");
+        trie.add("development.port");
+        trie.add("development.password.database");
+        assertThat(trie.keys("dev"), is(equalTo(Arrays.asList("dev"))));
+        assertThat(trie.keys("development").size(), is(2));
+        assertThat(trie.keys("").size(), is(3));
+
+        trie.remove("development.password.database");
+        assertThat(trie.keys("development.password").isEmpty(), is(true));
+        assertThat(trie.contains("development.port"), is(true));
+        assertThat(trie.contains("development"), is(false));
+    }
+
+    private static Set<String> asSet(final String... values) {
+        return new HashSet<String>(Arrays.asList(values));
+    }
+
+    private static Set<String> asSet(final List<String> values) {
+        return new HashSet<String>(values);
+    }
+}
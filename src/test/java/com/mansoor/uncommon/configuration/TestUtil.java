@@ -19,6 +19,10 @@ package com.mansoor.uncommon.configuration;
 import com.mansoor.uncommon.configuration.Convertors.encryption.KeyConfig;
 import com.mansoor.uncommon.configuration.util.EncryptionUtil;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.security.KeyStore;
 
 /**
@@ -47,6 +51,17 @@ public final class TestUtil {
         return configuration;
     }
 
+    public static File write(final File file, final String text) throws IOException {
+        file.deleteOnExit();
+        final Writer writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
     public static KeyConfig createSymmetricKeyConfig() {
         return new KeyConfig.Builder()
                 .keyAlias("secret")
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class YamlMultiDocumentConfigurationTest {
+    private YamlConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new YamlConfiguration();
+        configuration.load(this.getClass().getResource("/profiles.yaml").getPath());
+    }
+
+    @Test
+    public void testFirstDocumentIsLoaded() throws Exception {
+        assertThat(configuration.getNested(String.class, "database.url"), is(equalTo("jdbc:mysql://localhost/dev")));
+    }
+
+    @Test
+    public void testDocumentNames() throws Exception {
+        assertThat(configuration.getDocumentNames(), is(equalTo(Arrays.asList("development", "staging", "2"))));
+    }
+
+    @Test
+    public void testGetDocument() throws Exception {
+        final Configuration staging = configuration.getDocument("staging");
+        assertThat(staging.getNested(Integer.class, "database.pool"), is(equalTo(10)));
+        assertThat(configuration.getDocument("2").getNested(Integer.class, "database.pool"), is(equalTo(50)));
+        assertThat(configuration.getDocument("staging"), is(sameInstance(staging)));
+        assertThat(configuration.getDocument("missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testDocumentsAreParsedOnFirstAccess() throws Exception {
+        final File file = File.createTempFile("lazy", ".yaml");
+        file.deleteOnExit();
+        final FileWriter writer = new FileWriter(file);
+        writer.write("--- # good\nname: value\n--- # broken\nname: [unclosed\n");
+        writer.close();
+
+        configuration.load(file);
+        assertThat(configuration.get(String.class, "name"), is(equalTo("value")));
+        assertThat(configuration.getDocument("good").get(String.class, "name"), is(equalTo("value")));
+        try {
+            configuration.getDocument("broken");
+            fail("broken document should fail when it is accessed");
+        } catch (RuntimeException expected) {
+            assertThat(expected, is(notNullValue()));
+        }
+    }
+
+    @Test
+    public void testFirstDocumentViewIsConfiguration() throws Exception {
+        assertThat(configuration.getDocument("development"), is(sameInstance((Configuration) configuration)));
+    }
+
+    @Test
+    public void testLeadingCommentsAreNotADocument() throws Exception {
+        final File file = File.createTempFile("leading", ".yaml");
+        file.deleteOnExit();
+        final FileWriter writer = new FileWriter(file);
+        writer.write("# settings\n%YAML 1.1\n--- # first\n# about\nname: one\n...\n--- # second\nname: two\n");
+        writer.close();
+
+        final YamlConfiguration leading = new YamlConfiguration();
+        leading.load(file);
+        assertThat(leading.get(String.class, "name"), is(equalTo("one")));
+        assertThat(leading.getDocumentNames(), is(equalTo(Arrays.asList("first", "second"))));
+        assertThat(leading.getDocument("second").get(String.class, "name"), is(equalTo("two")));
+    }
+
+    @Test
+    public void testReloadDiscardsViews() throws Exception {
+        final Configuration staging = configuration.getDocument("staging");
+        configuration.reload();
+        assertThat(configuration.getDocument("staging"), is(not(sameInstance(staging))));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares a {@link HamtStore} published through an atomic reference with a {@code HashMap} guarded by a
+ * {@code ReentrantLock}, under concurrent writers and readers. Each reader also takes a consistent copy of the whole
+ * map every 1000 reads, which is free with a persistent store and a full copy under the lock with a {@code HashMap}.
+ * <pre>
+ *     java -cp target/classes:target/test-classes com.mansoor.uncommon.configuration.store.ConfigStoreBenchmark [keys] [writers] [readers] [seconds]
+ * </pre>
+ */
+public final class ConfigStoreBenchmark {
+    private final int keys;
+    private final int writers;
+    private final int readers;
+    private final long millis;
+
+    private ConfigStoreBenchmark(final int keys, final int writers, final int readers, final long millis) {
+        this.keys = keys;
+        this.writers = writers;
+        this.readers = readers;
+        this.millis = millis;
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final ConfigStoreBenchmark benchmark = new ConfigStoreBenchmark(
+                args.length > 0 ? Integer.parseInt(args[0]) : 10000,
+                args.length > 1 ? Integer.parseInt(args[1]) : 4,
+                args.length > 2 ? Integer.parseInt(args[2]) : 4,
+                args.length > 3 ? Long.parseLong(args[3]) * 1000L : 3000L);
+        for (int round = 0; round < 2; round++) {
+            benchmark.run("HashMap + ReentrantLock", new LockedMap());
+            benchmark.run("HamtStore", new PublishedStore(HamtStore.EMPTY));
+            benchmark.run("CopyOnWriteStore", new PublishedStore(CopyOnWriteStore.EMPTY));
+        }
+    }
+
+    private void run(final String name, final Target target) throws InterruptedException {
+        final Map<String, Object> initial = new HashMap<String, Object>();
+        for (int i = 0; i < keys; i++) {
+            initial.put("key" + i, String.valueOf(i));
+        }
+        target.putAll(initial);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(writers + readers);
+        for (int t = 0; t < writers; t++) {
+            final int seed = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    long count = 0;
+                    int i = seed;
+                    while (running.get()) {
+                        i = (i * 31 + 7) % keys;
+                        target.put("key" + i, String.valueOf(count));
+                        count++;
+                    }
+                    writes.addAndGet(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int t = 0; t < readers; t++) {
+            final int seed = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    long count = 0;
+                    int i = seed;
+                    while (running.get()) {
+                        i = (i * 17 + 3) % keys;
+                        target.get("key" + i);
+                        if (++count % 1000 == 0) {
+                            target.view();
+                        }
+                    }
+                    reads.addAndGet(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+        System.out.printf("%-25s %12d writes/s %12d reads/s%n", name, writes.get() * 1000 / millis, reads.get() * 1000 / millis);
+    }
+
+    /**
+     * Map under test.
+     */
+    private interface Target {
+        void putAll(Map<String, Object> entries);
+
+        void put(String key, Object value);
+
+        Object get(String key);
+
+        Object view();
+    }
+
+    private static final class LockedMap implements Target {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Object> map = new HashMap<String, Object>();
+
+        public void putAll(final Map<String, Object> entries) {
+            lock.lock();
+            try {
+                map.putAll(entries);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void put(final String key, final Object value) {
+            lock.lock();
+            try {
+                map.put(key, value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Object get(final String key) {
+            lock.lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Object view() {
+            lock.lock();
+            try {
+                return new HashMap<String, Object>(map);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class PublishedStore implements Target {
+        private final AtomicReference<ConfigStore> root;
+
+        private PublishedStore(final ConfigStore empty) {
+            root = new AtomicReference<ConfigStore>(empty);
+        }
+
+        public void putAll(final Map<String, Object> entries) {
+            root.set(root.get().apply(entries));
+        }
+
+        public void put(final String key, final Object value) {
+            final Map<String, Object> change = Collections.singletonMap(key, value);
+            ConfigStore current;
+            do {
+                current = root.get();
+            } while (!root.compareAndSet(current, current.apply(change)));
+        }
+
+        public Object get(final String key) {
+            return root.get().get(key);
+        }
+
+        public Object view() {
+            return root.get();
+        }
+    }
+}
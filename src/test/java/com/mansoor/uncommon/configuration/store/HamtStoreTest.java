@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class HamtStoreTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        final Random random = new Random(42);
+        final Map<String, Object> expected = new HashMap<String, Object>();
+        ConfigStore store = HamtStore.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            final String key = "key" + random.nextInt(2000);
+            final String value = random.nextInt(4) == 0 ? null : String.valueOf(random.nextInt(10));
+            if (value == null) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+            store = store.apply(Collections.singletonMap(key, value));
+            assertThat(store.get(key), is(equalTo(expected.get(key))));
+        }
+        assertThat(store.size(), is(expected.size()));
+        assertThat(store.toMap(), is(equalTo(expected)));
+    }
+
+    @Test
+    public void testPreviousVersionsAreUnchanged() {
+        final Map<String, Object> changes = new HashMap<String, Object>();
+        for (int i = 0; i < 1000; i++) {
+            changes.put("key" + i, String.valueOf(i));
+        }
+        final ConfigStore first = HamtStore.EMPTY.apply(changes);
+        final ConfigStore second = first.apply(Collections.singletonMap("key1", "changed"));
+        final ConfigStore third = second.apply(Collections.<String, Object>singletonMap("key2", null));
+
+        assertThat(first.get("key1"), is(equalTo((Object) "1")));
+        assertThat(first.get("key2"), is(equalTo((Object) "2")));
+        assertThat(second.get("key1"), is(equalTo((Object) "changed")));
+        assertThat(third.get("key2"), is(nullValue()));
+        assertThat(first.size(), is(1000));
+        assertThat(third.size(), is(999));
+        assertThat(first.apply(Collections.singletonMap("key3", "3")), is(sameInstance(first)));
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+        ConfigStore store = HamtStore.EMPTY.apply(Collections.singletonMap("Aa", "1"));
+        store = store.apply(Collections.singletonMap("BB", "2"));
+        store = store.apply(Collections.singletonMap("AaAa", "3"));
+        assertThat(store.get("Aa"), is(equalTo((Object) "1")));
+        assertThat(store.get("BB"), is(equalTo((Object) "2")));
+        assertThat(store.size(), is(3));
+
+        store = store.apply(Collections.<String, Object>singletonMap("Aa", null));
+        assertThat(store.get("Aa"), is(nullValue()));
+        assertThat(store.get("BB"), is(equalTo((Object) "2")));
+        assertThat(store.get("AaAa"), is(equalTo((Object) "3")));
+        assertThat(store.size(), is(2));
+    }
+}
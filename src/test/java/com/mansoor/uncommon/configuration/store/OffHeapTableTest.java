@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.store;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OffHeapTableTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        final Random random = new Random(7);
+        final Map<String, String> expected = new HashMap<String, String>();
+        final OffHeapTable table = new OffHeapTable();
+        for (int i = 0; i < 50000; i++) {
+            final String key = "route." + random.nextInt(5000);
+            if (random.nextInt(4) == 0) {
+                assertThat(table.remove(key), is(equalTo(expected.remove(key))));
+            } else {
+                final String value = "backend-" + random.nextInt(100) + "-\u00e9\u4e2d";
+                assertThat(table.put(key, value), is(equalTo(expected.put(key, value))));
+            }
+            assertThat(table.get(key), is(equalTo(expected.get(key))));
+        }
+        assertThat(table.size(), is(expected.size()));
+        final Map<String, String> actual = new HashMap<String, String>();
+        for (final Map.Entry<String, String> entry : table) {
+            actual.put(entry.getKey(), entry.getValue());
+        }
+        assertThat(actual, is(equalTo(expected)));
+        assertThat(table.containsKey("missing"), is(false));
+    }
+
+    @Test
+    public void testDiff() {
+        final OffHeapTable before = new OffHeapTable();
+        final OffHeapTable after = new OffHeapTable();
+        for (int i = 0; i < 1000; i++) {
+            before.put("key" + i, String.valueOf(i));
+            after.put("key" + i, String.valueOf(i));
+        }
+        after.put("key1", "changed");
+        after.put("key2", "\u00e9t\u00e9");
+        after.remove("key3");
+        after.put("added", "1");
+        before.put("key4", "old");
+        before.remove("key4");
+
+        final Set<String> added = new HashSet<String>();
+        final Set<String> removed = new HashSet<String>();
+        final Set<String> changed = new HashSet<String>();
+        OffHeapTable.diff(before, after, added, removed, changed);
+        assertThat(added, is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("added", "key4")))));
+        assertThat(removed, is(equalTo(Collections.singleton("key3"))));
+        assertThat(changed, is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("key1", "key2")))));
+    }
+
+    @Test
+    public void testIteratorSeesEntriesPresentAtCreation() {
+        final OffHeapTable table = new OffHeapTable(4);
+        table.put("a", "1");
+        table.put("b", "2");
+        final Iterator<Map.Entry<String, String>> iterator = table.iterator();
+        for (int i = 0; i < 10000; i++) {
+            table.put("key" + i, String.valueOf(i));
+        }
+        table.put("a", "changed");
+        final Map<String, String> seen = new HashMap<String, String>();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, String> entry = iterator.next();
+            seen.put(entry.getKey(), entry.getValue());
+        }
+        final Map<String, String> expected = new HashMap<String, String>();
+        expected.put("a", "1");
+        expected.put("b", "2");
+        assertThat(seen, is(equalTo(expected)));
+        assertThat(table.get("a"), is(equalTo("changed")));
+        assertThat(table.size(), is(10002));
+    }
+
+    @Test
+    public void testGarbageIsCompacted() {
+        final OffHeapTable table = new OffHeapTable();
+        for (int i = 0; i < 100000; i++) {
+            table.put("key" + (i % 100), "value" + i);
+        }
+        assertThat(table.size(), is(100));
+        assertThat(table.get("key99"), is(equalTo("value99999")));
+        assertThat(table.getReservedBytes(), is(lessThan(64L * 1024)));
+        table.clear();
+        assertThat(table.size(), is(0));
+        assertThat(table.get("key99"), is(nullValue()));
+    }
+}
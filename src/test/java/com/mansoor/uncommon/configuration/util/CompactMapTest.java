@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012. Muhammad M. Ashraf
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.mansoor.uncommon.configuration.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CompactMapTest {
+
+    @Test
+    public void testMatchesLinkedHashMap() {
+        final Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            final Map<String, Object> expected = new LinkedHashMap<String, Object>();
+            final CompactMap map = new CompactMap(random.nextInt(4));
+            for (int i = 0; i < 30; i++) {
+                final String key = "k" + random.nextInt(12);
+                if (random.nextInt(3) == 0) {
+                    assertThat(map.remove(key), is(equalTo(expected.remove(key))));
+                } else {
+                    assertThat(map.put(key, i), is(equalTo(expected.put(key, i))));
+                }
+                assertThat(map.size(), is(expected.size()));
+                assertThat(map.get(key), is(equalTo(expected.get(key))));
+            }
+            assertThat(map, is(equalTo(expected)));
+            assertThat(new ArrayList<String>(map.keySet()), is(equalTo(new ArrayList<String>(expected.keySet()))));
+        }
+    }
+
+    @Test
+    public void testPromotionPastThreshold() {
+        final CompactMap map = new CompactMap(2);
+        for (int i = 0; i < CompactMap.THRESHOLD; i++) {
+            map.put("key" + i, i);
+        }
+        assertThat(map.isPromoted(), is(false));
+        map.put("key" + CompactMap.THRESHOLD, CompactMap.THRESHOLD);
+        assertThat(map.isPromoted(), is(true));
+        assertThat(map.size(), is(CompactMap.THRESHOLD + 1));
+        assertThat(map.get("key0"), is(equalTo((Object) 0)));
+        assertThat(map.keySet().iterator().next(), is(equalTo("key0")));
+    }
+
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        final CompactMap map = new CompactMap(3);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        final Iterator<Map.Entry<String, Object>> entries = map.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, Object> entry = entries.next();
+            if (entry.getKey().equals("b")) {
+                entries.remove();
+            } else {
+                entry.setValue(10);
+            }
+        }
+        assertThat(map.size(), is(2));
+        assertThat(map.get("a"), is(equalTo((Object) 10)));
+        assertThat(map.get("c"), is(equalTo((Object) 10)));
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.toString(), is(equalTo("{a=10, c=10}")));
+    }
+
+    @Test(timeout = 20 * 1000)
+    public void testLockFreeReadersDuringWrites() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int round = 0; round < 200; round++) {
+            final CompactMap map = new CompactMap(1);
+            map.put("stable", "value");
+            done.set(false);
+            final Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            if (!"value".equals(map.get("stable"))) {
+                                throw new AssertionError("stable key lost");
+                            }
+                            map.containsKey("k3");
+                            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                                entry.getKey().length();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            reader.start();
+            for (int i = 0; !map.isPromoted(); i++) {
+                map.put("k" + i, i);
+                if (i % 3 == 0) {
+                    map.remove("k" + (i / 2));
+                }
+            }
+            done.set(true);
+            reader.join();
+        }
+        assertThat(failure.get(), is(nullValue()));
+    }
+}